@@ -0,0 +1,250 @@
+package psa.cesa.cesaom.controller;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import psa.cesa.cesaom.model.ComLineSnapshot;
+import psa.cesa.cesaom.model.FieldSnapshot;
+import psa.cesa.cesaom.model.HeliostatChange;
+import psa.cesa.cesaom.model.HeliostatSnapshot;
+import psa.cesa.cesaom.model.Modbus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * It pushes the <code>Heliostat</code> changes decoded by the polls to Server-Sent Events subscribers.
+ * <p>
+ * Every subscriber has a bounded buffer. The poll threads only offer changes to it, the events are written by a
+ * shared sender pool. When a slow subscriber fills its buffer, the buffered changes are dropped and it gets the
+ * snapshot last published to the <code>SnapshotStore</code> as a "snapshot" event before any new "change" event.
+ * <p>
+ * A dropped change may be newer than that snapshot, as lines publish once every tick. So the last dropped change of
+ * every <code>Heliostat</code> is kept, and follows every snapshot until one has been sampled after it.
+ */
+public class ChangeStream implements HeliostatListener {
+    /**
+     * @param BUFFER_CAPACITY changes kept for a subscriber before it is dropped to a snapshot.
+     * @param STREAM_TIMEOUT milliseconds before the server closes a stream, 0 for never.
+     * @param snapshotStore where the snapshots sent to the subscribers are published.
+     * @param subscribers the open streams.
+     * @param senders threads which write the events.
+     */
+    public static final int BUFFER_CAPACITY = 256;
+    public static final long STREAM_TIMEOUT = 0;
+
+    private final SnapshotStore snapshotStore;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService senders = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ChangeStream sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ChangeStream(SnapshotStore snapshotStore) {
+        this.snapshotStore = snapshotStore;
+    }
+
+    /**
+     * Opens a stream which starts with a "snapshot" event.
+     *
+     * @param comLineId   only changes of this <code>ComLine</code>, null for every one.
+     * @param heliostatId only changes of this <code>Heliostat</code>, null for every one.
+     * @return the stream.
+     */
+    public SseEmitter subscribe(Integer comLineId, Integer heliostatId) {
+        return subscribe(new SseEmitter(STREAM_TIMEOUT), comLineId, heliostatId);
+    }
+
+    /**
+     * @param emitter     where the events are written.
+     * @param comLineId   only changes of this <code>ComLine</code>, null for every one.
+     * @param heliostatId only changes of this <code>Heliostat</code>, null for every one.
+     * @return the emitter.
+     */
+    SseEmitter subscribe(SseEmitter emitter, Integer comLineId, Integer heliostatId) {
+        Subscriber subscriber = new Subscriber(emitter, comLineId, heliostatId);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        schedule(subscriber);
+        return emitter;
+    }
+
+    /**
+     * @return open streams.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Offers the change to every subscriber which follows it, without blocking.
+     *
+     * @param change the new values of the <code>Heliostat</code>.
+     */
+    @Override
+    public void changed(HeliostatChange change) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.follows(change.getComLineId(), change.getHeliostat().getId())) {
+                if (!subscriber.queue.offer(change)) {
+                    for (HeliostatChange dropped = subscriber.queue.poll(); dropped != null; dropped = subscriber.queue.poll()) {
+                        subscriber.drop(dropped);
+                    }
+                    subscriber.drop(change);
+                    subscriber.resync.set(true);
+                }
+                schedule(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Closes every stream and stops the senders.
+     */
+    public void close() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+        senders.shutdownNow();
+    }
+
+    /**
+     * Hands the subscriber to a sender unless one is already writing its events.
+     *
+     * @param subscriber the stream with pending events.
+     */
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> send(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Writes the pending events of a subscriber, the snapshot first if it has to be resynchronized.
+     * <p>
+     * The flag is checked again after every snapshot, so a buffer overflow while it was being written is answered
+     * with a new snapshot before any of the changes buffered after it.
+     *
+     * @param subscriber the stream with pending events.
+     */
+    private void send(Subscriber subscriber) {
+        try {
+            while (true) {
+                if (subscriber.resync.getAndSet(false)) {
+                    FieldSnapshot field = snapshotStore.getField();
+                    subscriber.emitter.send(SseEmitter.event().name("snapshot").data(snapshot(subscriber, field)));
+                    for (HeliostatChange dropped : newer(subscriber, field)) {
+                        subscriber.emitter.send(SseEmitter.event().name("change").data(dropped));
+                    }
+                    continue;
+                }
+                HeliostatChange change = subscriber.queue.poll();
+                if (change == null)
+                    break;
+                subscriber.emitter.send(SseEmitter.event().name("change").data(change));
+            }
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return;
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        if (subscriber.resync.get() || !subscriber.queue.isEmpty())
+            schedule(subscriber);
+    }
+
+    /**
+     * @param subscriber the stream being resynchronized.
+     * @param field      the last published snapshot.
+     * @return every <code>Heliostat</code> the subscriber follows.
+     */
+    private static List<HeliostatChange> snapshot(Subscriber subscriber, FieldSnapshot field) {
+        List<HeliostatChange> changes = new ArrayList<>();
+        for (ComLineSnapshot line : field.getLines().values()) {
+            for (HeliostatSnapshot heliostat : line.getHeliostats().values()) {
+                if (subscriber.follows(line.getId(), heliostat.getId()))
+                    changes.add(new HeliostatChange(line.getId(), heliostat));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Forgets the dropped changes the snapshot already has.
+     *
+     * @param subscriber the stream being resynchronized.
+     * @param field      the snapshot just sent to it.
+     * @return the dropped changes sampled after the snapshot.
+     */
+    private static List<HeliostatChange> newer(Subscriber subscriber, FieldSnapshot field) {
+        List<HeliostatChange> changes = new ArrayList<>();
+        for (HeliostatChange change : subscriber.dropped.values()) {
+            ComLineSnapshot line = field.getLines().get(change.getComLineId());
+            HeliostatSnapshot published = line == null ? null : line.getHeliostats().get(change.getHeliostat().getId());
+            if (published == null || change.getHeliostat().getSampledAt() > published.getSampledAt()) {
+                changes.add(change);
+            } else {
+                subscriber.dropped.remove(subscriber.key(change), change);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * An open stream with its filter and buffer.
+     */
+    private static class Subscriber {
+        /**
+         * @param emitter where the events are written.
+         * @param comLineId followed <code>ComLine</code>, null for every one.
+         * @param heliostatId followed <code>Heliostat</code>, null for every one.
+         * @param queue changes waiting to be written.
+         * @param resync if the next event must be a snapshot, set when the stream opens or the buffer overflows.
+         * @param scheduled if a sender is writing its events.
+         * @param dropped the last dropped change of every <code>Heliostat</code> by <code>ComLine</code> id and
+         * modbus slave address, until a published snapshot is newer.
+         */
+        final SseEmitter emitter;
+        final Integer comLineId;
+        final Integer heliostatId;
+        final BlockingQueue<HeliostatChange> queue = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+        final AtomicBoolean resync = new AtomicBoolean(true);
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final Map<Integer, HeliostatChange> dropped = new ConcurrentHashMap<>();
+
+        Subscriber(SseEmitter emitter, Integer comLineId, Integer heliostatId) {
+            this.emitter = emitter;
+            this.comLineId = comLineId;
+            this.heliostatId = heliostatId;
+        }
+
+        void drop(HeliostatChange change) {
+            dropped.put(key(change), change);
+        }
+
+        int key(HeliostatChange change) {
+            return change.getComLineId() * Modbus.ADDRESS_COUNT + change.getHeliostat().getId();
+        }
+
+        boolean follows(int comLineId, int heliostatId) {
+            return (this.comLineId == null || this.comLineId == comLineId)
+                    && (this.heliostatId == null || this.heliostatId == heliostatId);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package psa.cesa.cesaom.controller;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Where the field configuration is read from, read from the cesaom.config application properties.
+ */
+@Component
+@ConfigurationProperties("cesaom.config")
+public class ConfigProperties {
+    /**
+     * @param path external fieldComLines.xml, watched and applied live when it changes. Empty for the one in the jar,
+     * which is never reloaded.
+     * @param watchInterval milliseconds between checks of the external file.
+     */
+    private String path = "";
+    private long watchInterval = 1000;
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public long getWatchInterval() {
+        return watchInterval;
+    }
+
+    public void setWatchInterval(long watchInterval) {
+        this.watchInterval = watchInterval;
+    }
+}
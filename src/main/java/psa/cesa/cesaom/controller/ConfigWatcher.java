@@ -0,0 +1,96 @@
+package psa.cesa.cesaom.controller;
+
+import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.XmlLinesReader;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * It checks an external fieldComLines.xml on its own thread and hands every new version to a listener.
+ * <p>
+ * The file is compared by modification time and size, which also works on network shares and with editors which
+ * replace the file instead of writing it. A version which cannot be read, for instance because it is still being
+ * written, is ignored until the file changes again, so the running configuration is kept.
+ */
+public class ConfigWatcher {
+    /**
+     * @param path the watched file.
+     * @param listener receives the <code>ComLine</code> objects of every new version.
+     * @param scheduler runs <method>check</method>.
+     * @param lastModified modification time of the last version seen.
+     * @param lastSize bytes of the last version seen.
+     */
+    private final Path path;
+    private final Consumer<Map<Integer, ComLine>> listener;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ConfigWatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long lastModified;
+    private long lastSize;
+
+    /**
+     * @param path     the file, already read once by the caller.
+     * @param listener receives the <code>ComLine</code> objects of every new version.
+     */
+    public ConfigWatcher(Path path, Consumer<Map<Integer, ComLine>> listener) {
+        this.path = path;
+        this.listener = listener;
+        changed();
+    }
+
+    /**
+     * @param interval milliseconds between checks.
+     */
+    public void start(long interval) {
+        scheduler.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Reads the file if it has changed since the last check and gives its <code>ComLine</code> objects to the listener.
+     */
+    void check() {
+        if (!changed())
+            return;
+        try {
+            listener.accept(XmlLinesReader.getXmlRows(path));
+        } catch (IOException | XMLStreamException e) {
+            System.out.println("Configuration " + path + " cannot be read, the running one is kept");
+            e.printStackTrace();
+        } catch (RuntimeException e) {
+            System.out.println("Configuration " + path + " cannot be applied");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return if the modification time or the size differ from the last call.
+     */
+    private boolean changed() {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long modified = attributes.lastModifiedTime().toMillis();
+            if (modified == lastModified && attributes.size() == lastSize)
+                return false;
+            lastModified = modified;
+            lastSize = attributes.size();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
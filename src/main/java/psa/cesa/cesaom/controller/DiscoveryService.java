@@ -0,0 +1,92 @@
+package psa.cesa.cesaom.controller;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import psa.cesa.cesaom.model.DiscoveryResult;
+import psa.cesa.cesaom.model.XmlLinesReader;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * It finds out which RTU objects answer on the bus of every <code>ComLine</code>, for commissioning and audits.
+ * <p>
+ * Every line probes its addresses one after another, because the bus is half-duplex, while all the lines probe at
+ * the same time. So the whole field takes as long as one line.
+ */
+public class DiscoveryService {
+    /**
+     * @param fieldControllers one <code>FieldController</code> for every <code>ComLine</code>.
+     */
+    private final Collection<FieldController> fieldControllers;
+
+    public DiscoveryService(Collection<FieldController> fieldControllers) {
+        this.fieldControllers = fieldControllers;
+    }
+
+    /**
+     * @param skipConfigured if the addresses of the configuration which answer their polls are not probed.
+     * @return completed with one <code>DiscoveryResult</code> for every <code>ComLine</code>, by id.
+     */
+    public CompletableFuture<List<DiscoveryResult>> discover(boolean skipConfigured) {
+        List<CompletableFuture<DiscoveryResult>> futures = new ArrayList<>();
+        for (FieldController fieldController : fieldControllers) {
+            futures.add(fieldController.discoverAsync(skipConfigured));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<DiscoveryResult> results = new ArrayList<>();
+            for (CompletableFuture<DiscoveryResult> future : futures) {
+                results.add(future.join());
+            }
+            results.sort(Comparator.comparingInt(DiscoveryResult::getComLineId));
+            return results;
+        });
+    }
+
+    /**
+     * It writes the responding and skipped addresses in the layout of fieldComLines.xml, so it can be compared with
+     * the configuration or replace it. A skipped address is answering its polls.
+     *
+     * @param results discovered <code>ComLine</code> objects.
+     * @return the xml document.
+     * @throws ParserConfigurationException
+     * @throws TransformerException
+     */
+    public static String toXml(List<DiscoveryResult> results) throws ParserConfigurationException, TransformerException {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element root = document.createElement("root");
+        document.appendChild(root);
+        for (DiscoveryResult result : results) {
+            Element comLine = document.createElement("comLine");
+            comLine.setAttribute("id", String.valueOf(result.getComLineId()));
+            if (result.getPortDir() != null)
+                comLine.setAttribute(XmlLinesReader.getPortAttribute(), result.getPortDir());
+            TreeSet<Integer> ids = new TreeSet<>(result.getResponding());
+            ids.addAll(result.getSkipped());
+            for (int id : ids) {
+                Element heliostat = document.createElement("heliostat");
+                heliostat.setAttribute("id", String.valueOf(id));
+                comLine.appendChild(heliostat);
+            }
+            root.appendChild(comLine);
+        }
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        StringWriter writer = new StringWriter();
+        transformer.transform(new DOMSource(document), new StreamResult(writer));
+        return writer.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package psa.cesa.cesaom.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * The encoded bytes of one snapshot version with their strong entity tag.
+ * <p>
+ * The same array is handed to every request of that version, so it must not be modified.
+ */
+public final class EncodedSnapshot {
+    /**
+     * @param snapshot the encoded object, to know if it is still the published one.
+     * @param bytes the encoded bytes.
+     * @param etag quoted entity tag, unique for every version, representation and service start.
+     * @param mediaType the representation of the bytes.
+     */
+    final Object snapshot;
+    private final byte[] bytes;
+    private final String etag;
+    private final MediaType mediaType;
+
+    EncodedSnapshot(Object snapshot, byte[] bytes, String etag, MediaType mediaType) {
+        this.snapshot = snapshot;
+        this.bytes = bytes;
+        this.etag = etag;
+        this.mediaType = mediaType;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * The representation depends on the Accept header, so caches are told to keep them apart.
+     *
+     * @return a 200 response with the bytes and the entity tag.
+     */
+    public ResponseEntity<byte[]> toResponse() {
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).contentType(mediaType).body(bytes);
+    }
+}
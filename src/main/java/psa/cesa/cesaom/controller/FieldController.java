@@ -1,34 +1,127 @@
 package psa.cesa.cesaom.controller;
 
+import psa.cesa.cesaom.model.BroadcastResult;
 import psa.cesa.cesaom.model.CRC;
 import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.ComLineSnapshot;
+import psa.cesa.cesaom.model.DiscoveryResult;
+import psa.cesa.cesaom.model.FieldState;
 import psa.cesa.cesaom.model.Heliostat;
+import psa.cesa.cesaom.model.HeliostatChange;
+import psa.cesa.cesaom.model.HeliostatSnapshot;
+import psa.cesa.cesaom.model.LatencyStats;
+import psa.cesa.cesaom.model.LinkState;
+import psa.cesa.cesaom.model.Modbus;
+import psa.cesa.cesaom.model.ModbusRequest;
+import psa.cesa.cesaom.model.ModbusResponse;
+import psa.cesa.cesaom.model.PortStatus;
+import psa.cesa.cesaom.model.Priority;
+import psa.cesa.cesaom.model.ReadRequest;
+import psa.cesa.cesaom.model.RegisterField;
+import psa.cesa.cesaom.model.ResponseStatus;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiFunction;
 
 /**
  * It polls and commands <code>Heliostat</code> objects within a <code>ComLine<code/>.
+ * <p>
+ * Every frame goes through the <code>LineTransactionEngine</code> of the <code>ComLine</code>.
  */
 public class FieldController {
     /**
-     * @param POLL_ARRAY Contents the bytes to send a poll request on any heliostat.
-     * Address and CRC bytes must be added by <method>pollOne</method> which calls <method>setPollerFrame</method>.
      * @param HOUR_AARRAY Contents the bytes to send a poll request on any heliostat.
      * Address and CRC bytes must be added by <method>getHour</method> which calls <method>setHourFrame</method>.
      * @param comLine Contents a <object>ComLine</object> from the xml file.
-     * @param serialController contains the methods to control the jSerialComm API.
+     * @param engine owns the serial port of the <code>ComLine</code> and serializes its frames.
+     * @param pollTransactions reusable routine poll transactions indexed by modbus slave address.
+     * @param probeTransactions reusable short timeout polls of quarantined RTU objects indexed by modbus slave address.
+     * @param pollProperties quarantine and probe settings.
+     * @param samples decoded polls by modbus slave address.
+     * @param snapshot the last <code>ComLineSnapshot</code> taken by <method>snapshot</method>.
+     * @param snapshotSamples <code>samples</code> values when <code>snapshot</code> was taken.
+     * @param version the version of the last snapshot, see <method>setVersion</method>.
+     * @param listeners told about the <code>Heliostat</code> objects changed by a poll.
+     * @param pushed the last values given to the <code>listeners</code> by modbus slave address.
+     * @param readRequests the merged requests of the <code>ReadPlan</code> of the <code>ComLine</code>.
+     * @param readTransactions reusable read plan transactions by request and modbus slave address.
+     * @param readValues decoded read plan values by request, field within the request and modbus slave address.
+     * @param readSampledAt epoch milliseconds of the last answered read by request and modbus slave address.
+     * @param BROADCAST_CHUNK most polls queued at once to confirm a broadcast.
      */
-    private static final byte[] POLL_ARRAY = {0x03, 0x00, 0x10, 0x00, 0x08};
     private static final byte[] HOUR_ARRAY = {0x03, 0x03, (byte) 0xE8, 0x00, 0x03};
+    static final int BROADCAST_CHUNK = 32;
 
 
     private ComLine comLine;
-    private SerialController serialController;
+    private LineTransactionEngine engine;
+    private final Transaction[] pollTransactions = new Transaction[Modbus.ADDRESS_COUNT];
+    private final Transaction[] probeTransactions = new Transaction[Modbus.ADDRESS_COUNT];
+    private final PollProperties pollProperties;
+    private final long[] samples = new long[Modbus.ADDRESS_COUNT];
+    private final long[] snapshotSamples = new long[Modbus.ADDRESS_COUNT];
+    private ComLineSnapshot snapshot;
+    private long version;
+    private final List<HeliostatListener> listeners = new CopyOnWriteArrayList<>();
+    private final HeliostatSnapshot[] pushed = new HeliostatSnapshot[Modbus.ADDRESS_COUNT];
+    private final List<ReadRequest> readRequests;
+    private final Transaction[][] readTransactions;
+    private final long[][][] readValues;
+    private final long[][] readSampledAt;
 
     public FieldController(ComLine comLine) {
+        this(comLine, new SerialController(comLine.getPortDir()));
+    }
+
+    /**
+     * @param comLine   a <object>ComLine</object> from the xml file.
+     * @param transport the link to the RTU objects of the <code>ComLine</code>.
+     */
+    public FieldController(ComLine comLine, SerialTransport transport) {
+        this(comLine, transport, new PollProperties());
+    }
+
+    /**
+     * @param comLine        a <object>ComLine</object> from the xml file.
+     * @param transport      the link to the RTU objects of the <code>ComLine</code>.
+     * @param pollProperties quarantine and probe settings.
+     */
+    public FieldController(ComLine comLine, SerialTransport transport, PollProperties pollProperties) {
         this.comLine = comLine;
-        openSerialController();
-//        pollAll();
+        this.pollProperties = pollProperties;
+        engine = new LineTransactionEngine("ComLine " + comLine.getId(), transport, pollProperties);
+        for (Heliostat heliostat : comLine.getHeliostats().values()) {
+            byte[] pollFrame = setPollerFrame(heliostat.getId());
+            ModbusRequest request = new ModbusRequest(pollFrame, Priority.ROUTINE_POLL);
+            pollTransactions[heliostat.getId()] = new Transaction(request, (frame, length, status) -> decodePoll(heliostat, frame, length, status));
+            ModbusRequest probe = new ModbusRequest(pollFrame, Priority.BACKGROUND, pollProperties.getProbeTimeout());
+            probeTransactions[heliostat.getId()] = new Transaction(probe, (frame, length, status) -> decodePoll(heliostat, frame, length, status));
+        }
+        readRequests = comLine.getReadPlan().getRequests();
+        readTransactions = new Transaction[readRequests.size()][Modbus.ADDRESS_COUNT];
+        readValues = new long[readRequests.size()][][];
+        readSampledAt = new long[readRequests.size()][Modbus.ADDRESS_COUNT];
+        for (int i = 0; i < readRequests.size(); i++) {
+            ReadRequest readRequest = readRequests.get(i);
+            readValues[i] = new long[readRequest.getFields().size()][Modbus.ADDRESS_COUNT];
+            int index = i;
+            for (Heliostat heliostat : comLine.getHeliostats().values()) {
+                ModbusRequest request = new ModbusRequest(readRequest.buildFrame(heliostat.getId()), Priority.BACKGROUND);
+                readTransactions[i][heliostat.getId()] = new Transaction(request, (frame, length, status) -> decodeRead(index, heliostat.getId(), frame, status));
+            }
+        }
+        engine.start();
     }
 
     public ComLine getComLine() {
@@ -36,11 +129,64 @@ public class FieldController {
     }
 
     /**
-     * Gets the <code>ComLine</code> portDir and opens it.
+     * @param listener told about every <code>Heliostat</code> changed by a poll from now on.
+     */
+    public void addListener(HeliostatListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops the <code>LineTransactionEngine</code> and closes the port.
+     */
+    public void close() {
+        engine.stop();
+    }
+
+    /**
+     * @return the health of the <code>ComLine</code> serial port.
+     */
+    public PortStatus getPortStatus() {
+        return engine.getPortStatus();
+    }
+
+    /**
+     * @return latency measurements of the <code>ComLine</code> for every <code>Priority</code>.
      */
-    private void openSerialController() {
-        serialController = new SerialController(comLine.getPortDir());
-        serialController.open();
+    public Map<Priority, LatencyStats> getLatencies() {
+        return engine.getLatencies();
+    }
+
+    /**
+     * Queues a frame in the <code>LineTransactionEngine</code> and checks the response when it arrives.
+     *
+     * @param heliostatId RTU slave address.
+     * @param frame       modbus frame.
+     * @param priority    decides which pending frame is sent first.
+     * @param check       method which interprets the received bytes.
+     * @return completed with the checked response, or the error description.
+     */
+    private CompletableFuture<String> transact(int heliostatId, byte[] frame, Priority priority, BiFunction<Heliostat, byte[], String> check) {
+        Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
+        return engine.submit(new ModbusRequest(frame, priority))
+                .thenApply(response -> check.apply(heliostat, response.getFrame()))
+                .exceptionally(Throwable::toString);
+    }
+
+    /**
+     * Waits for an asynchronous transaction.
+     *
+     * @param future the transaction.
+     * @return the transaction result.
+     */
+    private String await(CompletableFuture<String> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return e.toString();
+        } catch (ExecutionException e) {
+            return e.getCause().toString();
+        }
     }
 
     /**
@@ -49,79 +195,373 @@ public class FieldController {
      * @param heliostatId represents a modbus slave address.
      */
     public void poll(int heliostatId) {
-        try {
-            if (!serialController.isOpen())
-                openSerialController();
-            Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
-            serialController.send(setPollerFrame(heliostatId));
-            Thread.sleep(250);
-            checkPollResponse(heliostat);
-            comLine.getHeliostats().put(heliostatId, heliostat);
-        } catch (InterruptedException e) {
-            serialController.close();
-            e.printStackTrace();
-        } catch (RuntimeException e) {
-            e.printStackTrace();
+        await(pollAsync(heliostatId));
+    }
+
+    /**
+     * Queues a routine poll of the <code>Heliostat</code> unless the previous one is still pending.
+     * <p>
+     * It reuses the cached frame, the receive buffer and the transaction, so it does not allocate memory.
+     * <p>
+     * A quarantined <code>Heliostat</code> is probed instead, with the short probe timeout and the lowest priority,
+     * so it never delays the live ones.
+     *
+     * @param heliostatId represents a modbus slave address.
+     * @return if the poll has been queued.
+     */
+    public boolean schedulePoll(int heliostatId) {
+        Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
+        if (heliostat == null)
+            return false;
+        boolean quarantined = heliostat.getLinkState() == LinkState.QUARANTINED;
+        Transaction transaction = quarantined ? probeTransactions[heliostatId] : pollTransactions[heliostatId];
+        return transaction != null && engine.offer(transaction);
+    }
+
+    /**
+     * @return the merged requests of the <code>ReadPlan</code>, <method>scheduleRead</method> takes their index.
+     */
+    public List<ReadRequest> getReadRequests() {
+        return readRequests;
+    }
+
+    /**
+     * Queues a read plan request of the <code>Heliostat</code> unless the previous one is still pending. It has
+     * the lowest priority, so it only takes the line time the polls and commands leave.
+     * <p>
+     * A quarantined <code>Heliostat</code> is not read, it is only probed by <method>schedulePoll</method>.
+     *
+     * @param request     index within <method>getReadRequests</method>.
+     * @param heliostatId represents a modbus slave address.
+     * @return if the read has been queued.
+     */
+    public boolean scheduleRead(int request, int heliostatId) {
+        Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
+        if (heliostat == null || heliostat.getLinkState() == LinkState.QUARANTINED)
+            return false;
+        Transaction transaction = readTransactions[request][heliostatId];
+        return transaction != null && engine.offer(transaction);
+    }
+
+    /**
+     * Only the values of the requests which have been answered are given.
+     *
+     * @return the decoded read plan values by modbus slave address and field name.
+     */
+    public synchronized Map<Integer, Map<String, Long>> getReadValues() {
+        Map<Integer, Map<String, Long>> values = new TreeMap<>();
+        for (Heliostat heliostat : comLine.getHeliostats().values()) {
+            int id = heliostat.getId();
+            Map<String, Long> fields = new TreeMap<>();
+            for (int i = 0; i < readRequests.size(); i++) {
+                if (readSampledAt[i][id] == 0)
+                    continue;
+                List<RegisterField> requestFields = readRequests.get(i).getFields();
+                for (int j = 0; j < requestFields.size(); j++) {
+                    fields.put(requestFields.get(j).getName(), readValues[i][j][id]);
+                }
+            }
+            values.put(id, fields);
+        }
+        return values;
+    }
+
+    /**
+     * Decodes every field of a valid read plan response. Any other response leaves the last values, the link state
+     * only follows the polls.
+     *
+     * @param request     index within <code>readRequests</code>.
+     * @param heliostatId represents a modbus slave address.
+     * @param frame       bytes received from the RTU.
+     * @param status      outcome of checking the response.
+     */
+    private synchronized void decodeRead(int request, int heliostatId, byte[] frame, ResponseStatus status) {
+        if (status != ResponseStatus.OK)
+            return;
+        ReadRequest readRequest = readRequests.get(request);
+        List<RegisterField> fields = readRequest.getFields();
+        for (int i = 0; i < fields.size(); i++) {
+            readValues[request][i][heliostatId] = readRequest.decode(fields.get(i), frame);
         }
+        readSampledAt[request][heliostatId] = System.currentTimeMillis();
     }
 
     /**
+     * It does the same as <method>poll</method> without blocking the caller.
      *
+     * @return completed once the <code>Heliostat</code> has been updated.
      */
-    public void pollAll() {
+    public CompletableFuture<String> pollAsync(int heliostatId) {
+        return pollAsync(heliostatId, Priority.ROUTINE_POLL);
+    }
+
+    /**
+     * @param heliostatId represents a modbus slave address.
+     * @param priority    decides which pending frame is sent first.
+     * @return completed once the <code>Heliostat</code> has been updated.
+     */
+    private CompletableFuture<String> pollAsync(int heliostatId, Priority priority) {
+        Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
+        return engine.submit(new ModbusRequest(setPollerFrame(heliostatId), priority))
+                .thenApply(response -> checkPollResponse(heliostat, response))
+                .exceptionally(Throwable::toString);
+    }
+
+    /**
+     * It runs one of the single <code>Heliostat</code> operations by its REST method name.
+     *
+     * @param heliostatId RTU slave address.
+     * @param operation   "poll", "command", "focus", "newFocus", "setAzimuth", "setElevation", "getOffsetAz",
+     *                    "getOffsetEl", "setOffsetAz", "setOffsetEl", "getDate", "getHour", "setDate" or "setHour".
+     * @param args        operation parameters in the same order as the REST method ones.
+     * @return completed with the RTU answer, or the error description.
+     */
+    public CompletableFuture<String> executeAsync(int heliostatId, String operation, List<String> args) {
         try {
-            if (!serialController.isOpen())
-                openSerialController();
-            for (int i = 1; i < 256; i++) {
-                serialController.send(setPollerFrame(i));
-                Thread.sleep(250);
-                System.out.print(i+" response: ");
-                ByteBuffer byteBuffer = ByteBuffer.wrap(serialController.receive());
-                System.out.println(bufferToString(byteBuffer));
+            switch (operation) {
+                case "poll":
+                    return pollAsync(heliostatId, Priority.OPERATOR);
+                case "command":
+                    return commandAsync(heliostatId, args.get(0));
+                case "focus":
+                    return focusAsync(heliostatId, intArg(args, 0));
+                case "newFocus":
+                    return newFocusAsync(heliostatId, intArg(args, 0), intArg(args, 1), intArg(args, 2), intArg(args, 3));
+                case "setAzimuth":
+                    return setAzimuthAsync(heliostatId, intArg(args, 0));
+                case "setElevation":
+                    return setElevationAsync(heliostatId, intArg(args, 0));
+                case "getOffsetAz":
+                    return getOffsetAzAsync(heliostatId);
+                case "getOffsetEl":
+                    return getOffsetElAsync(heliostatId);
+                case "setOffsetAz":
+                    return setOffsetAzAsync(heliostatId, intArg(args, 0));
+                case "setOffsetEl":
+                    return setOffsetElAsync(heliostatId, intArg(args, 0));
+                case "getDate":
+                    return getDateAsync(heliostatId);
+                case "getHour":
+                    return getHourAsync(heliostatId);
+                case "setDate":
+                    return setDateAsync(heliostatId);
+                case "setHour":
+                    return setHourAsync(heliostatId);
+                default:
+                    throw new IllegalArgumentException("Unknown operation: " + operation);
             }
-            Thread.sleep(250);
-        } catch (InterruptedException e) {
-            serialController.close();
-            e.printStackTrace();
         } catch (RuntimeException e) {
-            e.printStackTrace();
+            return CompletableFuture.completedFuture(e.toString());
         }
     }
 
     /**
-     * Adds the <object>Heliostat</object> address, the poller bytes and CRC into an array.
+     * @param args  operation parameters.
+     * @param index parameter position.
+     * @return the parameter as an int.
+     */
+    private static int intArg(List<String> args, int index) {
+        return Integer.parseInt(args.get(index));
+    }
+
+    /**
+     * It probes every modbus slave address of the bus to find out which RTU objects answer.
+     * <p>
+     * The probes are polls with the short probe timeout and the lowest priority, queued one after another so the
+     * routine polls go on meanwhile. An address which does not answer is probed once more. An exception response
+     * also proves there is a RTU.
+     *
+     * @param skipConfigured if the addresses of the <code>ComLine</code> which are answering their polls are not
+     *                       probed. The configured ones which are not answering are probed anyway, so a RTU set to a
+     *                       wrong address can still be found.
+     * @return completed with the addresses which have answered, compared with the <code>ComLine</code> ones.
+     */
+    public CompletableFuture<DiscoveryResult> discoverAsync(boolean skipConfigured) {
+        DiscoveryResult result = new DiscoveryResult(comLine.getId(), comLine.getPortDir());
+        long start = System.currentTimeMillis();
+        CompletableFuture<Void> probes = CompletableFuture.completedFuture(null);
+        for (int address = 1; address <= Modbus.MAX_SLAVE_ADDRESS; address++) {
+            int id = address;
+            boolean configured = comLine.getHeliostats().containsKey(id);
+            if (configured && skipConfigured && isResponding(id)) {
+                result.getSkipped().add(id);
+                continue;
+            }
+            probes = probes.thenCompose(done -> probe(id, 1)).thenAccept(answered -> {
+                if (answered)
+                    result.getResponding().add(id);
+                if (answered && !configured)
+                    result.getAdded().add(id);
+                if (!answered && configured)
+                    result.getMissing().add(id);
+            });
+        }
+        return probes.thenApply(done -> {
+            result.setMillis(System.currentTimeMillis() - start);
+            return result;
+        });
+    }
+
+    /**
+     * @param heliostatId a configured modbus slave address.
+     * @return if it has been polled and has answered its last poll.
+     */
+    private synchronized boolean isResponding(int heliostatId) {
+        Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
+        return heliostat.getSampledAt() > 0 && heliostat.getFailures() == 0;
+    }
+
+    /**
+     * @param address modbus slave address.
+     * @param retries probes left after this one if it is not answered.
+     * @return completed with if any RTU has answered at the address.
+     */
+    private CompletableFuture<Boolean> probe(int address, int retries) {
+        ModbusRequest request = new ModbusRequest(setPollerFrame(address), Priority.BACKGROUND, pollProperties.getProbeTimeout());
+        return engine.submit(request)
+                .handle((response, e) -> response != null && (response.getStatus() == ResponseStatus.OK || response.getStatus() == ResponseStatus.EXCEPTION))
+                .thenCompose(answered -> answered || retries == 0 ? CompletableFuture.completedFuture(answered) : probe(address, retries - 1));
+    }
+
+    /**
+     * Gets the poller frame from the <code>ComLine</code> <code>FrameCache</code>.
      *
      * @param heliostatId represents the number or position of the comLine.
      * @return The poller frame for an specific <code>Heliostat</code>.
      */
-    private byte[] setPollerFrame(int heliostatId) {
-        ByteBuffer byteBuffer = ByteBuffer.allocate(8);
-        byteBuffer.put((byte) heliostatId);
-        byteBuffer.put(POLL_ARRAY);
-        byteBuffer.put(CRC.calculate(byteBuffer.array(), 6));
-        System.out.println(bufferToString(byteBuffer));
-        return byteBuffer.array();
+    byte[] setPollerFrame(int heliostatId) {
+        return comLine.getFrameCache().getPollFrame(heliostatId);
     }
 
     /**
      * Checks received bytes from the <code>SerialController</code> port.
      * <p>
-     * If there are any bytes, it uses <method>setHelioState</method> to update the <code>Heliostat</code> attributes.
+     * If the response is valid, it uses <method>decodePoll</method> to update the <code>Heliostat</code> attributes.
      * <p>
      * If there aren't any bytes, updates the <code>Heliostat</code> event to com failure.
      *
      * @param heliostat represents the RTU itself.
+     * @param response  bytes received from the RTU and their status.
+     * @return the received bytes, preceded by the status if it is not a valid response.
      */
-    private synchronized void checkPollResponse(Heliostat heliostat) {
-        if (serialController.getPort().bytesAvailable() < 1) {
-            System.out.println("no poll response");
+    private String checkPollResponse(Heliostat heliostat, ModbusResponse response) {
+        byte[] frame = response.getFrame();
+        decodePoll(heliostat, frame, frame.length, response.getStatus());
+        switch (response.getStatus()) {
+            case NO_RESPONSE:
+                return "No responde";
+            case OK:
+                return bufferToString(ByteBuffer.wrap(frame));
+            default:
+                return response.getStatus() + " " + bufferToString(ByteBuffer.wrap(frame));
+        }
+    }
+
+    /**
+     * Updates the <code>Heliostat</code> attributes from a valid poll response, or its event to com failure if there
+     * is none. Exception, corrupt, wrong slave and partial responses leave the last values untouched.
+     * <p>
+     * It also moves its link state, see <method>Heliostat.updateLink</method>. An exception response proves the RTU
+     * is alive. If the values have changed the <code>listeners</code> are told about them.
+     *
+     * @param heliostat represents the RTU itself.
+     * @param frame     bytes received from the RTU.
+     * @param length    bytes of the frame within the array.
+     * @param status    outcome of checking the response, see <method>ModbusDecoder.check</method>.
+     */
+    private synchronized void decodePoll(Heliostat heliostat, byte[] frame, int length, ResponseStatus status) {
+        heliostat.setSampledAt(System.currentTimeMillis());
+        samples[heliostat.getId()]++;
+        heliostat.updateLink(status == ResponseStatus.OK || status == ResponseStatus.EXCEPTION, pollProperties.getQuarantineAfter());
+        if (status == ResponseStatus.NO_RESPONSE) {
             heliostat.setEvent(0x10);
             heliostat.setState(1);
-        } else {
-            ByteBuffer byteBuffer = ByteBuffer.wrap(serialController.receive());
-            System.out.println(bufferToString(byteBuffer));
-            heliostat.setAttributes(byteBuffer);
+        } else if (status == ResponseStatus.OK) {
+            heliostat.setAttributes(frame, length);
         }
+        notifyListeners(heliostat);
+    }
+
+    /**
+     * Tells the <code>listeners</code> about the <code>Heliostat</code> if its values are not the last ones they got.
+     * It must be called holding the lock of <method>decodePoll</method>.
+     *
+     * @param heliostat represents the RTU itself.
+     */
+    private void notifyListeners(Heliostat heliostat) {
+        if (listeners.isEmpty())
+            return;
+        HeliostatSnapshot last = pushed[heliostat.getId()];
+        if (last == null || !last.sameValues(heliostat)) {
+            last = new HeliostatSnapshot(heliostat);
+            pushed[heliostat.getId()] = last;
+            HeliostatChange change = new HeliostatChange(comLine.getId(), last);
+            for (HeliostatListener listener : listeners) {
+                listener.changed(change);
+            }
+        }
+    }
+
+    /**
+     * @param heliostatId represents a modbus slave address.
+     * @return how many polls of the <code>Heliostat</code> have been decoded, answered or not.
+     */
+    public synchronized long getSamples(int heliostatId) {
+        return samples[heliostatId];
+    }
+
+    /**
+     * A <code>ComLine</code> started again by a configuration reload goes on from the versions of the one it replaces,
+     * so its entity tags never repeat the ones of an older snapshot.
+     *
+     * @param version the last version published for the <code>ComLine</code>, the next snapshot takes the following one.
+     */
+    public synchronized void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Takes an immutable copy of the <code>ComLine</code> values, holding the lock of <method>decodePoll</method> so
+     * no <code>Heliostat</code> is copied half updated.
+     * <p>
+     * Only the <code>Heliostat</code> objects polled since the previous snapshot are copied, the rest are shared.
+     * If none has been polled, the previous snapshot is returned without allocating anything, which is what most
+     * ticks do.
+     *
+     * @return a new snapshot with the next version, or the previous one if no poll has been decoded since.
+     */
+    public synchronized ComLineSnapshot snapshot() {
+        if (snapshot != null && !polledSinceSnapshot())
+            return snapshot;
+        Map<Integer, HeliostatSnapshot> heliostats = new TreeMap<>();
+        for (Heliostat heliostat : comLine.getHeliostats().values()) {
+            int id = heliostat.getId();
+            HeliostatSnapshot previous = snapshot == null ? null : snapshot.getHeliostats().get(id);
+            if (previous == null || samples[id] != snapshotSamples[id]) {
+                previous = new HeliostatSnapshot(heliostat);
+                snapshotSamples[id] = samples[id];
+            }
+            heliostats.put(id, previous);
+        }
+        snapshot = new ComLineSnapshot(comLine.getId(), comLine.getPortDir(), ++version, System.currentTimeMillis(), heliostats);
+        return snapshot;
+    }
+
+    /**
+     * It must be called holding the lock of <method>decodePoll</method>.
+     *
+     * @return if any <code>Heliostat</code> has been polled, added or removed since the last snapshot.
+     */
+    private boolean polledSinceSnapshot() {
+        FieldState fieldState = comLine.getFieldState();
+        if (fieldState.size() != snapshot.getHeliostats().size())
+            return true;
+        for (int i = 0; i < fieldState.size(); i++) {
+            int id = fieldState.id(i);
+            if (samples[id] != snapshotSamples[id])
+                return true;
+        }
+        return false;
     }
 
     /**
@@ -146,22 +586,119 @@ public class FieldController {
      * @return if the RTU has sent back any bytes frame as received bytes confirmation.
      */
     public String command(int heliostatId, String command) {
-        try {
-            if (!serialController.isOpen())
-                openSerialController();
+        return await(commandAsync(heliostatId, command));
+    }
+
+    /**
+     * It does the same as <method>command</method> without blocking the caller.
+     *
+     * @return completed with the RTU answer once the line has sent the frame.
+     */
+    public CompletableFuture<String> commandAsync(int heliostatId, String command) {
+        return transact(heliostatId, setCommandFrame(heliostatId, command), commandPriority(command), this::checkCommandResponse);
+    }
+
+    /**
+     * It sends a command to every <code>Heliostat</code> of the <code>ComLine</code> at once through the modbus
+     * broadcast address, then polls all of them to find out which ones have changed their state.
+     *
+     * @param command the ASCII value of the command, see <method>selectCommand</method>.
+     * @return completed with the <code>Heliostat</code> ids sorted by the poll pass outcome.
+     * @throws IllegalArgumentException if the command is unknown, before anything is sent.
+     */
+    public CompletableFuture<BroadcastResult> broadcastCommandAsync(String command) {
+        ModbusRequest request = new ModbusRequest(setCommandFrame(Modbus.BROADCAST_ADDRESS, command), commandPriority(command));
+        Map<Integer, Integer> states = new HashMap<>();
+        for (Heliostat heliostat : comLine.getHeliostats().values()) {
+            states.put(heliostat.getId(), heliostat.getState());
+        }
+        return engine.submit(request).thenCompose(response -> confirmBroadcast(command, states));
+    }
+
+    /**
+     * Polls every <code>Heliostat</code> after a broadcast and sorts each one by the outcome of its own poll.
+     *
+     * @param command the broadcast command.
+     * @param states  <code>Heliostat</code> states before the broadcast by id.
+     * @return completed once every <code>Heliostat</code> has been polled.
+     */
+    private CompletableFuture<BroadcastResult> confirmBroadcast(String command, Map<Integer, Integer> states) {
+        List<Integer> heliostatIds = new ArrayList<>(states.keySet());
+        Collections.sort(heliostatIds);
+        return confirmBroadcast(new BroadcastResult(comLine.getId(), command), states, heliostatIds, 0);
+    }
+
+    /**
+     * Queues the polls of the next chunk, no more than <code>BROADCAST_CHUNK</code> nor the free queue slots, and
+     * the following chunk once all of them have finished, so the routine polls of the line still find room.
+     *
+     * @param result       the outcome so far.
+     * @param states       <code>Heliostat</code> states before the broadcast by id.
+     * @param heliostatIds the <code>Heliostat</code> ids to poll.
+     * @param from         the first id of the chunk within <code>heliostatIds</code>.
+     * @return completed once every <code>Heliostat</code> from <code>from</code> on has been polled.
+     */
+    private CompletableFuture<BroadcastResult> confirmBroadcast(BroadcastResult result, Map<Integer, Integer> states,
+                                                                List<Integer> heliostatIds, int from) {
+        if (from == heliostatIds.size()) {
+            return CompletableFuture.completedFuture(result);
+        }
+        int to = Math.min(heliostatIds.size(), from + Math.max(1, Math.min(BROADCAST_CHUNK, engine.getFreeSlots())));
+        CompletableFuture<?>[] polls = new CompletableFuture<?>[to - from];
+        for (int i = from; i < to; i++) {
+            int heliostatId = heliostatIds.get(i);
+            polls[i - from] = engine.submit(new ModbusRequest(setPollerFrame(heliostatId), Priority.TARGETED_READ))
+                    .handle((response, error) -> {
+                        classifyBroadcast(result, heliostatId, states.get(heliostatId), response, error);
+                        return null;
+                    });
+        }
+        return CompletableFuture.allOf(polls).thenCompose(done -> confirmBroadcast(result, states, heliostatIds, to));
+    }
+
+    /**
+     * Decodes the poll which follows a broadcast and adds the <code>Heliostat</code> to the list of its outcome.
+     *
+     * @param result      the broadcast outcome.
+     * @param heliostatId RTU slave address.
+     * @param state       the <code>Heliostat</code> state before the broadcast.
+     * @param response    the poll response, or null if the poll has failed.
+     * @param error       why the poll has failed, or null.
+     */
+    private void classifyBroadcast(BroadcastResult result, int heliostatId, int state, ModbusResponse response, Throwable error) {
+        List<Integer> outcome;
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            outcome = cause instanceof RejectedExecutionException ? result.getRejected() : result.getFailed();
+        } else {
             Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
-            serialController.send(setCommandFrame(heliostatId, command));
-            Thread.sleep(250);
-            comLine.getHeliostats().put(heliostatId, heliostat);
-            return checkCommandResponse(heliostat);
-        } catch (InterruptedException e) {
-            serialController.close();
-            return e.toString();
-        } catch (RuntimeException e) {
-            return e.toString();
+            checkPollResponse(heliostat, response);
+            switch (response.getStatus()) {
+                case OK:
+                    outcome = heliostat.getState() != state ? result.getChanged() : result.getUnchanged();
+                    break;
+                case NO_RESPONSE:
+                    outcome = result.getUnanswered();
+                    break;
+                default:
+                    outcome = result.getFailed();
+            }
+        }
+        synchronized (result) {
+            outcome.add(heliostatId);
         }
     }
 
+    /**
+     * Emergency focus and dejection are sent before any other pending frame.
+     *
+     * @param command the ASCII value of the command.
+     * @return the command priority.
+     */
+    private static Priority commandPriority(String command) {
+        return ("q".equals(command) || "a".equals(command)) ? Priority.EMERGENCY : Priority.OPERATOR;
+    }
+
     /**
      * Adds the <code>Heliostat</code> address, the command bytes and CRC into an array.
      *
@@ -169,11 +706,11 @@ public class FieldController {
      * @param command     ASCII representation to switch between different commands.
      * @return modbus frame.
      */
-    private byte[] setCommandFrame(int heliostatId, String command) {
+    byte[] setCommandFrame(int heliostatId, String command) {
         ByteBuffer byteBuffer = ByteBuffer.allocate(11);
         byteBuffer.put((byte) heliostatId);
         byteBuffer.put(selectCommand(command));
-        byteBuffer.put(CRC.calculate(byteBuffer.array(), 9));
+        CRC.append(byteBuffer);
         System.out.println("command: " + bufferToString(byteBuffer));
         return byteBuffer.array();
     }
@@ -182,15 +719,19 @@ public class FieldController {
      * Checks if there are any received bytes from the <code>SerialController</code> port and if not updates the <code>Heliostat</code> event to com failure.
      *
      * @param heliostat
+     * @param response  bytes received from the RTU.
      * @return if the RTU has sent any bytes back.
      */
-    private String checkCommandResponse(Heliostat heliostat) {
-        if (serialController.getPort().bytesAvailable() < 1) {
-            heliostat.setEvent(0x10);
+    private String checkCommandResponse(Heliostat heliostat, byte[] response) {
+        if (response.length < 1) {
+            synchronized (this) {
+                heliostat.setEvent(0x10);
+                notifyListeners(heliostat);
+            }
             System.out.println("no response");
             return "No responde";
         } else {
-            ByteBuffer byteBuffer = ByteBuffer.wrap(serialController.receive());
+            ByteBuffer byteBuffer = ByteBuffer.wrap(response);
             System.out.println(bufferToString(byteBuffer));
             return bufferToString(byteBuffer);
         }
@@ -247,10 +788,20 @@ public class FieldController {
             case "s":
                 bytes[7] = 115;
                 break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + command);
         }
         return bytes;
     }
 
+    /**
+     * @param command the ASCII value of a command.
+     * @return if <method>selectCommand</method> knows it.
+     */
+    public static boolean isCommand(String command) {
+        return command != null && command.length() == 1 && "abdeilmnqs".contains(command);
+    }
+
     /**
      * It targets a <code>ComLine</code> and <code>Heliostat</code> to send a predefined focus.
      *
@@ -259,20 +810,16 @@ public class FieldController {
      * @return if the RTU has sent back any bytes frame as received bytes confirmation.
      */
     public String focus(int heliostatId, int focus) {
-        try {
-            if (!serialController.isOpen())
-                openSerialController();
-            Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
-            serialController.send(setFocusFrame(heliostatId, focus));
-            Thread.sleep(250);
-            comLine.getHeliostats().put(heliostatId, heliostat);
-            return checkCommandResponse(heliostat);
-        } catch (InterruptedException e) {
-            serialController.close();
-            return e.toString();
-        } catch (RuntimeException e) {
-            return e.toString();
-        }
+        return await(focusAsync(heliostatId, focus));
+    }
+
+    /**
+     * It does the same as <method>focus</method> without blocking the caller.
+     *
+     * @return completed with the RTU answer once the line has sent the frame.
+     */
+    public CompletableFuture<String> focusAsync(int heliostatId, int focus) {
+        return transact(heliostatId, setFocusFrame(heliostatId, focus), Priority.OPERATOR, this::checkCommandResponse);
     }
 
     /**
@@ -282,11 +829,11 @@ public class FieldController {
      * @param focus       the focus identifier.
      * @return modbus frame.
      */
-    private byte[] setFocusFrame(int heliostatId, int focus) {
+    byte[] setFocusFrame(int heliostatId, int focus) {
         ByteBuffer byteBuffer = ByteBuffer.allocate(13);
         byteBuffer.put((byte) heliostatId);
         byteBuffer.put(new byte[]{16, 0, 0, 0, 2, 4, 0, 102, 0, (byte) focus});
-        byteBuffer.put(CRC.calculate(byteBuffer.array(), 11));
+        CRC.append(byteBuffer);
         System.out.println("focus: " + bufferToString(byteBuffer));
         return byteBuffer.array();
     }
@@ -302,20 +849,16 @@ public class FieldController {
      * @return if the RTU has sent back any bytes frame as received bytes confirmation.
      */
     public String newFocus(int heliostatId, int focus, int x, int y, int z) {
-        try {
-            if (!serialController.isOpen())
-                openSerialController();
-            Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
-            serialController.send(setNewFocusFrame(heliostatId, focus, x, y, z));
-            Thread.sleep(250);
-            comLine.getHeliostats().put(heliostatId, heliostat);
-            return checkCommandResponse(heliostat);
-        } catch (InterruptedException e) {
-            serialController.close();
-            return e.toString();
-        } catch (RuntimeException e) {
-            return e.toString();
-        }
+        return await(newFocusAsync(heliostatId, focus, x, y, z));
+    }
+
+    /**
+     * It does the same as <method>newFocus</method> without blocking the caller.
+     *
+     * @return completed with the RTU answer once the line has sent the frame.
+     */
+    public CompletableFuture<String> newFocusAsync(int heliostatId, int focus, int x, int y, int z) {
+        return transact(heliostatId, setNewFocusFrame(heliostatId, focus, x, y, z), Priority.OPERATOR, this::checkCommandResponse);
     }
 
     /**
@@ -328,11 +871,12 @@ public class FieldController {
      * @param z           coordinate.
      * @return modbus frame.
      */
-    private byte[] setNewFocusFrame(int heliostatId, int focus, int x, int y, int z) {
+    byte[] setNewFocusFrame(int heliostatId, int focus, int x, int y, int z) {
         ByteBuffer byteBuffer = ByteBuffer.allocate(25);
         byteBuffer.put((byte) heliostatId);
         byteBuffer.put(new byte[]{16, 0, 0, 0, 8, 16, 0, 70, 0, (byte) focus, 0, 0}); //loooooooooooooooool
-        byteBuffer.put(CRC.calculate(byteBuffer.array(), 23));
+        byteBuffer.position(23);
+        CRC.append(byteBuffer);
         System.out.println("new focus: " + bufferToString(byteBuffer));
         return byteBuffer.array();
     }
@@ -345,20 +889,16 @@ public class FieldController {
      * @return if the RTU has sent back any bytes frame as received bytes confirmation.
      */
     public String setAzimuth(int heliostatId, int azimuth) {
-        try {
-            if (!serialController.isOpen())
-                openSerialController();
-            Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
-            serialController.send(setAzElFrame(heliostatId, azimuth));
-            Thread.sleep(250);
-            comLine.getHeliostats().put(heliostatId, heliostat);
-            return checkCommandResponse(heliostat);
-        } catch (InterruptedException e) {
-            serialController.close();
-            return e.toString();
-        } catch (RuntimeException e) {
-            return e.toString();
-        }
+        return await(setAzimuthAsync(heliostatId, azimuth));
+    }
+
+    /**
+     * It does the same as <method>setAzimuth</method> without blocking the caller.
+     *
+     * @return completed with the RTU answer once the line has sent the frame.
+     */
+    public CompletableFuture<String> setAzimuthAsync(int heliostatId, int azimuth) {
+        return transact(heliostatId, setAzElFrame(heliostatId, azimuth), Priority.OPERATOR, this::checkCommandResponse);
     }
 
     /**
@@ -372,7 +912,8 @@ public class FieldController {
         ByteBuffer byteBuffer = ByteBuffer.allocate(25);
         byteBuffer.put((byte) heliostatId);
         byteBuffer.put(new byte[]{16, 0, 0, 0, 8, 16, 0, 70, 0, (byte) azElValue, 0, 0}); //loooooooooooooooool
-        byteBuffer.put(CRC.calculate(byteBuffer.array(), 23));
+        byteBuffer.position(23);
+        CRC.append(byteBuffer);
         System.out.println("focus: " + bufferToString(byteBuffer));
         return byteBuffer.array();
     }
@@ -385,20 +926,16 @@ public class FieldController {
      * @return if the RTU has sent back any bytes frame as received bytes confirmation.
      */
     public String setElevation(int heliostatId, int elevation) {
-        try {
-            if (!serialController.isOpen())
-                openSerialController();
-            Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
-            serialController.send(setAzElFrame(heliostatId, elevation));
-            Thread.sleep(250);
-            comLine.getHeliostats().put(heliostatId, heliostat);
-            return checkCommandResponse(heliostat);
-        } catch (InterruptedException e) {
-            serialController.close();
-            return e.toString();
-        } catch (RuntimeException e) {
-            return e.toString();
-        }
+        return await(setElevationAsync(heliostatId, elevation));
+    }
+
+    /**
+     * It does the same as <method>setElevation</method> without blocking the caller.
+     *
+     * @return completed with the RTU answer once the line has sent the frame.
+     */
+    public CompletableFuture<String> setElevationAsync(int heliostatId, int elevation) {
+        return transact(heliostatId, setAzElFrame(heliostatId, elevation), Priority.OPERATOR, this::checkCommandResponse);
     }
 
 
@@ -409,20 +946,16 @@ public class FieldController {
      * @return if the RTU has sent back any bytes frame as received bytes confirmation.
      */
     public String getOffsetAz(int heliostatId) {
-        try {
-            if (!serialController.isOpen())
-                openSerialController();
-            Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
-            serialController.send(getOffsetAzElFrame(heliostatId));
-            Thread.sleep(250);
-            comLine.getHeliostats().put(heliostatId, heliostat);
-            return checkCommandResponse(heliostat);
-        } catch (InterruptedException e) {
-            serialController.close();
-            return e.toString();
-        } catch (RuntimeException e) {
-            return e.toString();
-        }
+        return await(getOffsetAzAsync(heliostatId));
+    }
+
+    /**
+     * It does the same as <method>getOffsetAz</method> without blocking the caller.
+     *
+     * @return completed with the RTU answer once the line has sent the frame.
+     */
+    public CompletableFuture<String> getOffsetAzAsync(int heliostatId) {
+        return transact(heliostatId, getOffsetAzElFrame(heliostatId), Priority.TARGETED_READ, this::checkCommandResponse);
     }
 
     /**
@@ -444,20 +977,16 @@ public class FieldController {
      * @return if the RTU has sent back any bytes frame as received bytes confirmation.
      */
     public String getOffsetEl(int heliostatId) {
-        try {
-            if (!serialController.isOpen())
-                openSerialController();
-            Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
-            serialController.send(getOffsetAzElFrame(heliostatId));
-            Thread.sleep(250);
-            comLine.getHeliostats().put(heliostatId, heliostat);
-            return checkCommandResponse(heliostat);
-        } catch (InterruptedException e) {
-            serialController.close();
-            return e.toString();
-        } catch (RuntimeException e) {
-            return e.toString();
-        }
+        return await(getOffsetElAsync(heliostatId));
+    }
+
+    /**
+     * It does the same as <method>getOffsetEl</method> without blocking the caller.
+     *
+     * @return completed with the RTU answer once the line has sent the frame.
+     */
+    public CompletableFuture<String> getOffsetElAsync(int heliostatId) {
+        return transact(heliostatId, getOffsetAzElFrame(heliostatId), Priority.TARGETED_READ, this::checkCommandResponse);
     }
 
     /**
@@ -468,20 +997,16 @@ public class FieldController {
      * @return if the RTU has sent back any bytes frame as received bytes confirmation.
      */
     public String setOffsetAz(int heliostatId, int offsetAz) {
-        try {
-            if (!serialController.isOpen())
-                openSerialController();
-            Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
-            serialController.send(setOffsetAzElFrame(heliostatId, offsetAz));
-            Thread.sleep(250);
-            comLine.getHeliostats().put(heliostatId, heliostat);
-            return checkCommandResponse(heliostat);
-        } catch (InterruptedException e) {
-            serialController.close();
-            return e.toString();
-        } catch (RuntimeException e) {
-            return e.toString();
-        }
+        return await(setOffsetAzAsync(heliostatId, offsetAz));
+    }
+
+    /**
+     * It does the same as <method>setOffsetAz</method> without blocking the caller.
+     *
+     * @return completed with the RTU answer once the line has sent the frame.
+     */
+    public CompletableFuture<String> setOffsetAzAsync(int heliostatId, int offsetAz) {
+        return transact(heliostatId, setOffsetAzElFrame(heliostatId, offsetAz), Priority.OPERATOR, this::checkCommandResponse);
     }
 
     /**
@@ -495,7 +1020,8 @@ public class FieldController {
         ByteBuffer byteBuffer = ByteBuffer.allocate(25);
         byteBuffer.put((byte) heliostatId);
         byteBuffer.put(new byte[]{16, 0, 0, 0, 8, 16, 0, 70, 0, (byte) offset, 0, 0}); //loooooooooooooooool
-        byteBuffer.put(CRC.calculate(byteBuffer.array(), 23));
+        byteBuffer.position(23);
+        CRC.append(byteBuffer);
         System.out.println("focus: " + bufferToString(byteBuffer));
         return byteBuffer.array();
     }
@@ -508,20 +1034,16 @@ public class FieldController {
      * @return if the RTU has sent back any bytes frame as received bytes confirmation.
      */
     public String setOffsetEl(int heliostatId, int offsetEl) {
-        try {
-            if (!serialController.isOpen())
-                openSerialController();
-            Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
-            serialController.send(setOffsetAzElFrame(heliostatId, offsetEl));
-            Thread.sleep(250);
-            comLine.getHeliostats().put(heliostatId, heliostat);
-            return checkCommandResponse(heliostat);
-        } catch (InterruptedException e) {
-            serialController.close();
-            return e.toString();
-        } catch (RuntimeException e) {
-            return e.toString();
-        }
+        return await(setOffsetElAsync(heliostatId, offsetEl));
+    }
+
+    /**
+     * It does the same as <method>setOffsetEl</method> without blocking the caller.
+     *
+     * @return completed with the RTU answer once the line has sent the frame.
+     */
+    public CompletableFuture<String> setOffsetElAsync(int heliostatId, int offsetEl) {
+        return transact(heliostatId, setOffsetAzElFrame(heliostatId, offsetEl), Priority.OPERATOR, this::checkCommandResponse);
     }
 
 
@@ -532,32 +1054,35 @@ public class FieldController {
      * @return if the RTU has sent back any hour bytes frame.
      */
     public String getDate(int heliostatId) {
-        try {
-            if (!serialController.isOpen())
-                openSerialController();
-            Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
-            serialController.send(setHourGetterFrame(heliostatId));
-            Thread.sleep(250);
-            comLine.getHeliostats().put(heliostatId, heliostat);
-            return returnDate(heliostat);
-        } catch (InterruptedException e) {
-            return e.getMessage();
-        }
+        return await(getDateAsync(heliostatId));
+    }
+
+    /**
+     * It does the same as <method>getDate</method> without blocking the caller.
+     *
+     * @return completed with the RTU answer once the line has sent the frame.
+     */
+    public CompletableFuture<String> getDateAsync(int heliostatId) {
+        return transact(heliostatId, setHourGetterFrame(heliostatId), Priority.TARGETED_READ, this::returnDate);
     }
 
     /**
      * Checks if there are any received bytes from the <code>SerialController</code> port and if not updates the <code>Heliostat</code> event to com failure.
      *
      * @param heliostat
+     * @param response  bytes received from the RTU.
      * @return if the RTU has sent any bytes back.
      */
-    private String returnDate(Heliostat heliostat) {
-        if (serialController.getPort().bytesAvailable() < 1) {
-            heliostat.setEvent(0x10);
+    private String returnDate(Heliostat heliostat, byte[] response) {
+        if (response.length < 1) {
+            synchronized (this) {
+                heliostat.setEvent(0x10);
+                notifyListeners(heliostat);
+            }
             System.out.println("command response");
             return "No responde";
         } else {
-            ByteBuffer byteBuffer = ByteBuffer.wrap(serialController.receive());
+            ByteBuffer byteBuffer = ByteBuffer.wrap(response);
             System.out.println("respuesta" + bufferToString(byteBuffer));
             return bufferToString(byteBuffer);
         }
@@ -570,16 +1095,16 @@ public class FieldController {
      * @return if the RTU has sent back any hour bytes frame.
      */
     public String getHour(int heliostatId) {
-        try {
-            if (!serialController.isOpen())
-                openSerialController();
-            Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
-            serialController.send(setHourGetterFrame(heliostatId));
-            Thread.sleep(250);
-            return checkCommandResponse(heliostat);
-        } catch (InterruptedException e) {
-            return e.getMessage();
-        }
+        return await(getHourAsync(heliostatId));
+    }
+
+    /**
+     * It does the same as <method>getHour</method> without blocking the caller.
+     *
+     * @return completed with the RTU answer once the line has sent the frame.
+     */
+    public CompletableFuture<String> getHourAsync(int heliostatId) {
+        return transact(heliostatId, setHourGetterFrame(heliostatId), Priority.TARGETED_READ, this::checkCommandResponse);
     }
 
     /**
@@ -592,36 +1117,34 @@ public class FieldController {
         ByteBuffer byteBuffer = ByteBuffer.allocate(8);
         byteBuffer.put((byte) heliostatId);
         byteBuffer.put(HOUR_ARRAY);
-        byteBuffer.put(CRC.calculate(byteBuffer.array(), 6));
+        CRC.append(byteBuffer);
         return byteBuffer.array();
     }
 
     public String setDate(int heliostatId) {
-        try {
-            if (!serialController.isOpen())
-                openSerialController();
-            Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
-            serialController.send(setHourGetterFrame(heliostatId));
-            Thread.sleep(500);
-            comLine.getHeliostats().put(heliostatId, heliostat);
-            return checkCommandResponse(heliostat);
-        } catch (InterruptedException e) {
-            return e.getMessage();
-        }
+        return await(setDateAsync(heliostatId));
+    }
+
+    /**
+     * It does the same as <method>setDate</method> without blocking the caller.
+     *
+     * @return completed with the RTU answer once the line has sent the frame.
+     */
+    public CompletableFuture<String> setDateAsync(int heliostatId) {
+        return transact(heliostatId, setHourGetterFrame(heliostatId), Priority.OPERATOR, this::checkCommandResponse);
     }
 
     public String setHour(int heliostatId) {
-        try {
-            if (!serialController.isOpen())
-                openSerialController();
-            Heliostat heliostat = comLine.getHeliostats().get(heliostatId);
-            serialController.send(setHourGetterFrame(heliostatId));
-            Thread.sleep(500);
-            comLine.getHeliostats().put(heliostatId, heliostat);
-            return checkCommandResponse(heliostat);
-        } catch (InterruptedException e) {
-            return e.getMessage();
-        }
+        return await(setHourAsync(heliostatId));
+    }
+
+    /**
+     * It does the same as <method>setHour</method> without blocking the caller.
+     *
+     * @return completed with the RTU answer once the line has sent the frame.
+     */
+    public CompletableFuture<String> setHourAsync(int heliostatId) {
+        return transact(heliostatId, setHourGetterFrame(heliostatId), Priority.OPERATOR, this::checkCommandResponse);
     }
 
     //01(id heliostato) 10(codigo modbus) 00(direccion) 00 00 04 08 00 48(comando) 00 0b(hora) 00 2c(min) 00 00(seg) 1a 76
@@ -0,0 +1,163 @@
+package psa.cesa.cesaom.controller;
+
+import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.Heliostat;
+import psa.cesa.cesaom.model.HeliostatChange;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * It keeps which <code>Heliostat</code> objects are in every state and every event, so the alarm and availability
+ * queries take time proportional to their result instead of scanning the whole field.
+ * <p>
+ * The indexes are moved one <code>Heliostat</code> at a time as the polls change its state or event. A reader may
+ * miss a <code>Heliostat</code> which is being moved from one value to another.
+ */
+public class HeliostatIndex implements HeliostatListener {
+    /**
+     * @param byState <code>Heliostat</code> ids by state and <code>ComLine</code> id.
+     * @param byEvent <code>Heliostat</code> ids by event and <code>ComLine</code> id.
+     * @param indexed the state and event every <code>Heliostat</code> is indexed under, by <method>key</method>.
+     */
+    private final Map<Integer, Map<Integer, Set<Integer>>> byState = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<Integer, Set<Integer>>> byEvent = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> indexed = new ConcurrentHashMap<>();
+
+    /**
+     * Indexes every <code>Heliostat</code> of the <code>ComLine</code> with its current values. It must be called
+     * before the <code>ComLine</code> is polled.
+     *
+     * @param comLine the line to index.
+     */
+    public void add(ComLine comLine) {
+        for (Heliostat heliostat : comLine.getHeliostats().values()) {
+            update(comLine.getId(), heliostat.getId(), heliostat.getState(), heliostat.getEvent());
+        }
+    }
+
+    /**
+     * Drops every <code>Heliostat</code> of a <code>ComLine</code>, which must not be polled any more.
+     *
+     * @param comLineId the identification of the <code>ComLine</code>.
+     */
+    public void remove(int comLineId) {
+        indexed.keySet().removeIf(key -> key >>> 8 == comLineId);
+        for (Map<Integer, Set<Integer>> lines : byState.values()) {
+            lines.remove(comLineId);
+        }
+        for (Map<Integer, Set<Integer>> lines : byEvent.values()) {
+            lines.remove(comLineId);
+        }
+    }
+
+    /**
+     * Moves the <code>Heliostat</code> if its state or event has changed.
+     *
+     * @param change the new values of the <code>Heliostat</code>.
+     */
+    @Override
+    public void changed(HeliostatChange change) {
+        update(change.getComLineId(), change.getHeliostat().getId(), change.getHeliostat().getState(), change.getHeliostat().getEvent());
+    }
+
+    /**
+     * The values of one <code>Heliostat</code> are only updated by the thread polling its <code>ComLine</code>.
+     *
+     * @param comLineId   the identification of the <code>ComLine</code>.
+     * @param heliostatId the modbus slave address.
+     * @param state       the new state.
+     * @param event       the new event.
+     */
+    void update(int comLineId, int heliostatId, int state, int event) {
+        int[] values = indexed.get(key(comLineId, heliostatId));
+        if (values == null) {
+            indexed.put(key(comLineId, heliostatId), new int[]{state, event});
+            bucket(byState, state, comLineId).add(heliostatId);
+            bucket(byEvent, event, comLineId).add(heliostatId);
+            return;
+        }
+        if (values[0] != state) {
+            bucket(byState, values[0], comLineId).remove(heliostatId);
+            bucket(byState, state, comLineId).add(heliostatId);
+            values[0] = state;
+        }
+        if (values[1] != event) {
+            bucket(byEvent, values[1], comLineId).remove(heliostatId);
+            bucket(byEvent, event, comLineId).add(heliostatId);
+            values[1] = event;
+        }
+    }
+
+    /**
+     * @param state     the <code>Heliostat</code> state.
+     * @param comLineId only this <code>ComLine</code>, null for every one.
+     * @return sorted <code>Heliostat</code> ids by <code>ComLine</code> id.
+     */
+    public Map<Integer, List<Integer>> getByState(int state, Integer comLineId) {
+        return find(byState, state, comLineId);
+    }
+
+    /**
+     * @param event     the <code>Heliostat</code> event, 0x10 for communications failure.
+     * @param comLineId only this <code>ComLine</code>, null for every one.
+     * @return sorted <code>Heliostat</code> ids by <code>ComLine</code> id.
+     */
+    public Map<Integer, List<Integer>> getByEvent(int event, Integer comLineId) {
+        return find(byEvent, event, comLineId);
+    }
+
+    /**
+     * @return <code>Heliostat</code> objects in every state of the field.
+     */
+    public Map<Integer, Integer> getStateCounts() {
+        return count(byState);
+    }
+
+    /**
+     * @return <code>Heliostat</code> objects with every event of the field.
+     */
+    public Map<Integer, Integer> getEventCounts() {
+        return count(byEvent);
+    }
+
+    private static int key(int comLineId, int heliostatId) {
+        return comLineId << 8 | heliostatId;
+    }
+
+    private static Set<Integer> bucket(Map<Integer, Map<Integer, Set<Integer>>> index, int value, int comLineId) {
+        return index.computeIfAbsent(value, v -> new ConcurrentHashMap<>())
+                .computeIfAbsent(comLineId, id -> ConcurrentHashMap.newKeySet());
+    }
+
+    private static Map<Integer, List<Integer>> find(Map<Integer, Map<Integer, Set<Integer>>> index, int value, Integer comLineId) {
+        Map<Integer, List<Integer>> found = new TreeMap<>();
+        Map<Integer, Set<Integer>> lines = index.getOrDefault(value, Collections.emptyMap());
+        for (Map.Entry<Integer, Set<Integer>> line : lines.entrySet()) {
+            if ((comLineId == null || comLineId.equals(line.getKey())) && !line.getValue().isEmpty()) {
+                List<Integer> ids = new ArrayList<>(line.getValue());
+                Collections.sort(ids);
+                found.put(line.getKey(), ids);
+            }
+        }
+        return found;
+    }
+
+    private static Map<Integer, Integer> count(Map<Integer, Map<Integer, Set<Integer>>> index) {
+        Map<Integer, Integer> counts = new TreeMap<>();
+        for (Map.Entry<Integer, Map<Integer, Set<Integer>>> value : index.entrySet()) {
+            int count = 0;
+            for (Set<Integer> ids : value.getValue().values()) {
+                count += ids.size();
+            }
+            if (count > 0)
+                counts.put(value.getKey(), count);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,14 @@
+package psa.cesa.cesaom.controller;
+
+import psa.cesa.cesaom.model.HeliostatChange;
+
+/**
+ * It is told about every <code>Heliostat</code> whose values have been changed by a poll, on the
+ * <code>LineTransactionEngine</code> thread, so it must not block.
+ */
+public interface HeliostatListener {
+    /**
+     * @param change the new values of the <code>Heliostat</code>.
+     */
+    void changed(HeliostatChange change);
+}
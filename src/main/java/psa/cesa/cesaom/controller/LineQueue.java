@@ -0,0 +1,165 @@
+package psa.cesa.cesaom.controller;
+
+import psa.cesa.cesaom.model.Priority;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pending <code>Transaction</code> objects of one <code>ComLine</code>, one FIFO for every <code>Priority</code>.
+ * <p>
+ * The most urgent transaction is taken first. Emergency transactions always go next, any other transaction which has
+ * waited longer than <code>AGING_NANOS</code> goes before the more urgent ones so routine polls are never starved.
+ */
+class LineQueue {
+    /**
+     * @param AGING_NANOS waiting time after which a transaction is taken regardless of its priority.
+     * @param capacity maximum pending non emergency transactions.
+     * @param queues one FIFO for every <code>Priority</code>.
+     * @param size pending non emergency transactions.
+     */
+    static final long AGING_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int capacity;
+    private final List<ArrayDeque<Transaction>> queues = new ArrayList<>();
+    private int size;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    LineQueue(int capacity) {
+        this.capacity = capacity;
+        for (int i = 0; i < Priority.values().length; i++) {
+            queues.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Queues a transaction. Emergency transactions are accepted even if the queue is full.
+     *
+     * @param transaction the request with its future.
+     * @return if it has been queued.
+     */
+    boolean offer(Transaction transaction) {
+        Priority priority = transaction.request.getPriority();
+        lock.lock();
+        try {
+            if (priority != Priority.EMERGENCY) {
+                if (size == capacity) {
+                    return false;
+                }
+                size++;
+            }
+            transaction.enqueuedNanos = System.nanoTime();
+            queues.get(priority.ordinal()).addLast(transaction);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return how many more non emergency transactions would be accepted.
+     */
+    int remaining() {
+        lock.lock();
+        try {
+            return capacity - size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until there is a pending transaction and takes the next one.
+     *
+     * @return the transaction to send.
+     * @throws InterruptedException
+     */
+    Transaction take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            Transaction transaction;
+            while ((transaction = next()) == null) {
+                notEmpty.await();
+            }
+            return transaction;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until there is a pending transaction or the time is up.
+     *
+     * @param nanos longest wait.
+     * @return the transaction to send, or null if there is none.
+     * @throws InterruptedException
+     */
+    Transaction poll(long nanos) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            Transaction transaction;
+            while ((transaction = next()) == null && nanos > 0) {
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return transaction;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the next transaction without waiting.
+     *
+     * @return the transaction to send, or null if there is none.
+     */
+    Transaction poll() {
+        lock.lock();
+        try {
+            return next();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Chooses the emergency head, the oldest head if it has aged, or else the most urgent head.
+     *
+     * @return the removed transaction, or null if every queue is empty.
+     */
+    private Transaction next() {
+        ArrayDeque<Transaction> selected = null;
+        ArrayDeque<Transaction> oldest = null;
+        for (ArrayDeque<Transaction> queue : queues) {
+            Transaction head = queue.peekFirst();
+            if (head == null) {
+                continue;
+            }
+            if (selected == null) {
+                selected = queue;
+                if (head.request.getPriority() == Priority.EMERGENCY) {
+                    break;
+                }
+            }
+            if (oldest == null || head.enqueuedNanos - oldest.peekFirst().enqueuedNanos < 0) {
+                oldest = queue;
+            }
+        }
+        if (selected == null) {
+            return null;
+        }
+        if (oldest != null && System.nanoTime() - oldest.peekFirst().enqueuedNanos > AGING_NANOS) {
+            selected = oldest;
+        }
+        Transaction transaction = selected.pollFirst();
+        if (transaction.request.getPriority() != Priority.EMERGENCY) {
+            size--;
+        }
+        return transaction;
+    }
+}
@@ -0,0 +1,95 @@
+package psa.cesa.cesaom.controller;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * It runs the poll task of every <code>ComLine</code> on one small shared pool instead of one <code>Timer</code>
+ * thread per line.
+ * <p>
+ * A task which throws does not stop its line: the failure is logged and counted, and the task runs again on the next
+ * tick. A <code>Timer</code> thread dies with the first exception and its line stops polling.
+ */
+public class LineSupervisor {
+    /**
+     * @param scheduler runs the poll tasks, its threads are shared by every line.
+     * @param lines the scheduled task of every <code>ComLine</code> by id.
+     * @param failures poll task runs which have thrown.
+     */
+    private final ScheduledExecutorService scheduler;
+    private final Map<Integer, ScheduledFuture<?>> lines = new ConcurrentHashMap<>();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * @param threads poll tasks which may run at the same time.
+     */
+    public LineSupervisor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        scheduler = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "LineSupervisor " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs the task of a line every <code>period</code> milliseconds from now, replacing the previous one.
+     *
+     * @param comLineId the identification of a <code>ComLine</code>.
+     * @param task      the poll task of the line.
+     * @param period    milliseconds between runs.
+     */
+    public void supervise(int comLineId, Runnable task, long period) {
+        ScheduledFuture<?> previous = lines.put(comLineId, scheduler.scheduleAtFixedRate(() -> runSupervised(comLineId, task), 0, period, TimeUnit.MILLISECONDS));
+        if (previous != null)
+            previous.cancel(false);
+    }
+
+    /**
+     * Stops running the task of a line.
+     *
+     * @param comLineId the identification of a <code>ComLine</code>.
+     */
+    public void cancel(int comLineId) {
+        ScheduledFuture<?> future = lines.remove(comLineId);
+        if (future != null)
+            future.cancel(false);
+    }
+
+    /**
+     * @return poll task runs which have thrown since the start.
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Stops every line task and the pool threads.
+     */
+    public void shutdown() {
+        lines.clear();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Runs the task, catching anything it throws so the executor keeps scheduling it.
+     *
+     * @param comLineId the identification of a <code>ComLine</code>.
+     * @param task      the poll task of the line.
+     */
+    private void runSupervised(int comLineId, Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            failures.incrementAndGet();
+            System.out.println("ComLine " + comLineId + " poll task failed, it is run again on the next tick");
+            t.printStackTrace();
+        }
+    }
+}
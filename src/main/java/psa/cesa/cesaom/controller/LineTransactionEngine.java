@@ -0,0 +1,268 @@
+package psa.cesa.cesaom.controller;
+
+import psa.cesa.cesaom.model.LatencyStats;
+import psa.cesa.cesaom.model.ModbusRequest;
+import psa.cesa.cesaom.model.ModbusResponse;
+import psa.cesa.cesaom.model.ModbusDecoder;
+import psa.cesa.cesaom.model.PortState;
+import psa.cesa.cesaom.model.PortStatus;
+import psa.cesa.cesaom.model.Priority;
+import psa.cesa.cesaom.model.ResponseStatus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * It owns the serial port of one <code>ComLine</code> and sends its <code>ModbusRequest</code> objects one at a time.
+ * <p>
+ * Polls and commands are queued from any thread, only the engine thread writes and reads the port, so two frames
+ * never interleave on the wire. The most urgent pending request is always sent next, see <code>LineQueue</code>.
+ * <p>
+ * The engine thread also supervises the port: it opens it when it starts, so the lines of the field open their
+ * ports at the same time and in the background, and opens it again when it fails, waiting
+ * <code>reconnectInterval</code> doubled for every failed open up to <code>maxReconnectInterval</code>. While the
+ * port is not open, requests are answered at once without a response.
+ */
+public class LineTransactionEngine implements Runnable {
+    /**
+     * @param QUEUE_CAPACITY maximum pending requests, one for every modbus address.
+     * @param MAX_RETRIES times a request is sent again at once after a partial or corrupt response.
+     * @param STOP_TIMEOUT milliseconds <method>stop</method> waits for the frame on the wire and the port to close.
+     * @param transport the link to the RTU objects.
+     * @param queue pending transactions.
+     * @param thread the only thread which uses <code>transport</code>.
+     * @param latencies time from being queued until the response for every <code>Priority</code>.
+     * @param reconnectInterval milliseconds before the first open again of a failed port.
+     * @param maxReconnectInterval longest milliseconds between opens of a failed port.
+     * @param portStatus the port health, replaced on every change.
+     * @param nextAttempt epoch milliseconds of the next open while the port is not open.
+     */
+    public static final int QUEUE_CAPACITY = 256;
+    public static final int MAX_RETRIES = 1;
+    public static final long STOP_TIMEOUT = 2000;
+
+    private final SerialTransport transport;
+    private final LineQueue queue = new LineQueue(QUEUE_CAPACITY);
+    private final Thread thread;
+    private volatile boolean running = true;
+    private final Map<Priority, LatencyStats> latencies = new EnumMap<>(Priority.class);
+    private final long reconnectInterval;
+    private final long maxReconnectInterval;
+    private volatile PortStatus portStatus = new PortStatus(PortState.CONNECTING, System.currentTimeMillis(), 0, 0, null);
+    private long nextAttempt;
+
+    public LineTransactionEngine(String name, SerialTransport transport) {
+        this(name, transport, new PollProperties());
+    }
+
+    /**
+     * The port is opened by the engine thread, see <method>start</method>.
+     *
+     * @param name           the engine thread name.
+     * @param transport      the link to the RTU objects.
+     * @param pollProperties reconnection backoff.
+     */
+    public LineTransactionEngine(String name, SerialTransport transport, PollProperties pollProperties) {
+        this.transport = transport;
+        this.reconnectInterval = pollProperties.getReconnectInterval();
+        this.maxReconnectInterval = pollProperties.getMaxReconnectInterval();
+        for (Priority priority : Priority.values()) {
+            latencies.put(priority, new LatencyStats());
+        }
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the engine thread, which opens the port.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops the engine thread and closes the port. Pending requests are cancelled.
+     * <p>
+     * It waits for the engine thread, so the same port can be opened again as soon as it returns.
+     */
+    public void stop() {
+        running = false;
+        thread.interrupt();
+        for (Transaction transaction = queue.poll(); transaction != null; transaction = queue.poll()) {
+            transaction.pending = false;
+            if (transaction.future != null)
+                transaction.future.cancel(false);
+        }
+        if (thread.isAlive() && thread != Thread.currentThread()) {
+            try {
+                thread.join(STOP_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Queues a request for the engine thread.
+     *
+     * @param request modbus frame to send.
+     * @return completed with the RTU response once the frame has been sent and answered or timed out.
+     */
+    public CompletableFuture<ModbusResponse> submit(ModbusRequest request) {
+        Transaction transaction = new Transaction(request);
+        if (!running || !queue.offer(transaction)) {
+            transaction.future.completeExceptionally(new RejectedExecutionException(thread.getName() + " queue is full"));
+        }
+        return transaction.future;
+    }
+
+    /**
+     * Queues a reusable transaction unless it is still pending.
+     *
+     * @param transaction a transaction with a <code>ResponseHandler</code>.
+     * @return if it has been queued.
+     */
+    boolean offer(Transaction transaction) {
+        if (transaction.pending)
+            return false;
+        transaction.pending = true;
+        if (!running || !queue.offer(transaction)) {
+            transaction.pending = false;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return how many more non emergency requests <method>submit</method> would queue now.
+     */
+    public int getFreeSlots() {
+        return queue.remaining();
+    }
+
+    /**
+     * @return latency measurements for every <code>Priority</code>.
+     */
+    public Map<Priority, LatencyStats> getLatencies() {
+        return Collections.unmodifiableMap(latencies);
+    }
+
+    /**
+     * @return the port health.
+     */
+    public PortStatus getPortStatus() {
+        return portStatus;
+    }
+
+    /**
+     * Takes the pending transactions one by one and sends them through the port, opening it whenever it is not
+     * open and the backoff has passed.
+     */
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                Transaction transaction;
+                if (transport.isOpen()) {
+                    transaction = queue.take();
+                } else {
+                    transaction = queue.poll(TimeUnit.MILLISECONDS.toNanos(nextAttempt - System.currentTimeMillis()));
+                }
+                if (!transport.isOpen() && System.currentTimeMillis() >= nextAttempt)
+                    connect();
+                if (transaction == null)
+                    continue;
+                if (transport.isOpen()) {
+                    execute(transaction);
+                } else {
+                    skip(transaction);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        transport.close();
+        portStatus = new PortStatus(PortState.CLOSED, System.currentTimeMillis(), 0, 0, null);
+    }
+
+    /**
+     * Opens the port, or sets when to try again if it cannot be opened.
+     */
+    private void connect() {
+        PortStatus previous = portStatus;
+        String error = null;
+        boolean opened;
+        try {
+            opened = transport.open();
+        } catch (RuntimeException e) {
+            opened = false;
+            error = e.toString();
+        }
+        long now = System.currentTimeMillis();
+        if (opened) {
+            portStatus = new PortStatus(PortState.OPEN, now, 0, 0, null);
+            if (previous.getState() != PortState.CONNECTING)
+                System.out.println(thread.getName() + " port open again after " + previous.getAttempts() + " failed opens");
+            return;
+        }
+        int attempts = previous.getAttempts() + 1;
+        nextAttempt = now + Math.min(reconnectInterval << Math.min(attempts - 1, 30), maxReconnectInterval);
+        long since = previous.getState() == PortState.DISCONNECTED ? previous.getSince() : now;
+        portStatus = new PortStatus(PortState.DISCONNECTED, since, attempts, nextAttempt, error);
+        System.out.println(thread.getName() + " port cannot be opened, next open in " + (nextAttempt - now) + " ms");
+    }
+
+    /**
+     * Answers a request without a response while the port is not open, so no caller waits for the backoff. The
+     * handler is not called, the <code>Heliostat</code> objects keep their last values and sample times.
+     *
+     * @param transaction the request with its future or handler.
+     */
+    private void skip(Transaction transaction) {
+        latencies.get(transaction.request.getPriority()).record(System.nanoTime() - transaction.enqueuedNanos);
+        transaction.pending = false;
+        if (transaction.future != null)
+            transaction.future.complete(new ModbusResponse(transaction.request, new byte[0], ResponseStatus.NO_RESPONSE));
+    }
+
+    /**
+     * Sends a request, waits for its response, hands it to the transaction handler and completes its future.
+     * <p>
+     * A partial or corrupt response is not handed over, the request is sent again at once up to
+     * <code>MAX_RETRIES</code> times, so it does not wait for the next cycle.
+     * <p>
+     * Whatever it throws, errors included, fails the transaction only, so the engine thread keeps serving the line.
+     *
+     * @param transaction the request with its future or handler.
+     */
+    private void execute(Transaction transaction) {
+        try {
+            byte[] request = transaction.request.getFrame();
+            byte[] frame = transport.getReceiveBuffer();
+            int length = transport.transact(request, transaction.request.getResponseTimeout());
+            ResponseStatus status = ModbusDecoder.check(request, frame, length);
+            for (int retry = 0; retry < MAX_RETRIES && status.isRetryable(); retry++) {
+                length = transport.transact(request, transaction.request.getResponseTimeout());
+                status = ModbusDecoder.check(request, frame, length);
+            }
+            latencies.get(transaction.request.getPriority()).record(System.nanoTime() - transaction.enqueuedNanos);
+            if (transaction.handler != null)
+                transaction.handler.handle(frame, length, status);
+            if (transaction.future != null)
+                transaction.future.complete(new ModbusResponse(transaction.request, Arrays.copyOf(frame, length), status));
+        } catch (RuntimeException | Error e) {
+            if (transaction.future != null)
+                transaction.future.completeExceptionally(e);
+            else
+                e.printStackTrace();
+        } finally {
+            transaction.pending = false;
+        }
+    }
+}
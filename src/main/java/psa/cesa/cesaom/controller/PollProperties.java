@@ -0,0 +1,162 @@
+package psa.cesa.cesaom.controller;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Poll refresh targets, read from the cesaom.poll application properties. Intervals are in milliseconds.
+ * <p>
+ * The RTU reports the last command as its state, so the parked states are the command ASCII values.
+ */
+@Component
+@ConfigurationProperties("cesaom.poll")
+public class PollProperties {
+    /**
+     * @param tick how often the <code>PollScheduler</code> looks for due heliostats.
+     * @param schedulerThreads <code>LineSupervisor</code> threads shared by the poll tasks of every line.
+     * @param movingInterval refresh of a heliostat whose position is not its set point or has just changed.
+     * @param faultInterval refresh of a heliostat with an event other than communications failure.
+     * @param trackingInterval refresh of any other heliostat.
+     * @param parkedInterval refresh of a heliostat in one of the <code>parkedStates</code>.
+     * @param parkedStates immobilized "i" and out of service "l" by default.
+     * @param stateIntervals refresh by state, it overrides any other target.
+     * @param quarantineAfter polls in a row without answer which quarantine a RTU.
+     * @param probeTimeout milliseconds a quarantined RTU is given to answer.
+     * @param probeInterval time between the first probes of a quarantined RTU, it doubles after every failed probe.
+     * @param maxProbeInterval longest time between probes.
+     * @param reconnectInterval time between the first opens of a port which has failed, it doubles after every failed open.
+     * @param maxReconnectInterval longest time between opens of a failed port.
+     */
+    private long tick = 100;
+    private int schedulerThreads = 2;
+    private long movingInterval = 250;
+    private long faultInterval = 500;
+    private long trackingInterval = 1000;
+    private long parkedInterval = 10000;
+    private List<Integer> parkedStates = new ArrayList<>(Arrays.asList((int) 'i', (int) 'l'));
+    private Map<Integer, Long> stateIntervals = new HashMap<>();
+    private int quarantineAfter = 3;
+    private int probeTimeout = 50;
+    private long probeInterval = 5000;
+    private long maxProbeInterval = 300000;
+    private long reconnectInterval = 1000;
+    private long maxReconnectInterval = 60000;
+
+    public long getTick() {
+        return tick;
+    }
+
+    public void setTick(long tick) {
+        this.tick = tick;
+    }
+
+    public int getSchedulerThreads() {
+        return schedulerThreads;
+    }
+
+    public void setSchedulerThreads(int schedulerThreads) {
+        this.schedulerThreads = schedulerThreads;
+    }
+
+    public long getMovingInterval() {
+        return movingInterval;
+    }
+
+    public void setMovingInterval(long movingInterval) {
+        this.movingInterval = movingInterval;
+    }
+
+    public long getFaultInterval() {
+        return faultInterval;
+    }
+
+    public void setFaultInterval(long faultInterval) {
+        this.faultInterval = faultInterval;
+    }
+
+    public long getTrackingInterval() {
+        return trackingInterval;
+    }
+
+    public void setTrackingInterval(long trackingInterval) {
+        this.trackingInterval = trackingInterval;
+    }
+
+    public long getParkedInterval() {
+        return parkedInterval;
+    }
+
+    public void setParkedInterval(long parkedInterval) {
+        this.parkedInterval = parkedInterval;
+    }
+
+    public List<Integer> getParkedStates() {
+        return parkedStates;
+    }
+
+    public void setParkedStates(List<Integer> parkedStates) {
+        this.parkedStates = parkedStates;
+    }
+
+    public Map<Integer, Long> getStateIntervals() {
+        return stateIntervals;
+    }
+
+    public void setStateIntervals(Map<Integer, Long> stateIntervals) {
+        this.stateIntervals = stateIntervals;
+    }
+
+    public int getQuarantineAfter() {
+        return quarantineAfter;
+    }
+
+    public void setQuarantineAfter(int quarantineAfter) {
+        this.quarantineAfter = quarantineAfter;
+    }
+
+    public int getProbeTimeout() {
+        return probeTimeout;
+    }
+
+    public void setProbeTimeout(int probeTimeout) {
+        this.probeTimeout = probeTimeout;
+    }
+
+    public long getProbeInterval() {
+        return probeInterval;
+    }
+
+    public void setProbeInterval(long probeInterval) {
+        this.probeInterval = probeInterval;
+    }
+
+    public long getMaxProbeInterval() {
+        return maxProbeInterval;
+    }
+
+    public void setMaxProbeInterval(long maxProbeInterval) {
+        this.maxProbeInterval = maxProbeInterval;
+    }
+
+    public long getReconnectInterval() {
+        return reconnectInterval;
+    }
+
+    public void setReconnectInterval(long reconnectInterval) {
+        this.reconnectInterval = reconnectInterval;
+    }
+
+    public long getMaxReconnectInterval() {
+        return maxReconnectInterval;
+    }
+
+    public void setMaxReconnectInterval(long maxReconnectInterval) {
+        this.maxReconnectInterval = maxReconnectInterval;
+    }
+}
@@ -0,0 +1,184 @@
+package psa.cesa.cesaom.controller;
+
+import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.FieldState;
+import psa.cesa.cesaom.model.Heliostat;
+import psa.cesa.cesaom.model.LinkState;
+import psa.cesa.cesaom.model.Modbus;
+import psa.cesa.cesaom.model.ScheduleStats;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * It keeps a poll deadline for every <code>Heliostat</code> of a <code>ComLine</code> and queues the due polls,
+ * the most overdue first.
+ * <p>
+ * After every poll the next deadline is set from the values it has decoded, see <method>intervalMillis</method>, so
+ * the serial line time goes to the heliostats whose values are changing. Until its answer is decoded, a queued poll
+ * keeps a deadline from the values before it.
+ * <p>
+ * The requests of the <code>ReadPlan</code> of the line have a fixed deadline for every <code>Heliostat</code>, moved
+ * by their refresh each time they are queued.
+ */
+public class PollScheduler {
+    /**
+     * @param COM_FAILURE event set when the RTU does not answer.
+     * @param fieldController queues the polls.
+     * @param properties refresh targets.
+     * @param deadlines next poll time by modbus slave address, from <method>System.nanoTime</method>.
+     * @param positionsAZ azimuth position when the last poll was queued.
+     * @param positionsEL elevation position when the last poll was queued.
+     * @param due heliostat ids due in the current tick, reused to avoid allocating.
+     * @param stats how well the line keeps up with the targets.
+     * @param readDeadlines next read time by read plan request and modbus slave address.
+     * @param queuedAt when the last poll was queued by modbus slave address.
+     * @param queuedSamples decoded polls of the <code>FieldController</code> when the last poll was queued.
+     * @param awaiting if the deadline has to be set again once the last queued poll is decoded.
+     */
+    private static final int COM_FAILURE = 0x10;
+
+    private final FieldController fieldController;
+    private final ComLine comLine;
+    private final PollProperties properties;
+    private final long[] deadlines = new long[Modbus.ADDRESS_COUNT];
+    private final int[] positionsAZ = new int[Modbus.ADDRESS_COUNT];
+    private final int[] positionsEL = new int[Modbus.ADDRESS_COUNT];
+    private final int[] due = new int[Modbus.ADDRESS_COUNT];
+    private final ScheduleStats stats = new ScheduleStats();
+    private final long[][] readDeadlines;
+    private final long[] queuedAt = new long[Modbus.ADDRESS_COUNT];
+    private final long[] queuedSamples = new long[Modbus.ADDRESS_COUNT];
+    private final boolean[] awaiting = new boolean[Modbus.ADDRESS_COUNT];
+
+    public PollScheduler(FieldController fieldController, PollProperties properties) {
+        this.fieldController = fieldController;
+        this.properties = properties;
+        comLine = fieldController.getComLine();
+        long now = System.nanoTime();
+        readDeadlines = new long[fieldController.getReadRequests().size()][Modbus.ADDRESS_COUNT];
+        for (Heliostat heliostat : comLine.getHeliostats().values()) {
+            deadlines[heliostat.getId()] = now;
+            for (long[] readDeadline : readDeadlines) {
+                readDeadline[heliostat.getId()] = now;
+            }
+        }
+    }
+
+    public ScheduleStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @param heliostatId modbus slave address.
+     * @return when the <code>Heliostat</code> will be polled, from <method>System.nanoTime</method>.
+     */
+    public long getDeadline(int heliostatId) {
+        return deadlines[heliostatId];
+    }
+
+    /**
+     * Queues the polls whose deadline has passed, the most overdue first, and sets their next deadline.
+     * <p>
+     * A due poll whose previous one is still pending keeps its deadline, so it is retried in the next tick.
+     * <p>
+     * First, the deadline of every poll decoded since the last tick is set again from its fresh values.
+     *
+     * @param now current <method>System.nanoTime</method>.
+     */
+    public void tick(long now) {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(properties.getTick());
+        double demand = 0;
+        boolean behind = false;
+        int count = 0;
+        for (Heliostat heliostat : comLine.getHeliostats().values()) {
+            int id = heliostat.getId();
+            if (awaiting[id] && fieldController.getSamples(id) != queuedSamples[id]) {
+                awaiting[id] = false;
+                deadlines[id] = queuedAt[id] + TimeUnit.MILLISECONDS.toNanos(intervalMillis(heliostat));
+            }
+            long interval = intervalMillis(heliostat);
+            demand += 1000.0 / interval;
+            long lateness = now - deadlines[id];
+            if (lateness >= 0) {
+                behind |= lateness > TimeUnit.MILLISECONDS.toNanos(interval);
+                int i = count++;
+                for (; i > 0 && deadlines[due[i - 1]] > deadlines[id]; i--) {
+                    due[i] = due[i - 1];
+                }
+                due[i] = id;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int id = due[i];
+            Heliostat heliostat = comLine.getHeliostats().get(id);
+            long samples = fieldController.getSamples(id);
+            if (fieldController.schedulePoll(id)) {
+                long lateness = now - deadlines[id];
+                stats.recordPoll(lateness, lateness > tickNanos);
+                deadlines[id] = now + TimeUnit.MILLISECONDS.toNanos(intervalMillis(heliostat));
+                positionsAZ[id] = heliostat.getPositionAZ();
+                positionsEL[id] = heliostat.getPositionEL();
+                queuedAt[id] = now;
+                queuedSamples[id] = samples;
+                awaiting[id] = true;
+            } else {
+                stats.recordSkip();
+            }
+        }
+        demand += scheduleReads(now);
+        if (stats.recordTick(demand, behind)) {
+            System.out.println("ComLine " + comLine.getId() + " cannot meet its poll targets, " + Math.round(demand) + " polls per second asked");
+        }
+    }
+
+    /**
+     * Queues the read plan requests whose deadline has passed and sets their next deadline.
+     *
+     * @param now current <method>System.nanoTime</method>.
+     * @return read plan requests per second asked.
+     */
+    private double scheduleReads(long now) {
+        double demand = 0;
+        FieldState fieldState = comLine.getFieldState();
+        for (int request = 0; request < readDeadlines.length; request++) {
+            long refresh = fieldController.getReadRequests().get(request).getRefresh();
+            demand += 1000.0 * fieldState.size() / refresh;
+            long[] readDeadline = readDeadlines[request];
+            for (int i = 0; i < fieldState.size(); i++) {
+                int id = fieldState.id(i);
+                if (now - readDeadline[id] >= 0 && fieldController.scheduleRead(request, id))
+                    readDeadline[id] = now + TimeUnit.MILLISECONDS.toNanos(refresh);
+            }
+        }
+        return demand;
+    }
+
+    /**
+     * Chooses the refresh target from the last decoded values: a target for the state if there is one, then moving,
+     * faulted, parked and tracking.
+     * <p>
+     * A quarantined <code>Heliostat</code> is only probed, every <code>probeInterval</code> doubled for every failed
+     * probe up to <code>maxProbeInterval</code>.
+     *
+     * @param heliostat the polled <code>Heliostat</code>.
+     * @return milliseconds until its next poll.
+     */
+    long intervalMillis(Heliostat heliostat) {
+        if (heliostat.getLinkState() == LinkState.QUARANTINED) {
+            int probes = Math.min(heliostat.getFailures() - properties.getQuarantineAfter(), 30);
+            return Math.min(properties.getProbeInterval() << Math.max(probes, 0), properties.getMaxProbeInterval());
+        }
+        Long stateInterval = properties.getStateIntervals().get(heliostat.getState());
+        if (stateInterval != null)
+            return stateInterval;
+        int id = heliostat.getId();
+        if (heliostat.getPositionAZ() != heliostat.getSetPointAZ() || heliostat.getPositionEL() != heliostat.getSetPointEL()
+                || heliostat.getPositionAZ() != positionsAZ[id] || heliostat.getPositionEL() != positionsEL[id])
+            return properties.getMovingInterval();
+        if (heliostat.getEvent() != 0 && heliostat.getEvent() != COM_FAILURE)
+            return properties.getFaultInterval();
+        if (properties.getParkedStates().contains(heliostat.getState()))
+            return properties.getParkedInterval();
+        return properties.getTrackingInterval();
+    }
+}
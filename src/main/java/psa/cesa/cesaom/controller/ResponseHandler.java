@@ -0,0 +1,15 @@
+package psa.cesa.cesaom.controller;
+
+import psa.cesa.cesaom.model.ResponseStatus;
+
+/**
+ * It interprets a response frame in place, on the <code>LineTransactionEngine</code> thread.
+ */
+interface ResponseHandler {
+    /**
+     * @param frame  receive buffer of the port, only valid during the call.
+     * @param length bytes of the response frame, 0 if the RTU has not answered.
+     * @param status  outcome of checking the response against the request.
+     */
+    void handle(byte[] frame, int length, ResponseStatus status);
+}
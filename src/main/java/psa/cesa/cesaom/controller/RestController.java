@@ -1,18 +1,59 @@
 package psa.cesa.cesaom.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
-import org.xml.sax.SAXException;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import psa.cesa.cesaom.model.BatchEntry;
+import psa.cesa.cesaom.model.BatchResult;
+import psa.cesa.cesaom.model.BinarySnapshot;
+import psa.cesa.cesaom.model.BroadcastResult;
 import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.ComLineSnapshot;
+import psa.cesa.cesaom.model.ConfigDiff;
+import psa.cesa.cesaom.model.DiscoveryResult;
+import psa.cesa.cesaom.model.FieldChanges;
+import psa.cesa.cesaom.model.FieldState;
+import psa.cesa.cesaom.model.Heliostat;
+import psa.cesa.cesaom.model.LatencyStats;
+import psa.cesa.cesaom.model.PortState;
+import psa.cesa.cesaom.model.PortStatus;
+import psa.cesa.cesaom.model.Priority;
+import psa.cesa.cesaom.model.ScheduleStats;
 import psa.cesa.cesaom.model.XmlLinesReader;
+import psa.cesa.cesaom.simulator.SimulatedTransport;
+import psa.cesa.cesaom.simulator.SimulatorProperties;
 
+import javax.annotation.PreDestroy;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.TransformerException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Timer;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 /**
  * It contains the REST server methods for giving HTTP access to clients.
@@ -21,15 +62,59 @@ import java.util.Timer;
 public class RestController {
 
     /**
+     * @param BATCH_TIMEOUT milliseconds given to a batch request to finish.
+     * @param REQUEST_TIMEOUT milliseconds given to a single <class>Heliostat</class> operation to finish.
+     * @param REQUEST_TIMEOUT_RESULT answer of an operation which has not finished in time.
+     * @param BROADCAST_TIMEOUT milliseconds given to a broadcast and its poll pass to finish.
+     * @param DISCOVERY_TIMEOUT milliseconds given to a discovery of every <class>ComLine</class> to finish.
+     * @param NDJSON_VALUE one JSON object per line.
      * @param comLineMap <class>ComLine</class> objects.
      * @param fieldControllers contains one <class>FieldController</class> for every <<class>ComLine</class>
      * @param timerPollControllers contains one <class>TimerTask</class> for every <code>ComLine</code>.
-     * @param timers contains one <class>Timer</class> for every <class>ComLine</class>.
+     * @param lineSupervisor runs the <class>TimerPollTask</class> objects and restarts them if they fail.
+     * @param simulatorProperties if enabled, the <class>ComLine</class> objects are simulated instead of opening ports.
+     * @param pollProperties refresh targets of the <class>TimerPollTask</class> objects.
+     * @param jsonSnapshotCache JSON snapshots for <method>getCache</method> and <method>getField</method>.
+     * @param binarySnapshotCache <class>BinarySnapshot</class> messages for the same methods.
+     * @param changeStream pushes the <class>Heliostat</class> changes to the stream subscribers.
+     * @param heliostatIndex the <class>Heliostat</class> objects in every state and event.
+     * @param discoveryService probes the buses of every <class>ComLine</class>.
+     * @param configWatcher applies the changes of the external configuration file, null if there is none.
+     * @param lastDiff the differences applied by the last configuration reload.
+     * @param snapshotStore the last values of every <class>ComLine</class>, published by the <class>TimerPollTask</class> objects.
+     * @param batchSenders threads which write the <method>batch</method> results, so a slow client never holds a
+     * <class>LineTransactionEngine</class>.
      */
+    private static final long BATCH_TIMEOUT = 600_000;
+    private static final long REQUEST_TIMEOUT = 10_000;
+    private static final String REQUEST_TIMEOUT_RESULT = "Timeout";
+    private static final long BROADCAST_TIMEOUT = 60_000;
+    private static final long DISCOVERY_TIMEOUT = 300_000;
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
     private Map<Integer, ComLine> comLineMap;
     private Map<Integer, FieldController> fieldControllers;
     private Map<Integer, TimerPollTask> timerPollTasks;
-    private Map<Integer, Timer> timers;
+    private LineSupervisor lineSupervisor;
+    private SimulatorProperties simulatorProperties;
+    private PollProperties pollProperties;
+    private SnapshotStore snapshotStore = new SnapshotStore();
+    private ChangeStream changeStream;
+    private HeliostatIndex heliostatIndex = new HeliostatIndex();
+    private SnapshotCache jsonSnapshotCache;
+    private SnapshotCache binarySnapshotCache;
+    private DiscoveryService discoveryService;
+    private ConfigWatcher configWatcher;
+    private ConfigDiff lastDiff = new ConfigDiff();
+    private final ExecutorService batchSenders = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Batch sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RestController(SimulatorProperties simulatorProperties, PollProperties pollProperties, ObjectMapper objectMapper) {
+        this(simulatorProperties, pollProperties, new ConfigProperties(), objectMapper);
+    }
 
     /**
      * Keeps all the <class>ComLine</class> objects from the xml file.
@@ -38,36 +123,204 @@ public class RestController {
      * <p>
      * Initializes a <class>TimerPollTask</class> <class>Map</class> so it can refresh the <class>ComLine</class> status.
      * <p>
-     * Initializes a <class>Timer</class> <class>Map</class> so it can schedule the <class>TimerPollTask</class> objects.
+     * Initializes a <class>LineSupervisor</class> so it can schedule the <class>TimerPollTask</class> objects.
      * <p>
      * Calls <method>setTimerPollTask</method>
+     * <p>
+     * If the configuration is an external file, a <class>ConfigWatcher</class> applies its changes live. It is
+     * created once every line has been started, so a reload never finds a line half started.
+     *
+     * @param simulatorProperties the in process field settings.
+     * @param pollProperties      the poll refresh targets.
+     * @param configProperties    where the field configuration is read from.
+     * @param objectMapper        serializes the snapshots.
      */
-    public RestController() {
+    @Autowired
+    public RestController(SimulatorProperties simulatorProperties, PollProperties pollProperties, ConfigProperties configProperties, ObjectMapper objectMapper) {
+        this.simulatorProperties = simulatorProperties;
+        this.pollProperties = pollProperties;
+        this.jsonSnapshotCache = SnapshotCache.json(snapshotStore, objectMapper);
+        this.binarySnapshotCache = SnapshotCache.binary(snapshotStore);
+        comLineMap = new ConcurrentHashMap<>();
+        fieldControllers = new ConcurrentHashMap<>();
+        timerPollTasks = new ConcurrentHashMap<>();
+        discoveryService = new DiscoveryService(fieldControllers.values());
+        changeStream = new ChangeStream(snapshotStore);
+        lineSupervisor = new LineSupervisor(pollProperties.getSchedulerThreads());
         try {
-            comLineMap = XmlLinesReader.getXmlRows(getClass().getClassLoader().getResourceAsStream("fieldComLines.xml"));
-            fieldControllers = new HashMap<>();
-            timers = new HashMap<>();
-            timerPollTasks = new HashMap<>();
+            Path path = null;
+            if (configProperties.getPath().isEmpty()) {
+                comLineMap.putAll(XmlLinesReader.getXmlRows(getClass().getClassLoader().getResourceAsStream("fieldComLines.xml")));
+            } else {
+                path = Paths.get(configProperties.getPath());
+                comLineMap.putAll(XmlLinesReader.getXmlRows(path));
+            }
             startTimers();
-        } catch (ParserConfigurationException e) {
-            e.printStackTrace();
+            if (path != null) {
+                configWatcher = new ConfigWatcher(path, this::reload);
+                configWatcher.start(configProperties.getWatchInterval());
+            }
         } catch (IOException e) {
             e.printStackTrace();
-        } catch (SAXException e) {
+        } catch (XMLStreamException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * It fills the <code>timerPollTasks</code> Map and <code>timers</code> with new objects and schedule the <class>TimerPollTask</class>.
+     * It fills the <code>timerPollTasks</code> Map with new objects and schedules them in the <code>lineSupervisor</code>.
      */
     private void startTimers() {
         for (ComLine comLine : comLineMap.values()) {
-            fieldControllers.put(comLine.getId(), new FieldController(comLine));
-            timerPollTasks.put(comLine.getId(), new TimerPollTask(fieldControllers.get(comLine.getId())));
-            timers.put(comLine.getId(), new Timer("Timer: " + comLine.getId()));
-            timers.get(comLine.getId()).schedule(timerPollTasks.get(comLine.getId()), 0, 1000);
+            startLine(comLine);
+        }
+    }
+
+    /**
+     * It creates the <class>FieldController</class> and the <class>TimerPollTask</class> of a <class>ComLine</class>
+     * and schedules it in the <code>lineSupervisor</code>.
+     * <p>
+     * Its snapshot versions go on after every version published so far, so a line started again by a reload never
+     * gives a client an entity tag it already has for other values.
+     *
+     * @param comLine the line to start.
+     */
+    private void startLine(ComLine comLine) {
+        if (simulatorProperties.isEnabled()) {
+            fieldControllers.put(comLine.getId(), new FieldController(comLine, new SimulatedTransport(comLine, simulatorProperties), pollProperties));
+        } else {
+            fieldControllers.put(comLine.getId(), new FieldController(comLine, new SerialController(comLine.getPortDir()), pollProperties));
+        }
+        long version = snapshotStore.getField().getVersion();
+        ComLineSnapshot published = snapshotStore.getLine(comLine.getId());
+        if (published != null)
+            version = Math.max(version, published.getVersion());
+        fieldControllers.get(comLine.getId()).setVersion(version);
+        heliostatIndex.add(comLine);
+        fieldControllers.get(comLine.getId()).addListener(heliostatIndex);
+        fieldControllers.get(comLine.getId()).addListener(changeStream);
+        timerPollTasks.put(comLine.getId(), new TimerPollTask(fieldControllers.get(comLine.getId()), pollProperties, snapshotStore));
+        lineSupervisor.supervise(comLine.getId(), timerPollTasks.get(comLine.getId()), pollProperties.getTick());
+    }
+
+    /**
+     * It stops polling a <class>ComLine</class>, closes its port and drops it from the indexes.
+     *
+     * @param comLineId the <class>ComLine</class> id.
+     */
+    private void stopLine(int comLineId) {
+        lineSupervisor.cancel(comLineId);
+        TimerPollTask timerPollTask = timerPollTasks.remove(comLineId);
+        if (timerPollTask != null)
+            timerPollTask.stop();
+        FieldController fieldController = fieldControllers.remove(comLineId);
+        if (fieldController != null)
+            fieldController.close();
+        heliostatIndex.remove(comLineId);
+        comLineMap.remove(comLineId);
+    }
+
+    /**
+     * It applies a new configuration without stopping the <class>ComLine</class> objects which have not changed.
+     * <p>
+     * Removed lines stop polling and leave the snapshots. Changed lines are stopped and started again with the
+     * values of the <class>Heliostat</class> objects they keep, or bring from another line. New lines are started.
+     *
+     * @param next the <class>ComLine</class> objects of the new configuration.
+     * @return the applied differences.
+     */
+    synchronized ConfigDiff reload(Map<Integer, ComLine> next) {
+        ConfigDiff diff = ConfigDiff.between(comLineMap, next);
+        if (diff.isEmpty())
+            return diff;
+        Map<Integer, ComLine> previous = new HashMap<>(comLineMap);
+        for (int comLineId : diff.getRemovedLines()) {
+            stopLine(comLineId);
+            snapshotStore.remove(comLineId);
+        }
+        for (int comLineId : diff.getChangedLines()) {
+            stopLine(comLineId);
+        }
+        List<Integer> started = new ArrayList<>(diff.getChangedLines());
+        started.addAll(diff.getAddedLines());
+        for (int comLineId : started) {
+            ComLine comLine = carryOver(next.get(comLineId), previous, diff.getMovedHeliostats().getOrDefault(comLineId, Collections.emptyMap()));
+            comLineMap.put(comLineId, comLine);
+            startLine(comLine);
         }
+        System.out.println("Configuration reloaded: lines added " + diff.getAddedLines() + ", removed " + diff.getRemovedLines() + ", changed " + diff.getChangedLines());
+        lastDiff = diff;
+        return diff;
+    }
+
+    /**
+     * @param comLine  a <class>ComLine</class> of the new configuration.
+     * @param previous the <class>ComLine</class> objects of the running configuration.
+     * @param moved    the <class>ComLine</class> id every moved <class>Heliostat</class> comes from.
+     * @return the line with the last values of the <class>Heliostat</class> objects which were already polled.
+     */
+    private static ComLine carryOver(ComLine comLine, Map<Integer, ComLine> previous, Map<Integer, Integer> moved) {
+        FieldState fieldState = new FieldState();
+        for (int heliostatId : comLine.getHeliostats().keySet()) {
+            ComLine from = previous.get(moved.getOrDefault(heliostatId, comLine.getId()));
+            Heliostat heliostat = from == null ? null : from.getHeliostats().get(heliostatId);
+            if (heliostat == null) {
+                fieldState.add(heliostatId);
+            } else {
+                fieldState.getHeliostats().put(heliostatId, heliostat);
+            }
+        }
+        ComLine started = new ComLine(comLine.getId(), comLine.getPortDir(), fieldState);
+        started.setReadPlan(comLine.getReadPlan());
+        return started;
+    }
+
+    /**
+     * Stops the <class>LineSupervisor</class>, closes the streams and every <class>FieldController</class> port.
+     */
+    @PreDestroy
+    public void stopTimers() {
+        if (configWatcher != null)
+            configWatcher.stop();
+        lineSupervisor.shutdown();
+        changeStream.close();
+        batchSenders.shutdownNow();
+        for (FieldController fieldController : fieldControllers.values()) {
+            fieldController.close();
+        }
+    }
+
+    /**
+     * The ports are opened in the background by every <class>LineTransactionEngine</class>, so the service answers
+     * before the field is reachable. A line which cannot open its port is retried with a backoff.
+     *
+     * @return the port health of every <class>ComLine</class>, 503 until every port is open.
+     */
+    @GetMapping(value = "/ready", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<Integer, PortStatus>> ready() {
+        Map<Integer, PortStatus> lines = new TreeMap<>();
+        boolean ready = true;
+        for (Map.Entry<Integer, FieldController> entry : fieldControllers.entrySet()) {
+            PortStatus status = entry.getValue().getPortStatus();
+            lines.put(entry.getKey(), status);
+            ready &= status.getState() == PortState.OPEN;
+        }
+        return ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(lines);
+    }
+
+    /**
+     * The values are read by the <class>PollScheduler</class> as the readPlan of the line declares, between the
+     * polls.
+     *
+     * @param comLineId the <class>ComLine</class> id.
+     * @return the last read plan values of every <class>Heliostat</class> by id and field name.
+     */
+    @GetMapping(value = "/getReadValues", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<Integer, Map<String, Long>>> getReadValues(@RequestParam int comLineId) {
+        FieldController fieldController = fieldControllers.get(comLineId);
+        if (fieldController == null)
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(fieldController.getReadValues());
     }
 
     /**
@@ -80,12 +333,158 @@ public class RestController {
     }
 
     /**
-     * @return <code>ComLine</code> object with its <code>Heliostat</code> objects values.
+     * The quarantined <code>Heliostat</code> objects are listed with the milliseconds since they stopped answering.
+     * <p>
+     * It never waits for the poll threads, the snapshot is replaced as a whole after every poll tick. Every snapshot
+     * version is serialized once and sent with its ETag, a request whose If-None-Match holds it gets a 304.
+     * <p>
+     * A client which prefers <code>BinarySnapshot.MEDIA_TYPE</code> in its Accept header gets the binary form.
+     *
+     * @return immutable copy of the <code>ComLine</code> object with its <code>Heliostat</code> objects values.
+     */
+    @GetMapping(value = "/getCache", produces = {MediaType.APPLICATION_JSON_VALUE, BinarySnapshot.MEDIA_TYPE})
+    public ResponseEntity<byte[]> getCache(@RequestParam int comLineId, WebRequest request) {
+        EncodedSnapshot snapshot = snapshotCache(request).getLine(comLineId);
+        if (snapshot == null)
+            return ResponseEntity.notFound().build();
+        if (request.checkNotModified(snapshot.getEtag()))
+            return null;
+        return snapshot.toResponse();
+    }
+
+    /**
+     * Every <code>ComLine</code> comes from the same publication, so the lines are consistent with each other.
+     * It is cached and tagged as <method>getCache</method>.
+     *
+     * @return the last snapshot of every <code>ComLine</code> with its <code>Heliostat</code> objects values.
+     */
+    @GetMapping(value = "/getField", produces = {MediaType.APPLICATION_JSON_VALUE, BinarySnapshot.MEDIA_TYPE})
+    public ResponseEntity<byte[]> getField(WebRequest request) {
+        EncodedSnapshot snapshot = snapshotCache(request).getField();
+        if (request.checkNotModified(snapshot.getEtag()))
+            return null;
+        return snapshot.toResponse();
+    }
+
+    /**
+     * JSON is the default, the binary form is only sent to the clients which rank it above JSON.
+     *
+     * @param request the Accept header of the client.
+     * @return the cache of the representation to send.
+     */
+    private SnapshotCache snapshotCache(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null)
+            return jsonSnapshotCache;
+        MediaType binary = MediaType.parseMediaType(BinarySnapshot.MEDIA_TYPE);
+        List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.equalsTypeAndSubtype(binary) && mediaType.getQualityValue() > 0)
+                return binarySnapshotCache;
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON))
+                return jsonSnapshotCache;
+        }
+        return jsonSnapshotCache;
+    }
+
+    /**
+     * Only the <code>Heliostat</code> objects whose values have changed are sent. If <code>resync</code> is set the
+     * client gets every <code>Heliostat</code> and must replace what it has.
+     *
+     * @param since the <code>version</code> of the last changes the client got, 0 for the first call.
+     * @return the <code>Heliostat</code> values changed after that version and the version to ask from next time.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public FieldChanges getChanges(@RequestParam(defaultValue = "0") long since) {
+        return snapshotStore.getChanges(since);
+    }
+
+    /**
+     * Server-Sent Events stream which starts with a "snapshot" event holding every followed <code>Heliostat</code>,
+     * then a "change" event as soon as a poll changes any of them. A client too slow to keep up gets a new
+     * "snapshot" event instead of the changes it has missed.
+     *
+     * @param comLineId   only this <code>ComLine</code>, every one if it is not given.
+     * @param heliostatId only this <code>Heliostat</code> id, every one if it is not given.
+     * @return the event stream.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) Integer comLineId, @RequestParam(required = false) Integer heliostatId) {
+        return changeStream.subscribe(comLineId, heliostatId);
+    }
+
+    /**
+     * @param state     the <code>Heliostat</code> state.
+     * @param comLineId only this <code>ComLine</code>, every one if it is not given.
+     * @return the ids of the <code>Heliostat</code> objects in that state by <code>ComLine</code> id.
+     */
+    @GetMapping(value = "/getByState", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public Map<Integer, List<Integer>> getByState(@RequestParam int state, @RequestParam(required = false) Integer comLineId) {
+        return heliostatIndex.getByState(state, comLineId);
+    }
+
+    /**
+     * Event 16 (0x10) is communications failure.
+     *
+     * @param event     the <code>Heliostat</code> event.
+     * @param comLineId only this <code>ComLine</code>, every one if it is not given.
+     * @return the ids of the <code>Heliostat</code> objects with that event by <code>ComLine</code> id.
+     */
+    @GetMapping(value = "/getByEvent", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public Map<Integer, List<Integer>> getByEvent(@RequestParam int event, @RequestParam(required = false) Integer comLineId) {
+        return heliostatIndex.getByEvent(event, comLineId);
+    }
+
+    /**
+     * @return how many <code>Heliostat</code> objects of the field are in every state.
      */
-    @GetMapping(value = "/getCache", produces = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(value = "/getStateCounts", produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseBody
-    public ComLine getCache(@RequestParam int comLineId) {
-        return timerPollTasks.get(comLineId).getComlineCache();
+    public Map<Integer, Integer> getStateCounts() {
+        return heliostatIndex.getStateCounts();
+    }
+
+    /**
+     * @return how many <code>Heliostat</code> objects of the field have every event.
+     */
+    @GetMapping(value = "/getEventCounts", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public Map<Integer, Integer> getEventCounts() {
+        return heliostatIndex.getEventCounts();
+    }
+
+    /**
+     * Emergency latency is the time from an emergency focus or dejection request until the RTU answer.
+     *
+     * @return for every <code>ComLine</code>, the time from queueing a request until its response by <code>Priority</code>.
+     */
+    @GetMapping(value = "/getLatency", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public Map<Integer, Map<Priority, LatencyStats>> getLatency() {
+        Map<Integer, Map<Priority, LatencyStats>> latencies = new HashMap<>();
+        for (FieldController fieldController : fieldControllers.values()) {
+            latencies.put(fieldController.getComLine().getId(), fieldController.getLatencies());
+        }
+        return latencies;
+    }
+
+    /**
+     * A <code>ComLine</code> is behind when some <code>Heliostat</code> is overdue by more than its refresh target.
+     *
+     * @return for every <code>ComLine</code>, how well the polls keep up with their refresh targets.
+     */
+    @GetMapping(value = "/getSchedule", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public Map<Integer, ScheduleStats> getSchedule() {
+        Map<Integer, ScheduleStats> schedules = new HashMap<>();
+        for (Map.Entry<Integer, TimerPollTask> entry : timerPollTasks.entrySet()) {
+            schedules.put(entry.getKey(), entry.getValue().getScheduleStats());
+        }
+        return schedules;
     }
 
     /**
@@ -94,20 +493,205 @@ public class RestController {
      * @param comLineId   the <class>ComLine</class> id.
      * @param heliostatId the <class>Heliostat</class> modbus id.
      * @param command     the ASCII value command.
-     * @return bytes frame if the RTU answers or a "No response" <class>String</class> if not.
+     * @return bytes frame if the RTU answers or a "No response" <class>String</class> if not, 400 for an unknown command.
      */
     @GetMapping(value = "/command", produces = MediaType.TEXT_PLAIN_VALUE)
-    @ResponseBody
-    public String command(@RequestParam int comLineId, @RequestParam int heliostatId, @RequestParam String command) {
-        timerPollTasks.get(comLineId).pause(true);
-        try {
-            Thread.sleep(250);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+    public DeferredResult<String> command(@RequestParam int comLineId, @RequestParam int heliostatId, @RequestParam String command) {
+        if (!FieldController.isCommand(command))
+            return unknownCommand(command, new DeferredResult<>());
+        return async(comLineId, fieldController -> fieldController.commandAsync(heliostatId, command));
+    }
+
+    /**
+     * It sends a command bytes frame to the modbus broadcast address of a <code>ComLine</code>, so every
+     * <code>Heliostat</code> executes it, and then polls them.
+     *
+     * @param comLineId the <class>ComLine</class> id.
+     * @param command   the ASCII value command.
+     * @return the <class>Heliostat</class> ids which have changed, kept or not answered their state, 400 for an
+     * unknown command.
+     */
+    @GetMapping(value = "/broadcastCommand", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<BroadcastResult> broadcastCommand(@RequestParam int comLineId, @RequestParam String command) {
+        DeferredResult<BroadcastResult> result = new DeferredResult<>(BROADCAST_TIMEOUT);
+        if (!FieldController.isCommand(command))
+            return unknownCommand(command, result);
+        FieldController fieldController = fieldControllers.get(comLineId);
+        if (fieldController == null) {
+            result.setErrorResult(ResponseEntity.notFound().build());
+            return result;
+        }
+        return defer(fieldController.broadcastCommandAsync(command), result);
+    }
+
+    /**
+     * It sends a command bytes frame to the modbus broadcast address of every <code>ComLine</code> at the same time,
+     * and then polls them.
+     *
+     * @param command the ASCII value command.
+     * @return one result for every <class>ComLine</class>, 400 for an unknown command.
+     */
+    @GetMapping(value = "/broadcastCommandAll", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<List<BroadcastResult>> broadcastCommandAll(@RequestParam String command) {
+        if (!FieldController.isCommand(command))
+            return unknownCommand(command, new DeferredResult<>());
+        List<CompletableFuture<BroadcastResult>> futures = new ArrayList<>();
+        for (FieldController fieldController : fieldControllers.values()) {
+            futures.add(fieldController.broadcastCommandAsync(command));
+        }
+        CompletableFuture<List<BroadcastResult>> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<BroadcastResult> results = new ArrayList<>();
+            for (CompletableFuture<BroadcastResult> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        });
+        return defer(all, new DeferredResult<>(BROADCAST_TIMEOUT));
+    }
+
+    /**
+     * It reads the external configuration file again and applies its changes, as its <class>ConfigWatcher</class>
+     * does when the file changes.
+     *
+     * @return the applied differences, empty if the configuration is in the jar or has not changed.
+     */
+    @PostMapping(value = "/reloadConfig", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ConfigDiff reloadConfig() {
+        if (configWatcher != null)
+            configWatcher.check();
+        return lastDiff;
+    }
+
+    /**
+     * It probes every modbus address of every <code>ComLine</code> at the same time, to find out which RTU objects
+     * answer and compare them with the configuration.
+     *
+     * @param skipConfigured if the configured addresses which answer their polls are not probed.
+     * @return one result for every <class>ComLine</class>.
+     */
+    @GetMapping(value = "/discover", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<List<DiscoveryResult>> discover(@RequestParam(defaultValue = "false") boolean skipConfigured) {
+        return defer(discoveryService.discover(skipConfigured), new DeferredResult<>(DISCOVERY_TIMEOUT));
+    }
+
+    /**
+     * It probes every modbus address of every <code>ComLine</code> as <method>discover</method>.
+     *
+     * @return the responding RTU objects as a fieldComLines.xml document.
+     */
+    @GetMapping(value = "/discoverXml", produces = MediaType.APPLICATION_XML_VALUE)
+    public DeferredResult<String> discoverXml() {
+        return defer(discoveryService.discover(false).thenApply(results -> {
+            try {
+                return DiscoveryService.toXml(results);
+            } catch (ParserConfigurationException | TransformerException e) {
+                throw new IllegalStateException(e);
+            }
+        }), new DeferredResult<>(DISCOVERY_TIMEOUT));
+    }
+
+    /**
+     * It runs a list of single <code>Heliostat</code> operations.
+     * <p>
+     * Entries are split by <code>ComLine</code>. Every line runs its share in order, sending the next frame as soon as
+     * the previous one is answered, while the other lines run theirs at the same time.
+     * <p>
+     * The results are written by the <code>batchSenders</code>, never by the thread of the line which completes them.
+     *
+     * @param entries operations to run.
+     * @return one <class>BatchResult</class> JSON line for every entry, written as soon as it completes.
+     */
+    @PostMapping(value = "/batch", produces = NDJSON_VALUE)
+    public ResponseBodyEmitter batch(@RequestBody List<BatchEntry> entries) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(BATCH_TIMEOUT);
+        Map<Integer, CompletableFuture<Void>> lines = new HashMap<>();
+        for (BatchEntry entry : entries) {
+            FieldController fieldController = fieldControllers.get(entry.getComLineId());
+            CompletableFuture<Void> line = lines.getOrDefault(entry.getComLineId(), CompletableFuture.completedFuture(null));
+            CompletableFuture<String> result;
+            if (fieldController == null) {
+                result = line.thenApply(done -> "Unknown comLine: " + entry.getComLineId());
+            } else {
+                result = line.thenCompose(done -> fieldController.executeAsync(entry.getHeliostatId(), entry.getOperation(), entry.getArgs()));
+            }
+            lines.put(entry.getComLineId(), result.thenAcceptAsync(s -> sendLine(emitter, new BatchResult(entry, s)), batchSenders));
+        }
+        CompletableFuture.allOf(lines.values().toArray(new CompletableFuture<?>[0])).whenComplete((done, e) -> {
+            if (e == null) {
+                emitter.complete();
+            } else {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * Runs a single <code>Heliostat</code> operation without holding the servlet thread while the
+     * <code>LineTransactionEngine</code> sends it.
+     *
+     * @param comLineId the <class>ComLine</class> id.
+     * @param operation starts the operation on the <class>FieldController</class> of the line.
+     * @return completed with the operation result, <code>REQUEST_TIMEOUT_RESULT</code> if it takes longer than
+     * <code>REQUEST_TIMEOUT</code>.
+     */
+    private DeferredResult<String> async(int comLineId, Function<FieldController, CompletableFuture<String>> operation) {
+        DeferredResult<String> result = new DeferredResult<>(REQUEST_TIMEOUT, REQUEST_TIMEOUT_RESULT);
+        FieldController fieldController = fieldControllers.get(comLineId);
+        if (fieldController == null) {
+            result.setResult("Unknown comLine: " + comLineId);
+            return result;
+        }
+        return defer(operation.apply(fieldController), result);
+    }
+
+    /**
+     * An unknown command would be sent as register value 0, so it is rejected before any frame is built.
+     *
+     * @param command the rejected ASCII value.
+     * @param result  the asynchronous response.
+     * @return the same <code>result</code>, completed with a 400.
+     */
+    private <T> DeferredResult<T> unknownCommand(String command, DeferredResult<T> result) {
+        result.setErrorResult(ResponseEntity.badRequest().body("Unknown command: " + command));
+        return result;
+    }
+
+    /**
+     * Completes a deferred result when the future completes.
+     * <p>
+     * If the deferred result times out first, the request still runs on the line, only its answer is lost.
+     *
+     * @param future the serial transaction.
+     * @param result the asynchronous response.
+     * @return the same <code>result</code>.
+     */
+    private <T> DeferredResult<T> defer(CompletableFuture<T> future, DeferredResult<T> result) {
+        future.whenComplete((value, e) -> {
+            if (e == null) {
+                result.setResult(value);
+            } else {
+                result.setErrorResult(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Writes an object as one JSON line.
+     *
+     * @param emitter the streamed response.
+     * @param result  object to write.
+     */
+    private void sendLine(ResponseBodyEmitter emitter, Object result) {
+        synchronized (emitter) {
+            try {
+                emitter.send(result, MediaType.APPLICATION_JSON);
+                emitter.send("\n", MediaType.TEXT_PLAIN);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
-        String s = fieldControllers.get(comLineId).command(heliostatId, command);
-        timerPollTasks.get(comLineId).pause(false);
-        return s;
     }
 
     /**
@@ -119,17 +703,8 @@ public class RestController {
      * @return bytes frame if the RTU answers or a "No response" <class>String</class> if not.
      */
     @GetMapping(value = "/focus", produces = MediaType.TEXT_PLAIN_VALUE)
-    @ResponseBody
-    public String setFocus(@RequestParam int comLineId, @RequestParam int heliostatId, @RequestParam int focus) {
-        timerPollTasks.get(comLineId).pause(true);
-        try {
-            Thread.sleep(250);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        String s = fieldControllers.get(comLineId).focus(heliostatId, focus);
-        timerPollTasks.get(comLineId).pause(false);
-        return s;
+    public DeferredResult<String> setFocus(@RequestParam int comLineId, @RequestParam int heliostatId, @RequestParam int focus) {
+        return async(comLineId, fieldController -> fieldController.focusAsync(heliostatId, focus));
     }
 
     /**
@@ -144,17 +719,8 @@ public class RestController {
      * @return bytes frame if the RTU answers or a "No response" <class>String</class> if not.
      */
     @GetMapping(value = "/newFocus", produces = MediaType.TEXT_PLAIN_VALUE)
-    @ResponseBody
-    public String newFocus(@RequestParam int comLineId, @RequestParam int heliostatId, @RequestParam int focus, @RequestParam int x, @RequestParam int y, @RequestParam int z) {
-        timerPollTasks.get(comLineId).pause(true);
-        try {
-            Thread.sleep(250);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        String s = fieldControllers.get(comLineId).newFocus(heliostatId, focus, x, y, z);
-        timerPollTasks.get(comLineId).pause(false);
-        return s;
+    public DeferredResult<String> newFocus(@RequestParam int comLineId, @RequestParam int heliostatId, @RequestParam int focus, @RequestParam int x, @RequestParam int y, @RequestParam int z) {
+        return async(comLineId, fieldController -> fieldController.newFocusAsync(heliostatId, focus, x, y, z));
     }
 
     /**
@@ -166,17 +732,8 @@ public class RestController {
      * @return bytes frame if the RTU answers or a "No response" <class>String</class> if not.
      */
     @GetMapping(value = "/setAzimuth", produces = MediaType.TEXT_PLAIN_VALUE)
-    @ResponseBody
-    public String setAzimuth(@RequestParam int comLineId, @RequestParam int heliostatId, @RequestParam int azimuth) {
-        timerPollTasks.get(comLineId).pause(true);
-        try {
-            Thread.sleep(250);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        String s = fieldControllers.get(comLineId).setAzimuth(heliostatId, azimuth);
-        timerPollTasks.get(comLineId).pause(false);
-        return s;
+    public DeferredResult<String> setAzimuth(@RequestParam int comLineId, @RequestParam int heliostatId, @RequestParam int azimuth) {
+        return async(comLineId, fieldController -> fieldController.setAzimuthAsync(heliostatId, azimuth));
     }
 
     /**
@@ -188,17 +745,8 @@ public class RestController {
      * @return bytes frame if the RTU answers or a "No response" <class>String</class> if not.
      */
     @GetMapping(value = "/setElevation", produces = MediaType.TEXT_PLAIN_VALUE)
-    @ResponseBody
-    public String setElevation(@RequestParam int comLineId, @RequestParam int heliostatId, @RequestParam int elevation) {
-        timerPollTasks.get(comLineId).pause(true);
-        try {
-            Thread.sleep(250);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        String s = fieldControllers.get(comLineId).setElevation(heliostatId, elevation);
-        timerPollTasks.get(comLineId).pause(false);
-        return s;
+    public DeferredResult<String> setElevation(@RequestParam int comLineId, @RequestParam int heliostatId, @RequestParam int elevation) {
+        return async(comLineId, fieldController -> fieldController.setElevationAsync(heliostatId, elevation));
     }
 
     /**
@@ -209,17 +757,8 @@ public class RestController {
      * @return bytes frame as the RTU response.
      */
     @GetMapping(value = "/getOffsetAz", produces = MediaType.TEXT_PLAIN_VALUE)
-    @ResponseBody
-    public String getOffsetAz(@RequestParam int comLineId, @RequestParam int heliostatId) {
-        timerPollTasks.get(comLineId).pause(true);
-        try {
-            Thread.sleep(250);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        String s = fieldControllers.get(comLineId).getOffsetAz(heliostatId);
-        timerPollTasks.get(comLineId).pause(false);
-        return s;
+    public DeferredResult<String> getOffsetAz(@RequestParam int comLineId, @RequestParam int heliostatId) {
+        return async(comLineId, fieldController -> fieldController.getOffsetAzAsync(heliostatId));
     }
 
     /**
@@ -230,17 +769,8 @@ public class RestController {
      * @return bytes frame as the RTU response.
      */
     @GetMapping(value = "/getOffsetEl", produces = MediaType.TEXT_PLAIN_VALUE)
-    @ResponseBody
-    public String getOffsetEl(@RequestParam int comLineId, @RequestParam int heliostatId) {
-        timerPollTasks.get(comLineId).pause(true);
-        try {
-            Thread.sleep(250);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        String s = fieldControllers.get(comLineId).getOffsetEl(heliostatId);
-        timerPollTasks.get(comLineId).pause(false);
-        return s;
+    public DeferredResult<String> getOffsetEl(@RequestParam int comLineId, @RequestParam int heliostatId) {
+        return async(comLineId, fieldController -> fieldController.getOffsetElAsync(heliostatId));
     }
 
     /**
@@ -252,17 +782,8 @@ public class RestController {
      * @return bytes frame if the RTU answers or a "No response" <class>String</class> if not.
      */
     @GetMapping(value = "/setOffsetAz", produces = MediaType.TEXT_PLAIN_VALUE)
-    @ResponseBody
-    public String setOffsetAz(@RequestParam int comLineId, @RequestParam int heliostatId, @RequestParam int offsetAz) {
-        timerPollTasks.get(comLineId).pause(true);
-        try {
-            Thread.sleep(250);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        String s = fieldControllers.get(comLineId).setOffsetAz(heliostatId, offsetAz);
-        timerPollTasks.get(comLineId).pause(false);
-        return s;
+    public DeferredResult<String> setOffsetAz(@RequestParam int comLineId, @RequestParam int heliostatId, @RequestParam int offsetAz) {
+        return async(comLineId, fieldController -> fieldController.setOffsetAzAsync(heliostatId, offsetAz));
     }
 
     /**
@@ -274,17 +795,8 @@ public class RestController {
      * @return bytes frame if the RTU answers or a "No response" <class>String</class> if not.
      */
     @GetMapping(value = "/setOffsetEl", produces = MediaType.TEXT_PLAIN_VALUE)
-    @ResponseBody
-    public String setOffsetEl(@RequestParam int comLineId, @RequestParam int heliostatId, @RequestParam int offsetEl) {
-        timerPollTasks.get(comLineId).pause(true);
-        try {
-            Thread.sleep(250);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        String s = fieldControllers.get(comLineId).setOffsetEl(heliostatId, offsetEl);
-        timerPollTasks.get(comLineId).pause(false);
-        return s;
+    public DeferredResult<String> setOffsetEl(@RequestParam int comLineId, @RequestParam int heliostatId, @RequestParam int offsetEl) {
+        return async(comLineId, fieldController -> fieldController.setOffsetElAsync(heliostatId, offsetEl));
     }
 
     /**
@@ -295,17 +807,8 @@ public class RestController {
      * @return bytes frame as the RTU response.
      */
     @GetMapping(value = "/getDate", produces = MediaType.TEXT_PLAIN_VALUE)
-    @ResponseBody
-    public String getDate(@RequestParam int comLineId, @RequestParam int heliostatId) {
-        timerPollTasks.get(comLineId).pause(true);
-        try {
-            Thread.sleep(250);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        String s = fieldControllers.get(comLineId).getDate(heliostatId);
-        timerPollTasks.get(comLineId).pause(false);
-        return s;
+    public DeferredResult<String> getDate(@RequestParam int comLineId, @RequestParam int heliostatId) {
+        return async(comLineId, fieldController -> fieldController.getDateAsync(heliostatId));
     }
 
     /**
@@ -316,17 +819,8 @@ public class RestController {
      * @return bytes frame as the RTU response.
      */
     @GetMapping(value = "/getHour", produces = MediaType.TEXT_PLAIN_VALUE)
-    @ResponseBody
-    public String getHour(@RequestParam int comLineId, @RequestParam int heliostatId) {
-        timerPollTasks.get(comLineId).pause(true);
-        try {
-            Thread.sleep(250);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        String s = fieldControllers.get(comLineId).getHour(heliostatId);
-        timerPollTasks.get(comLineId).pause(false);
-        return s;
+    public DeferredResult<String> getHour(@RequestParam int comLineId, @RequestParam int heliostatId) {
+        return async(comLineId, fieldController -> fieldController.getHourAsync(heliostatId));
     }
 
     /**
@@ -337,17 +831,8 @@ public class RestController {
      * @return bytes frame as the RTU response.
      */
     @GetMapping(value = "/setDate", produces = MediaType.TEXT_PLAIN_VALUE)
-    @ResponseBody
-    public String setDate(@RequestParam int comLineId, @RequestParam int heliostatId) {
-        timerPollTasks.get(comLineId).pause(true);
-        try {
-            Thread.sleep(250);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        String s = fieldControllers.get(comLineId).setDate(heliostatId);
-        timerPollTasks.get(comLineId).pause(false);
-        return s;
+    public DeferredResult<String> setDate(@RequestParam int comLineId, @RequestParam int heliostatId) {
+        return async(comLineId, fieldController -> fieldController.setDateAsync(heliostatId));
     }
 
     /**
@@ -358,16 +843,7 @@ public class RestController {
      * @return bytes frame as the RTU response.
      */
     @GetMapping(value = "/setHour", produces = MediaType.TEXT_PLAIN_VALUE)
-    @ResponseBody
-    public String setHour(@RequestParam int comLineId, @RequestParam int heliostatId) {
-        timerPollTasks.get(comLineId).pause(true);
-        try {
-            Thread.sleep(250);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        String s = fieldControllers.get(comLineId).setHour(heliostatId);
-        timerPollTasks.get(comLineId).pause(false);
-        return s;
+    public DeferredResult<String> setHour(@RequestParam int comLineId, @RequestParam int heliostatId) {
+        return async(comLineId, fieldController -> fieldController.setHourAsync(heliostatId));
     }
 }
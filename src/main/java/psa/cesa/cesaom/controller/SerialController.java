@@ -1,18 +1,33 @@
 package psa.cesa.cesaom.controller;
 
 import com.fazecast.jSerialComm.SerialPort;
+import psa.cesa.cesaom.model.Modbus;
 
 /**
  * Manages the JSerialComm API.
  * <p>
  * Its methods identify serial ports, so as send and receive bytes through them.
  */
-public class SerialController {
+public class SerialController implements SerialTransport {
 
     /**
+     * @param DEFAULT_RESPONSE_TIMEOUT milliseconds to wait for the first byte of a response.
+     * @param DEFAULT_TURNAROUND_DELAY milliseconds given to the RTU objects to process a broadcast frame.
+     * @param ADAPTER_LATENCY milliseconds a USB serial adapter may hold received bytes before handing them over, its
+     * latency timer is 16 ms by default.
      * @param port Allocates a <code>SerialPort</code> object corresponding to the cpu direction.
+     * @param responseTimeout milliseconds to wait for the first byte of a response.
+     * @param turnaroundDelay milliseconds given to the RTU objects to process a broadcast frame.
+     * @param receiveBuffer reused by every <method>receive</method> so polling does not allocate memory.
      */
+    public static final int DEFAULT_RESPONSE_TIMEOUT = 250;
+    public static final int DEFAULT_TURNAROUND_DELAY = 100;
+    public static final int ADAPTER_LATENCY = 20;
+
     private SerialPort port;
+    private int responseTimeout = DEFAULT_RESPONSE_TIMEOUT;
+    private int turnaroundDelay = DEFAULT_TURNAROUND_DELAY;
+    private final byte[] receiveBuffer = new byte[Modbus.MAX_FRAME_LENGTH];
 
     /**
      * @param portDir serial port computer address.
@@ -51,6 +66,7 @@ public class SerialController {
      * @return if has been opened truly.
      * @throws RuntimeException
      */
+    @Override
     public boolean open() throws RuntimeException {
         return port.openPort();
     }
@@ -60,26 +76,182 @@ public class SerialController {
      *
      * @return is truly open.
      */
+    @Override
     public boolean isOpen() {
         return port.isOpen();
     }
 
     /**
-     * It sends bytes through the port.
+     * It sends bytes through the port. If the port fails, for instance because the adapter has been unplugged, it is
+     * closed so the <code>LineTransactionEngine</code> opens it again.
      *
      * @param pollerFrame
+     * @return bytes written, -1 if the port has failed.
      */
-    public void send(byte[] pollerFrame) {
-        port.writeBytes(pollerFrame, pollerFrame.length);
+    public int send(byte[] pollerFrame) {
+        int written = port.writeBytes(pollerFrame, pollerFrame.length);
+        if (written < 0)
+            port.closePort();
+        return written;
     }
 
     /**
-     * It receive bytes through the port.
+     * It discards any late bytes, sends the frame and waits for its response.
+     * <p>
+     * Broadcast frames are not answered, it waits for the frame to be sent plus the turnaround delay instead.
+     *
+     * @param frame           modbus request frame.
+     * @param responseTimeout milliseconds to wait for the first byte, 0 for <code>responseTimeout</code>.
+     * @return bytes of the response frame written in <code>receiveBuffer</code>, 0 if the RTU has not answered.
      */
-    public byte[] receive() {
-        byte[] polledFrame = new byte[port.bytesAvailable()];
-        port.readBytes(polledFrame, port.bytesAvailable());
-        return polledFrame;
+    @Override
+    public int transact(byte[] frame, int responseTimeout) {
+        discardInput();
+        if (send(frame) < 0)
+            return 0;
+        if (Modbus.isBroadcast(frame)) {
+            waitTurnaround(frame.length);
+            return 0;
+        }
+        return receive(Modbus.expectedResponseLength(frame), responseTimeout > 0 ? responseTimeout : this.responseTimeout);
+    }
+
+    /**
+     * Keeps the line quiet while the RTU objects execute a broadcast frame.
+     *
+     * @param frameLength bytes of the broadcast frame.
+     */
+    private void waitTurnaround(int frameLength) {
+        long frameMillis = Modbus.charMicros(port.getBaudRate(), getBitsPerChar()) * frameLength / 1000;
+        try {
+            Thread.sleep(frameMillis + turnaroundDelay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * It receives one frame through the port.
+     * <p>
+     * It waits up to <code>responseTimeout</code> for the first byte. Then it reads until <code>expectedLength</code>
+     * bytes, or an exception response, have arrived or the time to send the frame plus <code>ADAPTER_LATENCY</code>
+     * has passed, so the gaps of a USB serial adapter between chunks do not split a frame. Only a response of
+     * unknown length ends when the line keeps silent for t3.5. A failed read closes the port as <method>send</method>
+     * does.
+     *
+     * @param expectedLength bytes of a complete response, <code>MAX_FRAME_LENGTH</code> if it is unknown.
+     * @return bytes of the response frame written in <code>receiveBuffer</code>.
+     */
+    public int receive(int expectedLength) {
+        return receive(expectedLength, responseTimeout);
+    }
+
+    /**
+     * It does the same as <method>receive</method> with its own response timeout.
+     *
+     * @param expectedLength  bytes of a complete response, <code>MAX_FRAME_LENGTH</code> if it is unknown.
+     * @param responseTimeout milliseconds to wait for the first byte.
+     * @return bytes of the response frame written in <code>receiveBuffer</code>.
+     */
+    public int receive(int expectedLength, int responseTimeout) {
+        byte[] polledFrame = receiveBuffer;
+        boolean knownLength = expectedLength < Modbus.MAX_FRAME_LENGTH;
+        expectedLength = Math.min(expectedLength, polledFrame.length);
+        int bitsPerChar = getBitsPerChar();
+        long frameMicros = Modbus.charMicros(port.getBaudRate(), bitsPerChar) * expectedLength;
+        long deadline = System.nanoTime() + (responseTimeout + ADAPTER_LATENCY) * 1_000_000L + frameMicros * 1000L;
+        port.setComPortTimeouts(SerialPort.TIMEOUT_READ_SEMI_BLOCKING, responseTimeout, 0);
+        int received = read(polledFrame, 0, expectedLength);
+        if (received <= 0)
+            return 0;
+        if (knownLength) {
+            port.setComPortTimeouts(SerialPort.TIMEOUT_READ_BLOCKING, (int) Math.max(1, (deadline - System.nanoTime()) / 1_000_000L), 0);
+        } else {
+            int silenceTimeout = (int) ((Modbus.silenceMicros(port.getBaudRate(), bitsPerChar) + 999) / 1000);
+            port.setComPortTimeouts(SerialPort.TIMEOUT_READ_SEMI_BLOCKING, silenceTimeout, 0);
+        }
+        while (true) {
+            if (received >= 2 && Modbus.isException(polledFrame[1])) {
+                expectedLength = Math.min(expectedLength, Modbus.EXCEPTION_LENGTH);
+                received = Math.min(received, expectedLength);
+            }
+            if (received >= expectedLength || System.nanoTime() - deadline >= 0)
+                break;
+            int wanted = knownLength && received < 2 ? 2 - received : expectedLength - received;
+            int read = read(polledFrame, received, wanted);
+            if (read <= 0)
+                break;
+            received += read;
+        }
+        return received;
+    }
+
+    /**
+     * @param frame  where the bytes are written.
+     * @param offset bytes already received.
+     * @param wanted bytes to read at most.
+     * @return bytes read, 0 if the timeout has expired, -1 if the port has failed and has been closed.
+     */
+    private int read(byte[] frame, int offset, int wanted) {
+        int read = port.readBytes(frame, wanted, offset);
+        if (read < 0)
+            port.closePort();
+        return read;
+    }
+
+    /**
+     * The response frame is only valid until the next <method>transact</method>.
+     *
+     * @return the buffer where <method>receive</method> writes the response frames.
+     */
+    @Override
+    public byte[] getReceiveBuffer() {
+        return receiveBuffer;
+    }
+
+    /**
+     * It drops bytes left in the input buffer by a late answer so they are not taken as the next response.
+     */
+    private void discardInput() {
+        int available;
+        while ((available = port.bytesAvailable()) > 0) {
+            if (port.readBytes(receiveBuffer, Math.min(available, receiveBuffer.length)) <= 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Bits sent on the line for every byte: start, data, parity and stop bits.
+     *
+     * @return the character length.
+     */
+    private int getBitsPerChar() {
+        int parityBits = (port.getParity() == SerialPort.NO_PARITY) ? 0 : 1;
+        int stopBits = (port.getNumStopBits() == SerialPort.ONE_STOP_BIT) ? 1 : 2;
+        return 1 + port.getNumDataBits() + parityBits + stopBits;
+    }
+
+    /**
+     * @param responseTimeout milliseconds to wait for the first byte of a response.
+     */
+    public void setResponseTimeout(int responseTimeout) {
+        this.responseTimeout = responseTimeout;
+    }
+
+    public int getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    /**
+     * @param turnaroundDelay milliseconds given to the RTU objects to process a broadcast frame.
+     */
+    public void setTurnaroundDelay(int turnaroundDelay) {
+        this.turnaroundDelay = turnaroundDelay;
+    }
+
+    public int getTurnaroundDelay() {
+        return turnaroundDelay;
     }
 
     /**
@@ -87,6 +259,7 @@ public class SerialController {
      *
      * @return if the port has been closed truly.
      */
+    @Override
     public boolean close() throws RuntimeException {
         return port.closePort();
     }
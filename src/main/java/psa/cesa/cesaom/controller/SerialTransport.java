@@ -0,0 +1,50 @@
+package psa.cesa.cesaom.controller;
+
+/**
+ * The link between a <code>LineTransactionEngine</code> and the RTU objects of its <code>ComLine</code>.
+ * <p>
+ * <code>SerialController</code> implements it over a jSerialComm port, <code>SimulatedTransport</code> in process.
+ */
+public interface SerialTransport {
+
+    /**
+     * @return if the link has been opened truly.
+     */
+    boolean open();
+
+    /**
+     * @return if the link is open.
+     */
+    boolean isOpen();
+
+    /**
+     * @return if the link has been closed truly.
+     */
+    boolean close();
+
+    /**
+     * It sends a modbus frame and waits for its response with the default response timeout.
+     *
+     * @param frame modbus request frame.
+     * @return bytes of the response frame written in <method>getReceiveBuffer</method>, 0 if there is no response.
+     */
+    default int transact(byte[] frame) {
+        return transact(frame, 0);
+    }
+
+    /**
+     * It sends a modbus frame and waits for its response.
+     *
+     * @param frame           modbus request frame.
+     * @param responseTimeout milliseconds to wait for the response, 0 for the default one.
+     * @return bytes of the response frame written in <method>getReceiveBuffer</method>, 0 if there is no response.
+     */
+    int transact(byte[] frame, int responseTimeout);
+
+    /**
+     * The response frame is only valid until the next <method>transact</method>.
+     *
+     * @return the buffer where <method>transact</method> writes the response frames.
+     */
+    byte[] getReceiveBuffer();
+}
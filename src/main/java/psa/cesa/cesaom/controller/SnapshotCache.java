@@ -0,0 +1,115 @@
+package psa.cesa.cesaom.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import psa.cesa.cesaom.model.BinarySnapshot;
+import psa.cesa.cesaom.model.ComLineSnapshot;
+import psa.cesa.cesaom.model.FieldSnapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * It encodes every published snapshot of the <code>SnapshotStore</code> once, the first time it is asked for, and
+ * hands the same bytes to every later request until a new version is published.
+ * <p>
+ * So the read cost depends on the poll rate, not on the number of clients. There is one cache for every
+ * representation, see <method>json</method> and <method>binary</method>.
+ */
+public class SnapshotCache {
+    /**
+     * @param snapshotStore where the snapshots are published.
+     * @param mediaType the representation of the encoded bytes.
+     * @param encoder turns a snapshot into bytes.
+     * @param variant tells apart the entity tags of the representations, empty for JSON.
+     * @param epoch tells apart versions of different service starts, which begin from 1 again.
+     * @param lines the last encoded snapshot by <code>ComLine</code> id.
+     * @param field the last encoded field snapshot.
+     */
+    private final SnapshotStore snapshotStore;
+    private final MediaType mediaType;
+    private final Encoder encoder;
+    private final String variant;
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+    private final Map<Integer, AtomicReference<EncodedSnapshot>> lines = new ConcurrentHashMap<>();
+    private final AtomicReference<EncodedSnapshot> field = new AtomicReference<>();
+
+    /**
+     * Turns a <code>ComLineSnapshot</code> or a <code>FieldSnapshot</code> into bytes.
+     */
+    public interface Encoder {
+        byte[] encode(Object snapshot) throws IOException;
+    }
+
+    public SnapshotCache(SnapshotStore snapshotStore, MediaType mediaType, Encoder encoder, String variant) {
+        this.snapshotStore = snapshotStore;
+        this.mediaType = mediaType;
+        this.encoder = encoder;
+        this.variant = variant;
+    }
+
+    /**
+     * @param objectMapper the same mapper as the rest of the endpoints.
+     * @return a cache of the JSON snapshots.
+     */
+    public static SnapshotCache json(SnapshotStore snapshotStore, ObjectMapper objectMapper) {
+        return new SnapshotCache(snapshotStore, MediaType.APPLICATION_JSON, objectMapper::writeValueAsBytes, "");
+    }
+
+    /**
+     * @return a cache of the <code>BinarySnapshot</code> messages.
+     */
+    public static SnapshotCache binary(SnapshotStore snapshotStore) {
+        return new SnapshotCache(snapshotStore, MediaType.parseMediaType(BinarySnapshot.MEDIA_TYPE), BinarySnapshot::encode, "-bin");
+    }
+
+    /**
+     * @param comLineId the identification of a <code>ComLine</code>.
+     * @return the last snapshot of the line encoded, null if there is none.
+     */
+    public EncodedSnapshot getLine(int comLineId) {
+        ComLineSnapshot snapshot = snapshotStore.getLine(comLineId);
+        if (snapshot == null)
+            return null;
+        AtomicReference<EncodedSnapshot> cached = lines.computeIfAbsent(comLineId, id -> new AtomicReference<>());
+        return get(cached, snapshot, comLineId + "-" + snapshot.getVersion());
+    }
+
+    /**
+     * @return the last field snapshot encoded.
+     */
+    public EncodedSnapshot getField() {
+        FieldSnapshot snapshot = snapshotStore.getField();
+        return get(field, snapshot, "field-" + snapshot.getVersion());
+    }
+
+    /**
+     * Returns the cached bytes if they belong to the snapshot, otherwise encodes it once while concurrent
+     * requests for the same snapshot wait for it.
+     *
+     * @param cached   the last encoded snapshot.
+     * @param snapshot the published snapshot.
+     * @param tag      version part of the entity tag.
+     * @return the published snapshot encoded.
+     */
+    private EncodedSnapshot get(AtomicReference<EncodedSnapshot> cached, Object snapshot, String tag) {
+        EncodedSnapshot encoded = cached.get();
+        if (encoded != null && encoded.snapshot == snapshot)
+            return encoded;
+        synchronized (cached) {
+            encoded = cached.get();
+            if (encoded == null || encoded.snapshot != snapshot) {
+                try {
+                    encoded = new EncodedSnapshot(snapshot, encoder.encode(snapshot), "\"" + epoch + "-" + tag + variant + "\"", mediaType);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                cached.set(encoded);
+            }
+            return encoded;
+        }
+    }
+}
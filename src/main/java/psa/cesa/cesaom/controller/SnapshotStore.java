@@ -0,0 +1,122 @@
+package psa.cesa.cesaom.controller;
+
+import psa.cesa.cesaom.model.ComLineSnapshot;
+import psa.cesa.cesaom.model.FieldChanges;
+import psa.cesa.cesaom.model.FieldSnapshot;
+import psa.cesa.cesaom.model.HeliostatSnapshot;
+import psa.cesa.cesaom.model.Modbus;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * It keeps the last <code>ComLineSnapshot</code> of every <code>ComLine</code> within one <code>FieldSnapshot</code>.
+ * <p>
+ * Every publication swaps the field snapshot reference, so readers never lock nor wait for the poll threads and
+ * always get the lines of one single publication.
+ * <p>
+ * Versions count from an epoch taken when the store is created, so every start of the service begins above the
+ * versions of the previous ones and a version handed out before a restart is always older than the base version.
+ */
+public class SnapshotStore {
+    /**
+     * @param EPOCH_VERSIONS versions given to every millisecond of the start time, more than a run publishes.
+     * @param field the last published snapshots.
+     */
+    static final long EPOCH_VERSIONS = 1000;
+
+    private final AtomicReference<FieldSnapshot> field;
+
+    public SnapshotStore() {
+        this(System.currentTimeMillis() * EPOCH_VERSIONS);
+    }
+
+    /**
+     * @param epoch the version and base version of the empty field, the first publication gets the next one.
+     */
+    SnapshotStore(long epoch) {
+        field = new AtomicReference<>(new FieldSnapshot(epoch, epoch, Collections.emptyMap(), Collections.emptyMap()));
+    }
+
+    /**
+     * Replaces the snapshot of one line, unless it is the one already published.
+     * <p>
+     * The <code>Heliostat</code> objects whose values differ from the previous snapshot are marked as changed in the
+     * new version. If the line is new or its heliostats are not the same ones, the base version moves to the new one.
+     *
+     * @param snapshot the new <code>ComLine</code> snapshot.
+     */
+    public void publish(ComLineSnapshot snapshot) {
+        FieldSnapshot current;
+        FieldSnapshot next;
+        do {
+            current = field.get();
+            ComLineSnapshot previous = current.getLines().get(snapshot.getId());
+            if (previous == snapshot)
+                return;
+            long version = current.getVersion() + 1;
+            long baseVersion = current.getBaseVersion();
+            long[] changedVersions = current.getChangedVersions().get(snapshot.getId());
+            changedVersions = changedVersions == null ? new long[Modbus.ADDRESS_COUNT] : changedVersions.clone();
+            if (previous == null || !previous.getHeliostats().keySet().equals(snapshot.getHeliostats().keySet()))
+                baseVersion = version;
+            for (HeliostatSnapshot heliostat : snapshot.getHeliostats().values()) {
+                HeliostatSnapshot old = previous == null ? null : previous.getHeliostats().get(heliostat.getId());
+                if (old != heliostat && !heliostat.sameValues(old))
+                    changedVersions[heliostat.getId()] = version;
+            }
+            TreeMap<Integer, ComLineSnapshot> lines = new TreeMap<>(current.getLines());
+            lines.put(snapshot.getId(), snapshot);
+            Map<Integer, long[]> versions = new TreeMap<>(current.getChangedVersions());
+            versions.put(snapshot.getId(), changedVersions);
+            next = new FieldSnapshot(version, baseVersion, lines, versions);
+        } while (!field.compareAndSet(current, next));
+    }
+
+    /**
+     * Drops the snapshot of a line which is no longer configured. The base version moves, so every client reads
+     * the whole field again.
+     *
+     * @param comLineId the identification of a <code>ComLine</code>.
+     */
+    public void remove(int comLineId) {
+        FieldSnapshot current;
+        FieldSnapshot next;
+        do {
+            current = field.get();
+            if (!current.getLines().containsKey(comLineId))
+                return;
+            long version = current.getVersion() + 1;
+            TreeMap<Integer, ComLineSnapshot> lines = new TreeMap<>(current.getLines());
+            lines.remove(comLineId);
+            Map<Integer, long[]> versions = new TreeMap<>(current.getChangedVersions());
+            versions.remove(comLineId);
+            next = new FieldSnapshot(version, version, lines, versions);
+        } while (!field.compareAndSet(current, next));
+    }
+
+    /**
+     * @return the last snapshot of every line.
+     */
+    public FieldSnapshot getField() {
+        return field.get();
+    }
+
+    /**
+     * @param sinceVersion the last version a client has.
+     * @return the <code>Heliostat</code> values changed after that version.
+     */
+    public FieldChanges getChanges(long sinceVersion) {
+        return FieldChanges.since(field.get(), sinceVersion);
+    }
+
+    /**
+     * @param comLineId the identification of a <code>ComLine</code>.
+     * @return the last snapshot of the line, null if it has not published any.
+     */
+    public ComLineSnapshot getLine(int comLineId) {
+        return field.get().getLines().get(comLineId);
+    }
+}
@@ -1,7 +1,8 @@
 package psa.cesa.cesaom.controller;
 
 import psa.cesa.cesaom.model.ComLine;
-import psa.cesa.cesaom.model.Heliostat;
+import psa.cesa.cesaom.model.ComLineSnapshot;
+import psa.cesa.cesaom.model.ScheduleStats;
 
 import java.util.TimerTask;
 
@@ -10,30 +11,45 @@ public class TimerPollTask extends TimerTask {
     /**
      * @param comLineId the identification of a <code>ComLine</code> .
      * @param fieldController for using its methods so it can send the proper frames.
-     * @param cache it keeps the values before the first poll or from the last poll.
+     * @param scheduler decides which <code>Heliostat</code> objects are due on every run.
+     * @param snapshotStore where the snapshots of the <code>ComLine</code> are published.
+     * @param stopped if the <code>ComLine</code> has been removed or replaced, so nothing is published any more.
      */
     private FieldController fieldController;
     private ComLine comLine;
-    private ComLine cache;
-    private boolean pause;
+    private PollScheduler scheduler;
+    private SnapshotStore snapshotStore;
+    private boolean stopped;
 
     public TimerPollTask(FieldController fieldController) {
+        this(fieldController, new PollProperties(), new SnapshotStore());
+    }
+
+    /**
+     * @param fieldController for using its methods so it can send the proper frames.
+     * @param pollProperties  refresh targets, it must be run every <code>tick</code> milliseconds.
+     * @param snapshotStore   where the snapshots of the <code>ComLine</code> are published.
+     */
+    public TimerPollTask(FieldController fieldController, PollProperties pollProperties, SnapshotStore snapshotStore) {
         this.fieldController = fieldController;
+        this.snapshotStore = snapshotStore;
         comLine = fieldController.getComLine();
-        cache = comLine;
+        scheduler = new PollScheduler(fieldController, pollProperties);
+        snapshotStore.publish(fieldController.snapshot());
     }
 
     /**
-     * @return a <code>ComLine<code> object keeping the values from the las poll.
+     * @return how well the <code>ComLine</code> keeps up with its refresh targets.
      */
-    public synchronized ComLine getComlineCache() {
-        return cache;
+    public ScheduleStats getScheduleStats() {
+        return scheduler.getStats();
     }
 
-    public synchronized void pause(boolean pause) {
-        this.pause = pause;
-        if (!pause)
-            notifyAll();
+    /**
+     * @return an immutable copy of the <code>ComLine<code> values from the last run.
+     */
+    public ComLineSnapshot getComlineCache() {
+        return snapshotStore.getLine(comLine.getId());
     }
 
     /**
@@ -44,22 +60,24 @@ public class TimerPollTask extends TimerTask {
         pollComLine();
     }
 
+    /**
+     * Stops polling and publishing. A run in progress finishes before it returns, so no snapshot of the
+     * <code>ComLine</code> is published afterwards.
+     */
+    public synchronized void stop() {
+        stopped = true;
+    }
+
     /**
      * It polls the <code>ComLine</code> to get the updated values from the RTU.
-     *
-     * @return All <code>ComLine</code> objects and all its <code>Heliostat</code> objects values
+     * <p>
+     * It only queues the polls which are due and not pending yet, the <code>LineTransactionEngine</code> sends them
+     * between commands. Then it publishes the values decoded since the last run.
      */
-    public void pollComLine() {
-        for (Heliostat heliostat : comLine.getHeliostats().values()) {
-            while (pause) {
-                try {
-                    Thread.sleep(100);//wait
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
-            fieldController.poll(heliostat.getId());
-            cache = comLine;
-        }
+    public synchronized void pollComLine() {
+        if (stopped)
+            return;
+        scheduler.tick(System.nanoTime());
+        snapshotStore.publish(fieldController.snapshot());
     }
 }
@@ -0,0 +1,39 @@
+package psa.cesa.cesaom.controller;
+
+import psa.cesa.cesaom.model.ModbusRequest;
+import psa.cesa.cesaom.model.ModbusResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A queued <code>ModbusRequest</code> and the future which waits for its response.
+ * <p>
+ * Routine polls use reusable transactions instead, without future, whose <code>ResponseHandler</code> reads the
+ * response straight from the receive buffer.
+ */
+class Transaction {
+    /**
+     * @param request the frame to send.
+     * @param future completed by the <code>LineTransactionEngine</code> thread, null for reusable transactions.
+     * @param handler interprets the response in place, null for single use transactions.
+     * @param enqueuedNanos when the request has been queued.
+     * @param pending if it is queued or being sent, so a reusable transaction is not queued twice.
+     */
+    final ModbusRequest request;
+    final CompletableFuture<ModbusResponse> future;
+    final ResponseHandler handler;
+    long enqueuedNanos;
+    volatile boolean pending;
+
+    Transaction(ModbusRequest request) {
+        this.request = request;
+        this.future = new CompletableFuture<>();
+        this.handler = null;
+    }
+
+    Transaction(ModbusRequest request, ResponseHandler handler) {
+        this.request = request;
+        this.future = null;
+        this.handler = handler;
+    }
+}
@@ -0,0 +1,62 @@
+package psa.cesa.cesaom.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DAO which represents one operation of a batch request.
+ */
+public class BatchEntry {
+    /**
+     * @param comLineId the <code>ComLine</code> id.
+     * @param heliostatId the <code>Heliostat</code> modbus id.
+     * @param operation name of the single heliostat REST method, such as "command" or "focus".
+     * @param args operation parameters in the same order as the REST method ones.
+     */
+    private int comLineId;
+    private int heliostatId;
+    private String operation;
+    private List<String> args = new ArrayList<>();
+
+    public BatchEntry() {
+    }
+
+    public BatchEntry(int comLineId, int heliostatId, String operation, List<String> args) {
+        this.comLineId = comLineId;
+        this.heliostatId = heliostatId;
+        this.operation = operation;
+        this.args = args;
+    }
+
+    public int getComLineId() {
+        return comLineId;
+    }
+
+    public void setComLineId(int comLineId) {
+        this.comLineId = comLineId;
+    }
+
+    public int getHeliostatId() {
+        return heliostatId;
+    }
+
+    public void setHeliostatId(int heliostatId) {
+        this.heliostatId = heliostatId;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public List<String> getArgs() {
+        return args;
+    }
+
+    public void setArgs(List<String> args) {
+        this.args = args;
+    }
+}
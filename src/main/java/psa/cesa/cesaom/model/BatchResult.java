@@ -0,0 +1,40 @@
+package psa.cesa.cesaom.model;
+
+/**
+ * DAO which represents the outcome of one <code>BatchEntry</code>.
+ */
+public class BatchResult {
+    /**
+     * @param comLineId the <code>ComLine</code> id.
+     * @param heliostatId the <code>Heliostat</code> modbus id.
+     * @param operation name of the executed operation.
+     * @param result bytes frame if the RTU answers, "No responde" if not, or the error description.
+     */
+    private int comLineId;
+    private int heliostatId;
+    private String operation;
+    private String result;
+
+    public BatchResult(BatchEntry entry, String result) {
+        this.comLineId = entry.getComLineId();
+        this.heliostatId = entry.getHeliostatId();
+        this.operation = entry.getOperation();
+        this.result = result;
+    }
+
+    public int getComLineId() {
+        return comLineId;
+    }
+
+    public int getHeliostatId() {
+        return heliostatId;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,213 @@
+package psa.cesa.cesaom.model;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compact binary form of the <code>ComLineSnapshot</code> and <code>FieldSnapshot</code> objects for clients which
+ * refresh the whole field several times a second. It encodes on the server and decodes on the Java clients.
+ * <p>
+ * Every number is big-endian. A message starts with the magic "HS", the format version and its kind:
+ * <pre>
+ * line:  magic u16, format u8, kind u8 = 1, line
+ * field: magic u16, format u8, kind u8 = 2, version i64, baseVersion i64, lines u16, line...
+ * line:  id i32, version i64, timestamp i64, portDir length u16, portDir UTF-8, heliostats u16, record...
+ * record (26 bytes): id u8, linkState u8, state, event, diagnosisAZ, diagnosisEL, positionAZ, positionEL,
+ *                    setPointAZ, setPointEL u16, sampledAt age u32, quarantinedSince age u32
+ * </pre>
+ * The registers are 16 bits on the RTU, so they fit in an u16. The times are milliseconds before the line
+ * timestamp, <code>NEVER</code> if they are 0.
+ */
+public final class BinarySnapshot {
+    /**
+     * @param MEDIA_TYPE content type of the binary snapshots.
+     * @param MAGIC first two bytes of every message.
+     * @param FORMAT layout version, increased on any incompatible change.
+     * @param LINE kind of a <code>ComLineSnapshot</code> message.
+     * @param FIELD kind of a <code>FieldSnapshot</code> message.
+     * @param RECORD_LENGTH bytes of every <code>Heliostat</code> record.
+     * @param NEVER age of a time which has not happened.
+     * @param MAX_AGE the oldest age which can be told apart from <code>NEVER</code>.
+     */
+    public static final String MEDIA_TYPE = "application/vnd.cesaom.snapshot";
+    public static final int MAGIC = 0x4853;
+    public static final int FORMAT = 1;
+    public static final int LINE = 1;
+    public static final int FIELD = 2;
+    public static final int RECORD_LENGTH = 26;
+    private static final long NEVER = 0xFFFFFFFFL;
+    private static final long MAX_AGE = NEVER - 1;
+    private static final LinkState[] LINK_STATES = LinkState.values();
+
+    private BinarySnapshot() {
+    }
+
+    /**
+     * @param snapshot a <code>ComLineSnapshot</code> or a <code>FieldSnapshot</code>.
+     * @return the binary message.
+     */
+    public static byte[] encode(Object snapshot) {
+        if (snapshot instanceof ComLineSnapshot)
+            return encode((ComLineSnapshot) snapshot);
+        if (snapshot instanceof FieldSnapshot)
+            return encode((FieldSnapshot) snapshot);
+        throw new IllegalArgumentException("Not a snapshot: " + snapshot);
+    }
+
+    public static byte[] encode(ComLineSnapshot line) {
+        byte[] portDir = portDir(line);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + lineLength(line, portDir));
+        putHeader(buffer, LINE);
+        putLine(buffer, line, portDir);
+        return buffer.array();
+    }
+
+    public static byte[] encode(FieldSnapshot field) {
+        int length = 4 + 18;
+        for (ComLineSnapshot line : field.getLines().values()) {
+            length += lineLength(line, portDir(line));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        putHeader(buffer, FIELD);
+        buffer.putLong(field.getVersion());
+        buffer.putLong(field.getBaseVersion());
+        buffer.putShort((short) field.getLines().size());
+        for (ComLineSnapshot line : field.getLines().values()) {
+            putLine(buffer, line, portDir(line));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @param message a line message.
+     * @return the decoded snapshot.
+     * @throws IllegalArgumentException if it is not a line message of this format.
+     */
+    public static ComLineSnapshot decodeLine(byte[] message) {
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        try {
+            checkHeader(buffer, LINE);
+            return getLine(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated snapshot", e);
+        }
+    }
+
+    /**
+     * The decoded field has no changed versions, they are only used by the server.
+     *
+     * @param message a field message.
+     * @return the decoded snapshot.
+     * @throws IllegalArgumentException if it is not a field message of this format.
+     */
+    public static FieldSnapshot decodeField(byte[] message) {
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        try {
+            checkHeader(buffer, FIELD);
+            long version = buffer.getLong();
+            long baseVersion = buffer.getLong();
+            int count = buffer.getShort() & 0xFFFF;
+            Map<Integer, ComLineSnapshot> lines = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                ComLineSnapshot line = getLine(buffer);
+                lines.put(line.getId(), line);
+            }
+            return new FieldSnapshot(version, baseVersion, lines, Collections.emptyMap());
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated snapshot", e);
+        }
+    }
+
+    private static byte[] portDir(ComLineSnapshot line) {
+        return line.getPortDir() == null ? new byte[0] : line.getPortDir().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int lineLength(ComLineSnapshot line, byte[] portDir) {
+        return 4 + 8 + 8 + 2 + portDir.length + 2 + RECORD_LENGTH * line.getHeliostats().size();
+    }
+
+    private static void putHeader(ByteBuffer buffer, int kind) {
+        buffer.putShort((short) MAGIC);
+        buffer.put((byte) FORMAT);
+        buffer.put((byte) kind);
+    }
+
+    private static void checkHeader(ByteBuffer buffer, int kind) {
+        int magic = buffer.getShort() & 0xFFFF;
+        int format = buffer.get() & 0xFF;
+        int actual = buffer.get() & 0xFF;
+        if (magic != MAGIC || format != FORMAT || actual != kind)
+            throw new IllegalArgumentException("Not a format " + FORMAT + " message of kind " + kind);
+    }
+
+    private static void putLine(ByteBuffer buffer, ComLineSnapshot line, byte[] portDir) {
+        buffer.putInt(line.getId());
+        buffer.putLong(line.getVersion());
+        buffer.putLong(line.getTimestamp());
+        buffer.putShort((short) portDir.length);
+        buffer.put(portDir);
+        buffer.putShort((short) line.getHeliostats().size());
+        for (HeliostatSnapshot heliostat : line.getHeliostats().values()) {
+            buffer.put((byte) heliostat.getId());
+            buffer.put((byte) heliostat.getLinkState().ordinal());
+            buffer.putShort((short) heliostat.getState());
+            buffer.putShort((short) heliostat.getEvent());
+            buffer.putShort((short) heliostat.getDiagnosisAZ());
+            buffer.putShort((short) heliostat.getDiagnosisEL());
+            buffer.putShort((short) heliostat.getPositionAZ());
+            buffer.putShort((short) heliostat.getPositionEL());
+            buffer.putShort((short) heliostat.getSetPointAZ());
+            buffer.putShort((short) heliostat.getSetPointEL());
+            buffer.putInt((int) age(line.getTimestamp(), heliostat.getSampledAt()));
+            buffer.putInt((int) age(line.getTimestamp(), heliostat.getQuarantinedSince()));
+        }
+    }
+
+    private static ComLineSnapshot getLine(ByteBuffer buffer) {
+        int id = buffer.getInt();
+        long version = buffer.getLong();
+        long timestamp = buffer.getLong();
+        byte[] portDir = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(portDir);
+        int count = buffer.getShort() & 0xFFFF;
+        Map<Integer, HeliostatSnapshot> heliostats = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            Heliostat heliostat = new Heliostat(buffer.get() & 0xFF);
+            int linkState = buffer.get() & 0xFF;
+            if (linkState >= LINK_STATES.length)
+                throw new IllegalArgumentException("Unknown link state " + linkState);
+            heliostat.setLinkState(LINK_STATES[linkState]);
+            heliostat.setState(buffer.getShort() & 0xFFFF);
+            heliostat.setEvent(buffer.getShort() & 0xFFFF);
+            heliostat.setDiagnosisAZ(buffer.getShort() & 0xFFFF);
+            heliostat.setDiagnosisEL(buffer.getShort() & 0xFFFF);
+            heliostat.setPositionAZ(buffer.getShort() & 0xFFFF);
+            heliostat.setPositionEL(buffer.getShort() & 0xFFFF);
+            heliostat.setSetPointAZ(buffer.getShort() & 0xFFFF);
+            heliostat.setSetPointEL(buffer.getShort() & 0xFFFF);
+            heliostat.setSampledAt(time(timestamp, buffer.getInt() & NEVER));
+            heliostat.setQuarantinedSince(time(timestamp, buffer.getInt() & NEVER));
+            heliostats.put(heliostat.getId(), new HeliostatSnapshot(heliostat));
+        }
+        return new ComLineSnapshot(id, portDir.length == 0 ? null : new String(portDir, StandardCharsets.UTF_8), version, timestamp, heliostats);
+    }
+
+    /**
+     * @param timestamp epoch milliseconds of the line snapshot.
+     * @param time      epoch milliseconds, 0 if it has not happened.
+     * @return milliseconds before the timestamp, 0 for a later time, <code>NEVER</code> for 0.
+     */
+    private static long age(long timestamp, long time) {
+        if (time == 0)
+            return NEVER;
+        return Math.min(MAX_AGE, Math.max(0, timestamp - time));
+    }
+
+    private static long time(long timestamp, long age) {
+        return age == NEVER ? 0 : timestamp - age;
+    }
+}
@@ -0,0 +1,60 @@
+package psa.cesa.cesaom.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DAO which represents the outcome of a broadcast command on a <code>ComLine</code>,
+ * as seen by the poll pass which follows it.
+ */
+public class BroadcastResult {
+    /**
+     * @param comLineId the <code>ComLine</code> which has received the broadcast.
+     * @param command the ASCII value of the command.
+     * @param changed <code>Heliostat</code> ids whose state has changed.
+     * @param unchanged <code>Heliostat</code> ids which have answered with the same state.
+     * @param unanswered <code>Heliostat</code> ids which have not answered the poll.
+     * @param failed <code>Heliostat</code> ids whose poll has got an exception, corrupt or partial response.
+     * @param rejected <code>Heliostat</code> ids whose poll has not been queued, so their state is unknown.
+     */
+    private int comLineId;
+    private String command;
+    private List<Integer> changed = new ArrayList<>();
+    private List<Integer> unchanged = new ArrayList<>();
+    private List<Integer> unanswered = new ArrayList<>();
+    private List<Integer> failed = new ArrayList<>();
+    private List<Integer> rejected = new ArrayList<>();
+
+    public BroadcastResult(int comLineId, String command) {
+        this.comLineId = comLineId;
+        this.command = command;
+    }
+
+    public int getComLineId() {
+        return comLineId;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public List<Integer> getChanged() {
+        return changed;
+    }
+
+    public List<Integer> getUnchanged() {
+        return unchanged;
+    }
+
+    public List<Integer> getUnanswered() {
+        return unanswered;
+    }
+
+    public List<Integer> getFailed() {
+        return failed;
+    }
+
+    public List<Integer> getRejected() {
+        return rejected;
+    }
+}
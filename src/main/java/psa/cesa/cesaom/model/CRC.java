@@ -1,5 +1,7 @@
 package psa.cesa.cesaom.model;
 
+import java.nio.ByteBuffer;
+
 /**
  * From MODBUS over serial line specification and implementation guide V1.02 (Appendix B)- Java Implementation
  * http://modbus.com/docs/Modbus_over_serial_line_V1_02.pdf
@@ -12,23 +14,105 @@ public class CRC {
 
     private final static short[] auchCRCLo = {0x00, 0xC0, 0xC1, 0x01, 0xC3, 0x03, 0x02, 0xC2, 0xC6, 0x06, 0x07, 0xC7, 0x05, 0xC5, 0xC4, 0x04, 0xCC, 0x0C, 0x0D, 0xCD, 0x0F, 0xCF, 0xCE, 0x0E, 0x0A, 0xCA, 0xCB, 0x0B, 0xC9, 0x09, 0x08, 0xC8, 0xD8, 0x18, 0x19, 0xD9, 0x1B, 0xDB, 0xDA, 0x1A, 0x1E, 0xDE, 0xDF, 0x1F, 0xDD, 0x1D, 0x1C, 0xDC, 0x14, 0xD4, 0xD5, 0x15, 0xD7, 0x17, 0x16, 0xD6, 0xD2, 0x12, 0x13, 0xD3, 0x11, 0xD1, 0xD0, 0x10, 0xF0, 0x30, 0x31, 0xF1, 0x33, 0xF3, 0xF2, 0x32, 0x36, 0xF6, 0xF7, 0x37, 0xF5, 0x35, 0x34, 0xF4, 0x3C, 0xFC, 0xFD, 0x3D, 0xFF, 0x3F, 0x3E, 0xFE, 0xFA, 0x3A, 0x3B, 0xFB, 0x39, 0xF9, 0xF8, 0x38, 0x28, 0xE8, 0xE9, 0x29, 0xEB, 0x2B, 0x2A, 0xEA, 0xEE, 0x2E, 0x2F, 0xEF, 0x2D, 0xED, 0xEC, 0x2C, 0xE4, 0x24, 0x25, 0xE5, 0x27, 0xE7, 0xE6, 0x26, 0x22, 0xE2, 0xE3, 0x23, 0xE1, 0x21, 0x20, 0xE0, 0xA0, 0x60, 0x61, 0xA1, 0x63, 0xA3, 0xA2, 0x62, 0x66, 0xA6, 0xA7, 0x67, 0xA5, 0x65, 0x64, 0xA4, 0x6C, 0xAC, 0xAD, 0x6D, 0xAF, 0x6F, 0x6E, 0xAE, 0xAA, 0x6A, 0x6B, 0xAB, 0x69, 0xA9, 0xA8, 0x68, 0x78, 0xB8, 0xB9, 0x79, 0xBB, 0x7B, 0x7A, 0xBA, 0xBE, 0x7E, 0x7F, 0xBF, 0x7D, 0xBD, 0xBC, 0x7C, 0xB4, 0x74, 0x75, 0xB5, 0x77, 0xB7, 0xB6, 0x76, 0x72, 0xB2, 0xB3, 0x73, 0xB1, 0x71, 0x70, 0xB0, 0x50, 0x90, 0x91, 0x51, 0x93, 0x53, 0x52, 0x92, 0x96, 0x56, 0x57, 0x97, 0x55, 0x95, 0x94, 0x54, 0x9C, 0x5C, 0x5D, 0x9D, 0x5F, 0x9F, 0x9E, 0x5E, 0x5A, 0x9A, 0x9B, 0x5B, 0x99, 0x59, 0x58, 0x98, 0x88, 0x48, 0x49, 0x89, 0x4B, 0x8B, 0x8A, 0x4A, 0x4E, 0x8E, 0x8F, 0x4F, 0x8D, 0x4D, 0x4C, 0x8C, 0x44, 0x84, 0x85, 0x45, 0x87, 0x47, 0x46, 0x86, 0x82, 0x42, 0x43, 0x83, 0x41, 0x81, 0x80, 0x40};
 
+    /**
+     * Both tables combined into one, indexed the same way: low order byte from auchCRCHi and high order byte from
+     * auchCRCLo, so every data byte costs a single lookup.
+     */
+    private final static int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < CRC_TABLE.length; i++) {
+            CRC_TABLE[i] = (auchCRCLo[i] << 8) | auchCRCHi[i];
+        }
+    }
+
     /**
      * It gets a byte frame and selects a high and a low order byte from the tables of CRC values.
      *
      * @param data modbus frame without crc
      * @param len  number of bytes for crc calculation
-     * @return
+     * @return the two CRC bytes in the order they are sent.
      */
     public static final byte[] calculate(byte[] data, int len) {
-        int[] crc = {0xFF, 0xFF};
-        int nextByte = 0;
+        int crc = compute(data, 0, len);
+        return new byte[]{(byte) crc, (byte) (crc >>> 8)};
+    }
+
+    /**
+     * Calculates the CRC of a part of an array without allocating memory.
+     *
+     * @param data   array containing the frame.
+     * @param offset first byte of the frame.
+     * @param length number of bytes for crc calculation.
+     * @return the CRC, its low order byte is sent first.
+     */
+    public static int compute(byte[] data, int offset, int length) {
+        int crc = 0xFFFF;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            crc = (crc >>> 8) ^ CRC_TABLE[(crc ^ data[i]) & 0xFF];
+        }
+        return crc;
+    }
+
+    /**
+     * Writes the CRC of the first <code>length</code> bytes right after them.
+     *
+     * @param frame  array with room for two more bytes.
+     * @param length number of bytes for crc calculation.
+     */
+    public static void append(byte[] frame, int length) {
+        int crc = compute(frame, 0, length);
+        frame[length] = (byte) crc;
+        frame[length + 1] = (byte) (crc >>> 8);
+    }
+
+    /**
+     * Puts the CRC of the bytes before the buffer position at that position.
+     *
+     * @param buffer modbus frame without crc.
+     */
+    public static void append(ByteBuffer buffer) {
+        int crc = 0xFFFF;
+        if (buffer.hasArray()) {
+            crc = compute(buffer.array(), buffer.arrayOffset(), buffer.position());
+        } else {
+            for (int i = 0; i < buffer.position(); i++) {
+                crc = (crc >>> 8) ^ CRC_TABLE[(crc ^ buffer.get(i)) & 0xFF];
+            }
+        }
+        buffer.put((byte) crc);
+        buffer.put((byte) (crc >>> 8));
+    }
+
+    /**
+     * Checks the CRC of a received frame in place.
+     *
+     * @param frame  array containing the frame.
+     * @param offset first byte of the frame.
+     * @param length bytes of the frame including its CRC.
+     * @return if the CRC matches.
+     */
+    public static boolean verify(byte[] frame, int offset, int length) {
+        return length > 2 && compute(frame, offset, length) == 0;
+    }
+
+    /**
+     * The MODBUS specification algorithm, one lookup in every table for each byte, kept to check <code>compute</code>.
+     *
+     * @param data   array containing the frame.
+     * @param offset first byte of the frame.
+     * @param length number of bytes for crc calculation.
+     * @return the CRC, its low order byte is sent first.
+     */
+    static int computeBytewise(byte[] data, int offset, int length) {
+        int uchCRCHi = 0xFF;
+        int uchCRCLo = 0xFF;
         int uIndex;
-        for (int i = 0; i < len; i++) {
-            nextByte = 0xFF & ((int) data[i]);
-            uIndex = crc[0] ^ nextByte;
-            crc[0] = crc[1] ^ auchCRCHi[uIndex];
-            crc[1] = auchCRCLo[uIndex];
+        for (int i = offset; i < offset + length; i++) {
+            uIndex = uchCRCHi ^ (0xFF & data[i]);
+            uchCRCHi = uchCRCLo ^ auchCRCHi[uIndex];
+            uchCRCLo = auchCRCLo[uIndex];
         }
-        return new byte[]{(byte) crc[0], (byte) crc[1]};
+        return (uchCRCLo << 8) | uchCRCHi;
     }
 }
@@ -1,5 +1,7 @@
 package psa.cesa.cesaom.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.Map;
 
 /**
@@ -9,20 +11,34 @@ public class ComLine {
     /**
      * @param id represents the number assigned to a communications line.
      * @param portDir is the OS serial port direction.
-     * @param heliostats HashMap which contains <code>Heliostat</code> objects within a <code>ComLine</code>.
+     * @param fieldState values of the <code>Heliostat</code> objects within a <code>ComLine</code>.
+     * @param frameCache poll frames of the <code>Heliostat</code> objects.
+     * @param readPlan registers read periodically from every <code>Heliostat</code> besides the poll.
      */
     private int id;
     private String portDir;
-    private Map<Integer, Heliostat> heliostats;
+    private FieldState fieldState = new FieldState();
+    private FrameCache frameCache;
+    private ReadPlan readPlan = ReadPlan.EMPTY;
 
     public ComLine(int id) {
         this.id = id;
     }
 
+    /**
+     * @param heliostats their values are copied into the <code>FieldState</code> of the <code>ComLine</code>.
+     */
     public ComLine(int id, String portDir, Map<Integer, Heliostat> heliostats) {
         this.id = id;
         this.portDir = portDir;
-        this.heliostats = heliostats;
+        setHeliostats(heliostats);
+    }
+
+    public ComLine(int id, String portDir, FieldState fieldState) {
+        this.id = id;
+        this.portDir = portDir;
+        this.fieldState = fieldState;
+        this.frameCache = new FrameCache(fieldState.getHeliostats().keySet());
     }
 
     public int getId() {
@@ -41,11 +57,39 @@ public class ComLine {
         this.portDir = portDir;
     }
 
+    /**
+     * @return a view of the <code>FieldState</code> by modbus slave address.
+     */
     public Map<Integer, Heliostat> getHeliostats() {
-        return heliostats;
+        return fieldState.getHeliostats();
     }
 
+    /**
+     * @param heliostats their values are copied into a new <code>FieldState</code>.
+     */
     public void setHeliostats(Map<Integer, Heliostat> heliostats) {
-        this.heliostats = heliostats;
+        FieldState fieldState = new FieldState();
+        fieldState.getHeliostats().putAll(heliostats);
+        this.fieldState = fieldState;
+        this.frameCache = new FrameCache(heliostats.keySet());
+    }
+
+    @JsonIgnore
+    public FieldState getFieldState() {
+        return fieldState;
+    }
+
+    @JsonIgnore
+    public FrameCache getFrameCache() {
+        return frameCache;
+    }
+
+    @JsonIgnore
+    public ReadPlan getReadPlan() {
+        return readPlan;
+    }
+
+    public void setReadPlan(ReadPlan readPlan) {
+        this.readPlan = readPlan;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,64 @@
+package psa.cesa.cesaom.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable copy of a <code>ComLine</code> and its <code>Heliostat</code> values, published after every poll tick
+ * which has changed any of them.
+ */
+public final class ComLineSnapshot {
+    /**
+     * @param id represents the number assigned to a communications line.
+     * @param portDir is the OS serial port direction.
+     * @param version increases by one with every published snapshot of the line.
+     * @param timestamp epoch milliseconds when the snapshot was taken.
+     * @param heliostats <code>HeliostatSnapshot</code> objects by id, shared with the previous snapshot if unchanged.
+     */
+    private final int id;
+    private final String portDir;
+    private final long version;
+    private final long timestamp;
+    private final Map<Integer, HeliostatSnapshot> heliostats;
+
+    public ComLineSnapshot(int id, String portDir, long version, long timestamp, Map<Integer, HeliostatSnapshot> heliostats) {
+        this.id = id;
+        this.portDir = portDir;
+        this.version = version;
+        this.timestamp = timestamp;
+        this.heliostats = Collections.unmodifiableMap(heliostats);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getPortDir() {
+        return portDir;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Map<Integer, HeliostatSnapshot> getHeliostats() {
+        return heliostats;
+    }
+
+    /**
+     * @return milliseconds since every quarantined <code>Heliostat</code> stopped answering, by id.
+     */
+    public Map<Integer, Long> getQuarantined() {
+        Map<Integer, Long> quarantined = new TreeMap<>();
+        for (HeliostatSnapshot heliostat : heliostats.values()) {
+            if (heliostat.getLinkState() == LinkState.QUARANTINED)
+                quarantined.put(heliostat.getId(), heliostat.getQuarantinedMillis());
+        }
+        return quarantined;
+    }
+}
@@ -0,0 +1,120 @@
+package psa.cesa.cesaom.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * DAO which represents the differences between the running <code>ComLine</code> configuration and a new one.
+ * <p>
+ * <code>Heliostat</code> ids are modbus addresses, unique within a <code>ComLine</code>. An address which leaves one
+ * <code>ComLine</code> and appears in another one is moved, not removed and added, so its values can be carried over.
+ */
+public class ConfigDiff {
+    /**
+     * @param addedLines <code>ComLine</code> ids only in the new configuration.
+     * @param removedLines <code>ComLine</code> ids only in the running configuration.
+     * @param changedLines <code>ComLine</code> ids in both whose port, <code>Heliostat</code> objects or
+     * <code>ReadPlan</code> differ.
+     * @param addedHeliostats new <code>Heliostat</code> ids by <code>ComLine</code> id.
+     * @param removedHeliostats dropped <code>Heliostat</code> ids by <code>ComLine</code> id.
+     * @param movedHeliostats the <code>ComLine</code> id every <code>Heliostat</code> id comes from, by the
+     * <code>ComLine</code> id it moves to.
+     */
+    private List<Integer> addedLines = new ArrayList<>();
+    private List<Integer> removedLines = new ArrayList<>();
+    private List<Integer> changedLines = new ArrayList<>();
+    private Map<Integer, List<Integer>> addedHeliostats = new TreeMap<>();
+    private Map<Integer, List<Integer>> removedHeliostats = new TreeMap<>();
+    private Map<Integer, Map<Integer, Integer>> movedHeliostats = new TreeMap<>();
+
+    /**
+     * @param current the running <code>ComLine</code> objects by id.
+     * @param next    the new <code>ComLine</code> objects by id.
+     * @return what has to be stopped, started and rebuilt to go from <code>current</code> to <code>next</code>.
+     */
+    public static ConfigDiff between(Map<Integer, ComLine> current, Map<Integer, ComLine> next) {
+        ConfigDiff diff = new ConfigDiff();
+        Map<Integer, List<Integer>> added = new TreeMap<>();
+        Map<Integer, List<Integer>> removed = new TreeMap<>();
+        TreeSet<Integer> ids = new TreeSet<>(current.keySet());
+        ids.addAll(next.keySet());
+        for (int id : ids) {
+            ComLine before = current.get(id);
+            ComLine after = next.get(id);
+            if (before == null) {
+                diff.addedLines.add(id);
+            } else if (after == null) {
+                diff.removedLines.add(id);
+            } else if (!String.valueOf(before.getPortDir()).equals(String.valueOf(after.getPortDir()))
+                    || !before.getHeliostats().keySet().equals(after.getHeliostats().keySet())
+                    || !before.getReadPlan().equals(after.getReadPlan())) {
+                diff.changedLines.add(id);
+            }
+            if (before != null) {
+                for (int heliostatId : before.getHeliostats().keySet()) {
+                    if (after == null || !after.getHeliostats().containsKey(heliostatId))
+                        removed.computeIfAbsent(heliostatId, heliostat -> new ArrayList<>()).add(id);
+                }
+            }
+            if (after != null) {
+                for (int heliostatId : after.getHeliostats().keySet()) {
+                    if (before == null || !before.getHeliostats().containsKey(heliostatId))
+                        added.computeIfAbsent(id, line -> new ArrayList<>()).add(heliostatId);
+                }
+            }
+        }
+        for (Map.Entry<Integer, List<Integer>> line : added.entrySet()) {
+            for (int heliostatId : line.getValue()) {
+                List<Integer> from = removed.get(heliostatId);
+                if (from == null || from.isEmpty()) {
+                    diff.addedHeliostats.computeIfAbsent(line.getKey(), id -> new ArrayList<>()).add(heliostatId);
+                } else {
+                    diff.movedHeliostats.computeIfAbsent(line.getKey(), id -> new TreeMap<>()).put(heliostatId, from.remove(0));
+                }
+            }
+        }
+        for (Map.Entry<Integer, List<Integer>> heliostat : removed.entrySet()) {
+            for (int id : heliostat.getValue()) {
+                diff.removedHeliostats.computeIfAbsent(id, line -> new ArrayList<>()).add(heliostat.getKey());
+            }
+        }
+        return diff;
+    }
+
+    public List<Integer> getAddedLines() {
+        return addedLines;
+    }
+
+    public List<Integer> getRemovedLines() {
+        return removedLines;
+    }
+
+    public List<Integer> getChangedLines() {
+        return changedLines;
+    }
+
+    public Map<Integer, List<Integer>> getAddedHeliostats() {
+        return addedHeliostats;
+    }
+
+    public Map<Integer, List<Integer>> getRemovedHeliostats() {
+        return removedHeliostats;
+    }
+
+    public Map<Integer, Map<Integer, Integer>> getMovedHeliostats() {
+        return movedHeliostats;
+    }
+
+    /**
+     * @return if both configurations are the same.
+     */
+    @JsonIgnore
+    public boolean isEmpty() {
+        return addedLines.isEmpty() && removedLines.isEmpty() && changedLines.isEmpty();
+    }
+}
@@ -0,0 +1,64 @@
+package psa.cesa.cesaom.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DAO which represents the RTU objects found on the bus of a <code>ComLine</code> by a discovery, compared with the
+ * <code>Heliostat</code> objects of its configuration.
+ */
+public class DiscoveryResult {
+    /**
+     * @param comLineId the <code>ComLine</code> whose bus has been probed.
+     * @param portDir is the OS serial port direction.
+     * @param responding probed addresses which have answered.
+     * @param skipped configured addresses which have not been probed, as they are answering their polls.
+     * @param added addresses which have answered and are not configured.
+     * @param missing configured addresses which have been probed and have not answered.
+     * @param millis time taken by the discovery.
+     */
+    private int comLineId;
+    private String portDir;
+    private List<Integer> responding = new ArrayList<>();
+    private List<Integer> skipped = new ArrayList<>();
+    private List<Integer> added = new ArrayList<>();
+    private List<Integer> missing = new ArrayList<>();
+    private long millis;
+
+    public DiscoveryResult(int comLineId, String portDir) {
+        this.comLineId = comLineId;
+        this.portDir = portDir;
+    }
+
+    public int getComLineId() {
+        return comLineId;
+    }
+
+    public String getPortDir() {
+        return portDir;
+    }
+
+    public List<Integer> getResponding() {
+        return responding;
+    }
+
+    public List<Integer> getSkipped() {
+        return skipped;
+    }
+
+    public List<Integer> getAdded() {
+        return added;
+    }
+
+    public List<Integer> getMissing() {
+        return missing;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public void setMillis(long millis) {
+        this.millis = millis;
+    }
+}
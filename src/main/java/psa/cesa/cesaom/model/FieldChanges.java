@@ -0,0 +1,69 @@
+package psa.cesa.cesaom.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * DAO with the <code>Heliostat</code> values changed after a client version, see <method>FieldChanges.since</method>.
+ * <p>
+ * When <code>resync</code> is set every <code>Heliostat</code> is included and the client must drop what it has.
+ */
+public final class FieldChanges {
+    /**
+     * @param version the version to ask from next time.
+     * @param resync if the changes could not be worked out and these are all the values.
+     * @param lines changed <code>HeliostatSnapshot</code> objects by <code>ComLine</code> id, lines without changes are left out.
+     */
+    private final long version;
+    private final boolean resync;
+    private final Map<Integer, List<HeliostatSnapshot>> lines;
+
+    public FieldChanges(long version, boolean resync, Map<Integer, List<HeliostatSnapshot>> lines) {
+        this.version = version;
+        this.resync = resync;
+        this.lines = Collections.unmodifiableMap(lines);
+    }
+
+    /**
+     * A client is resynchronized if it has no version yet, if its version is newer than the field one, or if it is
+     * older than the field base version (a line has changed its heliostats, or the version comes from an earlier
+     * start of the service, see <code>SnapshotStore</code>).
+     *
+     * @param field        the last published snapshots.
+     * @param sinceVersion the last version the client has.
+     * @return the <code>Heliostat</code> objects whose values have changed after <code>sinceVersion</code>.
+     */
+    public static FieldChanges since(FieldSnapshot field, long sinceVersion) {
+        boolean resync = sinceVersion <= 0 || sinceVersion > field.getVersion() || sinceVersion < field.getBaseVersion();
+        Map<Integer, List<HeliostatSnapshot>> lines = new TreeMap<>();
+        for (ComLineSnapshot line : field.getLines().values()) {
+            long[] changedVersions = field.getChangedVersions().get(line.getId());
+            List<HeliostatSnapshot> changed = null;
+            for (HeliostatSnapshot heliostat : line.getHeliostats().values()) {
+                if (resync || changedVersions == null || changedVersions[heliostat.getId()] > sinceVersion) {
+                    if (changed == null)
+                        changed = new ArrayList<>();
+                    changed.add(heliostat);
+                }
+            }
+            if (changed != null)
+                lines.put(line.getId(), changed);
+        }
+        return new FieldChanges(field.getVersion(), resync, lines);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isResync() {
+        return resync;
+    }
+
+    public Map<Integer, List<HeliostatSnapshot>> getLines() {
+        return lines;
+    }
+}
@@ -0,0 +1,60 @@
+package psa.cesa.cesaom.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable set of the last <code>ComLineSnapshot</code> of every <code>ComLine</code>, read in one go.
+ */
+public final class FieldSnapshot {
+    /**
+     * @param version increases by one every time any line publishes a snapshot.
+     * @param baseVersion oldest version changes can be worked out from, it moves when a line changes its heliostats.
+     * @param lines last <code>ComLineSnapshot</code> by <code>ComLine</code> id.
+     * @param changedVersions version when the values of every <code>Heliostat</code> last changed, by
+     * <code>ComLine</code> id and modbus slave address.
+     */
+    private final long version;
+    private final long baseVersion;
+    private final Map<Integer, ComLineSnapshot> lines;
+    private final Map<Integer, long[]> changedVersions;
+
+    public FieldSnapshot(long version, Map<Integer, ComLineSnapshot> lines) {
+        this(version, 0, lines, Collections.emptyMap());
+    }
+
+    /**
+     * @param changedVersions arrays which are never modified once published.
+     */
+    public FieldSnapshot(long version, long baseVersion, Map<Integer, ComLineSnapshot> lines, Map<Integer, long[]> changedVersions) {
+        this.version = version;
+        this.baseVersion = baseVersion;
+        this.lines = Collections.unmodifiableMap(lines);
+        this.changedVersions = Collections.unmodifiableMap(changedVersions);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getBaseVersion() {
+        return baseVersion;
+    }
+
+    public Map<Integer, ComLineSnapshot> getLines() {
+        return lines;
+    }
+
+    /**
+     * The arrays must not be modified.
+     *
+     * @return version when the values of every <code>Heliostat</code> last changed, by <code>ComLine</code> id and
+     * modbus slave address.
+     */
+    @JsonIgnore
+    public Map<Integer, long[]> getChangedVersions() {
+        return changedVersions;
+    }
+}
@@ -0,0 +1,330 @@
+package psa.cesa.cesaom.model;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * It keeps the values of every <code>Heliostat</code> of a <code>ComLine</code> in parallel arrays indexed by modbus
+ * slave address, with a bitmap of the addresses in use.
+ * <p>
+ * A <code>Heliostat</code> is a view over one slot, so scans, snapshots and serialization read contiguous arrays
+ * instead of one object per <code>Heliostat</code> behind a hash map. <method>getHeliostats</method> gives the
+ * <code>Map</code> view the rest of the code uses.
+ */
+public class FieldState {
+    /**
+     * @param CAPACITY slots of a <code>ComLine</code>, one for every modbus address.
+     * @param COM_FAILURE event of a <code>Heliostat</code> which has not answered yet.
+     * @param LINK_STATES <code>LinkState</code> values by ordinal.
+     * @param present bitmap of the slots in use.
+     * @param size slots in use.
+     * @param ids the addresses in use in ascending order, so scans are a plain loop over <code>size</code> entries.
+     * @param views the <code>Heliostat</code> view of every slot in use.
+     * @param state state of every slot.
+     * @param event event of every slot.
+     * @param diagnosisAZ axis diagnosis of every slot.
+     * @param diagnosisEL axis diagnosis of every slot.
+     * @param positionAZ actual azimuth position of every slot.
+     * @param positionEL actual elevation position of every slot.
+     * @param setPointAZ azimuth set point of every slot.
+     * @param setPointEL elevation set point of every slot.
+     * @param linkState <code>LinkState</code> ordinal of every slot.
+     * @param failures polls in a row not answered of every slot.
+     * @param quarantinedSince epoch milliseconds when every slot was quarantined.
+     * @param sampledAt epoch milliseconds of the last poll of every slot.
+     * @param heliostats the <code>Map</code> view by modbus slave address.
+     */
+    public static final int CAPACITY = Modbus.ADDRESS_COUNT;
+    static final int COM_FAILURE = 0x10;
+    private static final LinkState[] LINK_STATES = LinkState.values();
+
+    private final long[] present;
+    private int size;
+    private final int[] ids;
+    private final Heliostat[] views;
+    final int[] state;
+    final int[] event;
+    final int[] diagnosisAZ, diagnosisEL;
+    final int[] positionAZ, positionEL;
+    final int[] setPointAZ, setPointEL;
+    final byte[] linkState;
+    final int[] failures;
+    final long[] quarantinedSince;
+    final long[] sampledAt;
+    private final Map<Integer, Heliostat> heliostats = new HeliostatMap();
+
+    public FieldState() {
+        this(CAPACITY);
+    }
+
+    /**
+     * @param capacity slots, addresses from 0 to <code>capacity</code> - 1.
+     */
+    FieldState(int capacity) {
+        present = new long[(capacity + 63) / 64];
+        views = new Heliostat[capacity];
+        ids = new int[capacity];
+        state = new int[capacity];
+        event = new int[capacity];
+        diagnosisAZ = new int[capacity];
+        diagnosisEL = new int[capacity];
+        positionAZ = new int[capacity];
+        positionEL = new int[capacity];
+        setPointAZ = new int[capacity];
+        setPointEL = new int[capacity];
+        linkState = new byte[capacity];
+        failures = new int[capacity];
+        quarantinedSince = new long[capacity];
+        sampledAt = new long[capacity];
+    }
+
+    /**
+     * Takes the slot of a new <code>Heliostat</code>, as it is before its first poll.
+     *
+     * @param id modbus slave address.
+     * @return the <code>Heliostat</code> view of the slot, the existing one if it is already in use.
+     */
+    public Heliostat add(int id) {
+        if (id < 0 || id >= views.length)
+            throw new IllegalArgumentException("Modbus address out of range: " + id);
+        if (!contains(id)) {
+            clear(id);
+            present[id >>> 6] |= 1L << id;
+            int index = size++;
+            for (; index > 0 && ids[index - 1] > id; index--) {
+                ids[index] = ids[index - 1];
+            }
+            ids[index] = id;
+            views[id] = new Heliostat(id, this, id);
+        }
+        return views[id];
+    }
+
+    /**
+     * @param id modbus slave address.
+     * @return if the slot is in use.
+     */
+    public boolean contains(int id) {
+        return id >= 0 && id < views.length && (present[id >>> 6] & 1L << id) != 0;
+    }
+
+    /**
+     * @param id modbus slave address.
+     * @return the <code>Heliostat</code> view of the slot, null if it is not in use.
+     */
+    public Heliostat get(int id) {
+        return contains(id) ? views[id] : null;
+    }
+
+    /**
+     * @param id modbus slave address.
+     * @return the state of the slot, without going through its <code>Heliostat</code> view.
+     */
+    public int getState(int id) {
+        return state[id];
+    }
+
+    /**
+     * @param id modbus slave address.
+     * @return the event of the slot, without going through its <code>Heliostat</code> view.
+     */
+    public int getEvent(int id) {
+        return event[id];
+    }
+
+    /**
+     * @return slots in use.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Scans go <code>for (int i = 0; i < size(); i++)</code> over <code>id(i)</code>.
+     *
+     * @param index position from 0 to <method>size</method> - 1.
+     * @return the address in use at that position, in ascending order.
+     */
+    public int id(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @return the <code>Heliostat</code> views by modbus slave address, in address order.
+     */
+    public Map<Integer, Heliostat> getHeliostats() {
+        return heliostats;
+    }
+
+    LinkState linkState(int slot) {
+        return LINK_STATES[linkState[slot]];
+    }
+
+    /**
+     * Sets the values of a slot as they are before the first poll.
+     *
+     * @param slot the slot index.
+     */
+    void clear(int slot) {
+        state[slot] = 0;
+        event[slot] = COM_FAILURE;
+        diagnosisAZ[slot] = diagnosisEL[slot] = 0;
+        positionAZ[slot] = positionEL[slot] = 0;
+        setPointAZ[slot] = setPointEL[slot] = 0;
+        linkState[slot] = (byte) LinkState.HEALTHY.ordinal();
+        failures[slot] = 0;
+        quarantinedSince[slot] = 0;
+        sampledAt[slot] = 0;
+    }
+
+    /**
+     * Copies every value of a <code>Heliostat</code> into a slot.
+     *
+     * @param slot      the slot index.
+     * @param heliostat the values to copy.
+     */
+    void copy(int slot, Heliostat heliostat) {
+        state[slot] = heliostat.getState();
+        event[slot] = heliostat.getEvent();
+        diagnosisAZ[slot] = heliostat.getDiagnosisAZ();
+        diagnosisEL[slot] = heliostat.getDiagnosisEL();
+        positionAZ[slot] = heliostat.getPositionAZ();
+        positionEL[slot] = heliostat.getPositionEL();
+        setPointAZ[slot] = heliostat.getSetPointAZ();
+        setPointEL[slot] = heliostat.getSetPointEL();
+        linkState[slot] = (byte) heliostat.getLinkState().ordinal();
+        failures[slot] = heliostat.getFailures();
+        quarantinedSince[slot] = heliostat.getQuarantinedSince();
+        sampledAt[slot] = heliostat.getSampledAt();
+    }
+
+    /**
+     * The <code>Map</code> view: <method>get</method> reads one slot, iteration walks the addresses in order and
+     * <method>put</method> copies the values of the given <code>Heliostat</code> into its slot.
+     */
+    private class HeliostatMap extends AbstractMap<Integer, Heliostat> {
+
+        @Override
+        public Heliostat get(Object key) {
+            return key instanceof Integer ? FieldState.this.get((Integer) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && contains((Integer) key);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Heliostat put(Integer key, Heliostat heliostat) {
+            Heliostat previous = FieldState.this.get(key);
+            if (previous == heliostat)
+                return previous;
+            add(key);
+            copy(key, heliostat);
+            return previous;
+        }
+
+        @Override
+        public Heliostat remove(Object key) {
+            Heliostat previous = get(key);
+            if (previous != null) {
+                int id = (Integer) key;
+                present[id >>> 6] &= ~(1L << id);
+                int index = 0;
+                while (ids[index] != id) {
+                    index++;
+                }
+                System.arraycopy(ids, index + 1, ids, index, --size - index);
+                views[id] = null;
+            }
+            return previous;
+        }
+
+        @Override
+        public Set<Entry<Integer, Heliostat>> entrySet() {
+            return entries;
+        }
+
+        @Override
+        public Collection<Heliostat> values() {
+            return values;
+        }
+
+        private final Set<Entry<Integer, Heliostat>> entries = new AbstractSet<Entry<Integer, Heliostat>>() {
+            @Override
+            public Iterator<Entry<Integer, Heliostat>> iterator() {
+                return new SlotIterator<Entry<Integer, Heliostat>>() {
+                    @Override
+                    Entry<Integer, Heliostat> element(int slot) {
+                        return new SimpleImmutableEntry<>(slot, views[slot]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+
+        private final Collection<Heliostat> values = new AbstractCollection<Heliostat>() {
+            @Override
+            public Iterator<Heliostat> iterator() {
+                return new SlotIterator<Heliostat>() {
+                    @Override
+                    Heliostat element(int slot) {
+                        return views[slot];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Walks the addresses in use in ascending order.
+     */
+    private abstract class SlotIterator<E> implements Iterator<E> {
+        int index;
+        int last = -1;
+
+        abstract E element(int slot);
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        public E next() {
+            if (index >= size)
+                throw new NoSuchElementException();
+            last = ids[index++];
+            return element(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0)
+                throw new IllegalStateException();
+            heliostats.remove(last);
+            index--;
+            last = -1;
+        }
+    }
+}
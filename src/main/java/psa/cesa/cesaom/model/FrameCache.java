@@ -0,0 +1,52 @@
+package psa.cesa.cesaom.model;
+
+import java.util.Collection;
+
+/**
+ * It keeps the poll frame of every <code>Heliostat</code> within a <code>ComLine</code>, built once when the field is
+ * loaded so polling neither allocates memory nor calculates CRC.
+ * <p>
+ * The frames are shared and must never be modified.
+ */
+public class FrameCache {
+    /**
+     * @param POLL_ARRAY Contents the bytes to send a poll request on any heliostat: function 3, 8 registers from 0x0010.
+     * @param pollFrames poll frames indexed by modbus slave address.
+     */
+    private static final byte[] POLL_ARRAY = {0x03, 0x00, 0x10, 0x00, 0x08};
+
+    private final byte[][] pollFrames = new byte[Modbus.ADDRESS_COUNT][];
+
+    /**
+     * @param addresses modbus slave addresses of the <code>Heliostat</code> objects.
+     */
+    public FrameCache(Collection<Integer> addresses) {
+        for (int address : addresses) {
+            pollFrames[address] = buildPollFrame(address);
+        }
+    }
+
+    /**
+     * @param address modbus slave address.
+     * @return the cached poll frame, or a new one if the address is not within the <code>ComLine</code>.
+     */
+    public byte[] getPollFrame(int address) {
+        int slave = address & 0xFF;
+        byte[] frame = slave < pollFrames.length ? pollFrames[slave] : null;
+        return frame != null ? frame : buildPollFrame(address);
+    }
+
+    /**
+     * Adds the <code>Heliostat</code> address, the poller bytes and CRC into an array.
+     *
+     * @param address modbus slave address.
+     * @return the poll frame.
+     */
+    public static byte[] buildPollFrame(int address) {
+        byte[] frame = new byte[POLL_ARRAY.length + 3];
+        frame[0] = (byte) address;
+        System.arraycopy(POLL_ARRAY, 0, frame, 1, POLL_ARRAY.length);
+        CRC.append(frame, POLL_ARRAY.length + 1);
+        return frame;
+    }
+}
@@ -1,33 +1,41 @@
 package psa.cesa.cesaom.model;
 
-import java.nio.ByteBuffer;
-
 /**
  * DAO which represents a physical heliostat.
+ * <p>
+ * It is a view over one slot of a <code>FieldState</code>, the values live in the arrays of its <code>ComLine</code>.
  */
 public class Heliostat {
     /**
      * @param id Represents the modbus slave address.
-     * @param state Static and dynamic positions representation.
-     * @param event Operation, security, communications and such events.
-     * @param diagnosisAz Axis diagnosis.
-     * @param diagnosisEl Axis diagnosis.
-     * @param positionAz Actual azimuth position.
-     * @param positionEL Actual elevation position.
-     * @param setPointAZ Azimuth set point.
-     * @param setPointEL Elevation set point.
+     * @param values the <code>FieldState</code> which holds the values: state, event, axis diagnosis, actual
+     * positions, set points, link state, failures in a row, quarantine and last poll times.
+     * @param slot index of the values within the <code>FieldState</code> arrays.
      */
 
     private int id;
-    private int state;
-    private int event;
-    private int diagnosisAZ, diagnosisEL;
-    private int positionAZ, positionEL;
-    private int setPointAZ, setPointEL;
+    private final FieldState values;
+    private final int slot;
 
+    /**
+     * A <code>Heliostat</code> outside any <code>ComLine</code>, with its own single slot <code>FieldState</code>.
+     *
+     * @param id modbus slave address.
+     */
     public Heliostat(int id) {
+        this(id, new FieldState(1), 0);
+        values.clear(0);
+    }
+
+    /**
+     * @param id     modbus slave address.
+     * @param values the <code>FieldState</code> of its <code>ComLine</code>.
+     * @param slot   index of the values within the arrays.
+     */
+    Heliostat(int id, FieldState values, int slot) {
         this.id = id;
-        event = 16;
+        this.values = values;
+        this.slot = slot;
     }
 
     public int getId() {
@@ -39,103 +47,167 @@ public class Heliostat {
     }
 
     public int getState() {
-        return state;
+        return values.state[slot];
     }
 
     public void setState(int state) {
-        this.state = state;
+        values.state[slot] = state;
     }
 
     public int getEvent() {
-        return event;
+        return values.event[slot];
     }
 
     public void setEvent(int event) {
-        this.event = event;
+        values.event[slot] = event;
     }
 
     public int getDiagnosisAZ() {
-        return diagnosisAZ;
+        return values.diagnosisAZ[slot];
     }
 
     public void setDiagnosisAZ(int diagnosisAZ) {
-        this.diagnosisAZ = diagnosisAZ;
+        values.diagnosisAZ[slot] = diagnosisAZ;
     }
 
     public int getDiagnosisEL() {
-        return diagnosisEL;
+        return values.diagnosisEL[slot];
     }
 
     public void setDiagnosisEL(int diagnosisEL) {
-        this.diagnosisEL = diagnosisEL;
+        values.diagnosisEL[slot] = diagnosisEL;
     }
 
     public int getPositionAZ() {
-        return positionAZ;
+        return values.positionAZ[slot];
     }
 
     public void setPositionAZ(int positionAZ) {
-        this.positionAZ = positionAZ;
+        values.positionAZ[slot] = positionAZ;
     }
 
     public int getPositionEL() {
-        return positionEL;
+        return values.positionEL[slot];
     }
 
     public void setPositionEL(int positionEL) {
-        this.positionEL = positionEL;
+        values.positionEL[slot] = positionEL;
     }
 
     public int getSetPointAZ() {
-        return setPointAZ;
+        return values.setPointAZ[slot];
     }
 
     public void setSetPointAZ(int setPointAZ) {
-        this.setPointAZ = setPointAZ;
+        values.setPointAZ[slot] = setPointAZ;
     }
 
     public int getSetPointEL() {
-        return setPointEL;
+        return values.setPointEL[slot];
     }
 
     public void setSetPointEL(int setPointEL) {
-        this.setPointEL = setPointEL;
+        values.setPointEL[slot] = setPointEL;
+    }
+
+    public LinkState getLinkState() {
+        return values.linkState(slot);
+    }
+
+    public void setLinkState(LinkState linkState) {
+        values.linkState[slot] = (byte) linkState.ordinal();
+    }
+
+    public int getFailures() {
+        return values.failures[slot];
+    }
+
+    public void setFailures(int failures) {
+        values.failures[slot] = failures;
+    }
+
+    public long getQuarantinedSince() {
+        return values.quarantinedSince[slot];
+    }
+
+    public void setQuarantinedSince(long quarantinedSince) {
+        values.quarantinedSince[slot] = quarantinedSince;
+    }
+
+    public long getSampledAt() {
+        return values.sampledAt[slot];
+    }
+
+    public void setSampledAt(long sampledAt) {
+        values.sampledAt[slot] = sampledAt;
+    }
+
+    /**
+     * @return milliseconds since the RTU was quarantined, 0 if it is not quarantined.
+     */
+    public long getQuarantinedMillis() {
+        return getLinkState() == LinkState.QUARANTINED ? System.currentTimeMillis() - getQuarantinedSince() : 0;
     }
 
     /**
-     * Sets the <code>Heliostat</code> attributes by separating the modbus frame into individual bytes.
+     * Moves the link to HEALTHY after an answer, or towards QUARANTINED after a poll without answer.
      *
-     * @param receivedBuffer bytes frame from the modbus RTU.
+     * @param answered        if the RTU has answered the poll.
+     * @param quarantineAfter polls in a row without answer which quarantine the RTU.
      */
-    public void setAttributes(ByteBuffer receivedBuffer) {
-        for (int i = 0; i < receivedBuffer.array().length; i++) {
-            Byte b = receivedBuffer.get(i);
+    public void updateLink(boolean answered, int quarantineAfter) {
+        if (answered) {
+            values.failures[slot] = 0;
+            setLinkState(LinkState.HEALTHY);
+            values.quarantinedSince[slot] = 0;
+            return;
+        }
+        int failures = ++values.failures[slot];
+        if (failures < quarantineAfter) {
+            setLinkState(LinkState.SUSPECT);
+        } else if (getLinkState() != LinkState.QUARANTINED) {
+            setLinkState(LinkState.QUARANTINED);
+            values.quarantinedSince[slot] = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Sets the <code>Heliostat</code> attributes from the registers of a valid poll response, see
+     * <method>ModbusDecoder.check</method>. Every register is a big-endian unsigned short.
+     *
+     * @param frame  bytes frame from the modbus RTU.
+     * @param length bytes of the frame within the array.
+     */
+    public void setAttributes(byte[] frame, int length) {
+        int registers = ModbusDecoder.registerCount(length);
+        for (int i = 0; i < registers; i++) {
+            int value = ModbusDecoder.register(frame, i);
             switch (i) {
-                case 4:
-                    setState(b);
+                case 0:
+                    setState(value);
                     break;
-                case 6:
-                    setEvent(b);
+                case 1:
+                    setEvent(value);
                     break;
-                case 8:
-                    setDiagnosisAZ(b);
+                case 2:
+                    setDiagnosisAZ(value);
                     break;
-                case 10:
-                    setDiagnosisEL(b);
+                case 3:
+                    setDiagnosisEL(value);
                     break;
-                case 12:
-                    setPositionAZ(b);
+                case 4:
+                    setPositionAZ(value);
                     break;
-                case 14:
-                    setPositionEL(b);
+                case 5:
+                    setPositionEL(value);
                     break;
-                case 16:
-                    setSetPointAZ(b);
+                case 6:
+                    setSetPointAZ(value);
                     break;
-                case 18:
-                    setSetPointEL(b);
+                case 7:
+                    setSetPointEL(value);
                     break;
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,26 @@
+package psa.cesa.cesaom.model;
+
+/**
+ * DAO which represents new values of a <code>Heliostat</code> pushed to the stream subscribers.
+ */
+public final class HeliostatChange {
+    /**
+     * @param comLineId the identification of the <code>ComLine</code> of the <code>Heliostat</code>.
+     * @param heliostat the new values.
+     */
+    private final int comLineId;
+    private final HeliostatSnapshot heliostat;
+
+    public HeliostatChange(int comLineId, HeliostatSnapshot heliostat) {
+        this.comLineId = comLineId;
+        this.heliostat = heliostat;
+    }
+
+    public int getComLineId() {
+        return comLineId;
+    }
+
+    public HeliostatSnapshot getHeliostat() {
+        return heliostat;
+    }
+}
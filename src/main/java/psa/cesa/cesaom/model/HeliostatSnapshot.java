@@ -0,0 +1,127 @@
+package psa.cesa.cesaom.model;
+
+/**
+ * Immutable copy of the <code>Heliostat</code> values taken from one poll.
+ */
+public final class HeliostatSnapshot {
+    /**
+     * @param id Represents the modbus slave address.
+     * @param state Static and dynamic positions representation.
+     * @param event Operation, security, communications and such events.
+     * @param diagnosisAZ Axis diagnosis.
+     * @param diagnosisEL Axis diagnosis.
+     * @param positionAZ Actual azimuth position.
+     * @param positionEL Actual elevation position.
+     * @param setPointAZ Azimuth set point.
+     * @param setPointEL Elevation set point.
+     * @param linkState communications health of the RTU.
+     * @param quarantinedSince epoch milliseconds when the RTU was quarantined.
+     * @param sampledAt epoch milliseconds of the poll the values come from.
+     */
+    private final int id;
+    private final int state;
+    private final int event;
+    private final int diagnosisAZ, diagnosisEL;
+    private final int positionAZ, positionEL;
+    private final int setPointAZ, setPointEL;
+    private final LinkState linkState;
+    private final long quarantinedSince;
+    private final long sampledAt;
+
+    public HeliostatSnapshot(Heliostat heliostat) {
+        id = heliostat.getId();
+        state = heliostat.getState();
+        event = heliostat.getEvent();
+        diagnosisAZ = heliostat.getDiagnosisAZ();
+        diagnosisEL = heliostat.getDiagnosisEL();
+        positionAZ = heliostat.getPositionAZ();
+        positionEL = heliostat.getPositionEL();
+        setPointAZ = heliostat.getSetPointAZ();
+        setPointEL = heliostat.getSetPointEL();
+        linkState = heliostat.getLinkState();
+        quarantinedSince = heliostat.getQuarantinedSince();
+        sampledAt = heliostat.getSampledAt();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    public int getEvent() {
+        return event;
+    }
+
+    public int getDiagnosisAZ() {
+        return diagnosisAZ;
+    }
+
+    public int getDiagnosisEL() {
+        return diagnosisEL;
+    }
+
+    public int getPositionAZ() {
+        return positionAZ;
+    }
+
+    public int getPositionEL() {
+        return positionEL;
+    }
+
+    public int getSetPointAZ() {
+        return setPointAZ;
+    }
+
+    public int getSetPointEL() {
+        return setPointEL;
+    }
+
+    public LinkState getLinkState() {
+        return linkState;
+    }
+
+    public long getQuarantinedSince() {
+        return quarantinedSince;
+    }
+
+    /**
+     * @return milliseconds since the RTU was quarantined, 0 if it is not quarantined.
+     */
+    public long getQuarantinedMillis() {
+        return linkState == LinkState.QUARANTINED ? System.currentTimeMillis() - quarantinedSince : 0;
+    }
+
+    public long getSampledAt() {
+        return sampledAt;
+    }
+
+    /**
+     * @param other a snapshot of the same <code>Heliostat</code>.
+     * @return if both have the same values, whenever they were sampled.
+     */
+    public boolean sameValues(HeliostatSnapshot other) {
+        return other != null && id == other.id && state == other.state && event == other.event
+                && diagnosisAZ == other.diagnosisAZ && diagnosisEL == other.diagnosisEL
+                && positionAZ == other.positionAZ && positionEL == other.positionEL
+                && setPointAZ == other.setPointAZ && setPointEL == other.setPointEL
+                && linkState == other.linkState && quarantinedSince == other.quarantinedSince;
+    }
+
+    /**
+     * It does the same as the other <method>sameValues</method> without taking a snapshot of the
+     * <code>Heliostat</code>.
+     *
+     * @param heliostat the <code>Heliostat</code> this snapshot has been taken from.
+     * @return if it still has the same values.
+     */
+    public boolean sameValues(Heliostat heliostat) {
+        return id == heliostat.getId() && state == heliostat.getState() && event == heliostat.getEvent()
+                && diagnosisAZ == heliostat.getDiagnosisAZ() && diagnosisEL == heliostat.getDiagnosisEL()
+                && positionAZ == heliostat.getPositionAZ() && positionEL == heliostat.getPositionEL()
+                && setPointAZ == heliostat.getSetPointAZ() && setPointEL == heliostat.getSetPointEL()
+                && linkState == heliostat.getLinkState() && quarantinedSince == heliostat.getQuarantinedSince();
+    }
+}
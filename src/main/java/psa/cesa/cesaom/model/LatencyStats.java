@@ -0,0 +1,44 @@
+package psa.cesa.cesaom.model;
+
+/**
+ * DAO which keeps the time taken by the <code>ModbusRequest</code> objects of one <code>Priority</code>,
+ * from being queued until their response has been received.
+ */
+public class LatencyStats {
+    /**
+     * @param count measured requests.
+     * @param totalNanos sum of every latency.
+     * @param maxNanos worst latency.
+     * @param lastNanos latency of the last request.
+     */
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+    private long lastNanos;
+
+    /**
+     * @param nanos time from being queued until the response.
+     */
+    public synchronized void record(long nanos) {
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+        lastNanos = nanos;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized double getMeanMillis() {
+        return count == 0 ? 0 : totalNanos / 1e6 / count;
+    }
+
+    public synchronized double getMaxMillis() {
+        return maxNanos / 1e6;
+    }
+
+    public synchronized double getLastMillis() {
+        return lastNanos / 1e6;
+    }
+}
@@ -0,0 +1,13 @@
+package psa.cesa.cesaom.model;
+
+/**
+ * Communications health of a <code>Heliostat</code> RTU.
+ * <p>
+ * HEALTHY the last poll has been answered.
+ * SUSPECT the last polls have not been answered, it is still polled with the normal response timeout.
+ * QUARANTINED too many polls in a row have not been answered, it is only probed with a short timeout and an
+ * exponential backoff until it answers again.
+ */
+public enum LinkState {
+    HEALTHY, SUSPECT, QUARANTINED
+}
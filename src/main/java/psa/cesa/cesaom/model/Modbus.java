@@ -0,0 +1,94 @@
+package psa.cesa.cesaom.model;
+
+/**
+ * From MODBUS over serial line specification and implementation guide V1.02 (2.5.1.1 MODBUS Message RTU Framing).
+ * <p>
+ * It contains the RTU framing rules needed to know when a response frame is complete.
+ */
+public class Modbus {
+    /**
+     * @param BROADCAST_ADDRESS every RTU executes frames sent to it without replying.
+     * @param MAX_SLAVE_ADDRESS highest address a RTU may have, the rest are reserved.
+     * @param ADDRESS_COUNT length of the arrays indexed by modbus slave address, from the broadcast address to
+     * <code>MAX_SLAVE_ADDRESS</code>.
+     * @param READ_HOLDING_REGISTERS function code 3.
+     * @param WRITE_MULTIPLE_REGISTERS function code 16.
+     * @param EXCEPTION_FLAG set in the function code of an exception response.
+     * @param EXCEPTION_LENGTH address, function, exception code and CRC.
+     * @param MAX_FRAME_LENGTH RTU frames are never longer than 256 bytes.
+     * @param FIXED_SILENCE_MICROS t3.5 recommended for baud rates greater than 19200.
+     */
+    public static final int BROADCAST_ADDRESS = 0;
+    public static final int MAX_SLAVE_ADDRESS = 247;
+    public static final int ADDRESS_COUNT = MAX_SLAVE_ADDRESS + 1;
+    public static final int READ_HOLDING_REGISTERS = 0x03;
+    public static final int WRITE_MULTIPLE_REGISTERS = 0x10;
+    public static final int EXCEPTION_FLAG = 0x80;
+    public static final int EXCEPTION_LENGTH = 5;
+    public static final int MAX_FRAME_LENGTH = 256;
+    private static final int FIXED_SILENCE_MICROS = 1750;
+
+    /**
+     * Works out the length of the response frame from the request function code.
+     * <p>
+     * Function 3 answers address, function, byte count, two bytes per register and CRC.
+     * Function 16 echoes address, function, starting address, quantity and CRC.
+     *
+     * @param request modbus frame sent to the RTU.
+     * @return expected response bytes, or <code>MAX_FRAME_LENGTH</code> if the function is unknown.
+     */
+    public static int expectedResponseLength(byte[] request) {
+        switch (request[1] & 0xFF) {
+            case READ_HOLDING_REGISTERS:
+                int quantity = ((request[4] & 0xFF) << 8) | (request[5] & 0xFF);
+                return 5 + 2 * quantity;
+            case WRITE_MULTIPLE_REGISTERS:
+                return 8;
+            default:
+                return MAX_FRAME_LENGTH;
+        }
+    }
+
+    /**
+     * @param request modbus frame sent to the RTU.
+     * @return if no RTU will answer it.
+     */
+    public static boolean isBroadcast(byte[] request) {
+        return (request[0] & 0xFF) == BROADCAST_ADDRESS;
+    }
+
+    /**
+     * Checks if the function code byte of a response marks a modbus exception.
+     *
+     * @param function second byte of the response.
+     * @return if it is an exception response.
+     */
+    public static boolean isException(byte function) {
+        return (function & EXCEPTION_FLAG) != 0;
+    }
+
+    /**
+     * Time needed to send one character: start bit, data bits, parity bit and stop bits.
+     *
+     * @param baudRate    signal's changes per second.
+     * @param bitsPerChar bits sent for every byte.
+     * @return character time in microseconds.
+     */
+    public static long charMicros(int baudRate, int bitsPerChar) {
+        return (1_000_000L * bitsPerChar + baudRate - 1) / baudRate;
+    }
+
+    /**
+     * The t3.5 silent interval which marks the end of a RTU frame.
+     *
+     * @param baudRate    signal's changes per second.
+     * @param bitsPerChar bits sent for every byte.
+     * @return inter-frame silence in microseconds.
+     */
+    public static long silenceMicros(int baudRate, int bitsPerChar) {
+        if (baudRate > 19200) {
+            return FIXED_SILENCE_MICROS;
+        }
+        return (charMicros(baudRate, bitsPerChar) * 7 + 1) / 2;
+    }
+}
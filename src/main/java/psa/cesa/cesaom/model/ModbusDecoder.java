@@ -0,0 +1,72 @@
+package psa.cesa.cesaom.model;
+
+/**
+ * It validates RTU response frames and reads their registers in place, straight from the receive buffer.
+ */
+public class ModbusDecoder {
+    /**
+     * @param DATA_OFFSET first register byte of a function 3 response, after address, function and byte count.
+     */
+    private static final int DATA_OFFSET = 3;
+
+    /**
+     * Checks the slave address, function code, byte count and CRC of a response without copying it.
+     *
+     * @param request modbus frame sent to the RTU.
+     * @param frame   buffer holding the response.
+     * @param length  bytes of the response within the buffer.
+     * @return how the response has to be taken.
+     */
+    public static ResponseStatus check(byte[] request, byte[] frame, int length) {
+        if (length < 1) {
+            return ResponseStatus.NO_RESPONSE;
+        }
+        if (frame[0] != request[0]) {
+            return ResponseStatus.WRONG_SLAVE;
+        }
+        if (length < 2) {
+            return ResponseStatus.PARTIAL;
+        }
+        if (Modbus.isException(frame[1])) {
+            if ((frame[1] & (Modbus.EXCEPTION_FLAG - 1)) != request[1]) {
+                return ResponseStatus.CORRUPT;
+            }
+            if (length < Modbus.EXCEPTION_LENGTH) {
+                return ResponseStatus.PARTIAL;
+            }
+            return CRC.verify(frame, 0, Modbus.EXCEPTION_LENGTH) ? ResponseStatus.EXCEPTION : ResponseStatus.CORRUPT;
+        }
+        if (frame[1] != request[1]) {
+            return ResponseStatus.CORRUPT;
+        }
+        int expectedLength = Modbus.expectedResponseLength(request);
+        if (request[1] == Modbus.READ_HOLDING_REGISTERS && length > 2
+                && (frame[2] & 0xFF) != expectedLength - Modbus.EXCEPTION_LENGTH) {
+            return ResponseStatus.CORRUPT;
+        }
+        if (length < expectedLength) {
+            return ResponseStatus.PARTIAL;
+        }
+        return CRC.verify(frame, 0, expectedLength) ? ResponseStatus.OK : ResponseStatus.CORRUPT;
+    }
+
+    /**
+     * Reads one register of a function 3 response as a big-endian unsigned short.
+     *
+     * @param frame response frame.
+     * @param index register number within the response, from 0.
+     * @return the register value.
+     */
+    public static int register(byte[] frame, int index) {
+        int offset = DATA_OFFSET + 2 * index;
+        return ((frame[offset] & 0xFF) << 8) | (frame[offset + 1] & 0xFF);
+    }
+
+    /**
+     * @param length bytes of a valid function 3 response.
+     * @return registers within the response.
+     */
+    public static int registerCount(int length) {
+        return (length - Modbus.EXCEPTION_LENGTH) / 2;
+    }
+}
@@ -0,0 +1,44 @@
+package psa.cesa.cesaom.model;
+
+/**
+ * DAO which represents a modbus frame waiting to be sent through a <code>ComLine</code>.
+ */
+public class ModbusRequest {
+    /**
+     * @param slaveId the RTU modbus slave address.
+     * @param frame complete modbus frame including CRC.
+     * @param priority decides which pending request is sent first.
+     * @param responseTimeout milliseconds to wait for the response, 0 for the transport default.
+     */
+    private final int slaveId;
+    private final byte[] frame;
+    private final Priority priority;
+    private final int responseTimeout;
+
+    public ModbusRequest(byte[] frame, Priority priority) {
+        this(frame, priority, 0);
+    }
+
+    public ModbusRequest(byte[] frame, Priority priority, int responseTimeout) {
+        this.slaveId = frame[0] & 0xFF;
+        this.frame = frame;
+        this.priority = priority;
+        this.responseTimeout = responseTimeout;
+    }
+
+    public int getSlaveId() {
+        return slaveId;
+    }
+
+    public byte[] getFrame() {
+        return frame;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public int getResponseTimeout() {
+        return responseTimeout;
+    }
+}
@@ -0,0 +1,44 @@
+package psa.cesa.cesaom.model;
+
+/**
+ * DAO which represents the answer of a RTU to a <code>ModbusRequest</code>.
+ */
+public class ModbusResponse {
+    /**
+     * @param request the frame which has been sent.
+     * @param frame bytes received from the RTU, empty if it has not answered.
+     * @param status outcome of checking the frame against the request.
+     */
+    private final ModbusRequest request;
+    private final byte[] frame;
+    private final ResponseStatus status;
+
+    public ModbusResponse(ModbusRequest request, byte[] frame) {
+        this(request, frame, ModbusDecoder.check(request.getFrame(), frame, frame.length));
+    }
+
+    public ModbusResponse(ModbusRequest request, byte[] frame, ResponseStatus status) {
+        this.request = request;
+        this.frame = frame;
+        this.status = status;
+    }
+
+    public ModbusRequest getRequest() {
+        return request;
+    }
+
+    public byte[] getFrame() {
+        return frame;
+    }
+
+    public ResponseStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return if the RTU has not sent any byte back.
+     */
+    public boolean isEmpty() {
+        return frame.length < 1;
+    }
+}
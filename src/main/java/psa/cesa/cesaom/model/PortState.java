@@ -0,0 +1,13 @@
+package psa.cesa.cesaom.model;
+
+/**
+ * Health of the serial port of a <code>ComLine</code>.
+ * <p>
+ * CONNECTING the port has not been opened yet.
+ * OPEN the frames are sent through the port.
+ * DISCONNECTED the port could not be opened or has failed, it is opened again with an exponential backoff.
+ * CLOSED the line has been stopped.
+ */
+public enum PortState {
+    CONNECTING, OPEN, DISCONNECTED, CLOSED
+}
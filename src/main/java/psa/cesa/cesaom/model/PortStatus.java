@@ -0,0 +1,47 @@
+package psa.cesa.cesaom.model;
+
+/**
+ * DAO which represents the serial port health of a <code>ComLine</code>, replaced as a whole on every change.
+ */
+public final class PortStatus {
+    /**
+     * @param state the port health.
+     * @param since epoch milliseconds when the port entered <code>state</code>.
+     * @param attempts failed opens in a row.
+     * @param nextAttempt epoch milliseconds of the next open, 0 unless it is disconnected.
+     * @param error why the last open failed, null if it is not known.
+     */
+    private final PortState state;
+    private final long since;
+    private final int attempts;
+    private final long nextAttempt;
+    private final String error;
+
+    public PortStatus(PortState state, long since, int attempts, long nextAttempt, String error) {
+        this.state = state;
+        this.since = since;
+        this.attempts = attempts;
+        this.nextAttempt = nextAttempt;
+        this.error = error;
+    }
+
+    public PortState getState() {
+        return state;
+    }
+
+    public long getSince() {
+        return since;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public long getNextAttempt() {
+        return nextAttempt;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
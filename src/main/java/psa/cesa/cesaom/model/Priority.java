@@ -0,0 +1,14 @@
+package psa.cesa.cesaom.model;
+
+/**
+ * Classes of <code>ModbusRequest</code> objects, from the most to the least urgent.
+ * <p>
+ * EMERGENCY Emergency focus and dejection commands.
+ * OPERATOR Any other command sent by an operator.
+ * TARGETED_READ On demand reads of one <code>Heliostat</code>.
+ * ROUTINE_POLL Periodic <code>ComLine</code> polling.
+ * BACKGROUND Bulk work such as bus scanning.
+ */
+public enum Priority {
+    EMERGENCY, OPERATOR, TARGETED_READ, ROUTINE_POLL, BACKGROUND
+}
@@ -0,0 +1,120 @@
+package psa.cesa.cesaom.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The <code>RegisterBlock</code> objects read periodically from every <code>Heliostat</code> of a
+ * <code>ComLine</code>, besides the routine poll.
+ * <p>
+ * The blocks with the same refresh are merged into as few <code>ReadRequest</code> objects as possible: two blocks
+ * share a request if at most <code>maxGap</code> unused registers lie between them and the request stays within
+ * <code>MAX_REGISTERS</code>. Every request costs a frame turnaround and two silent intervals, a few unused
+ * registers cost much less, but a RTU may reject registers it does not have, so the default gap is 0.
+ */
+public final class ReadPlan {
+    /**
+     * @param MAX_REGISTERS registers a function 3 request may read.
+     * @param EMPTY the plan of a <code>ComLine</code> without blocks.
+     * @param blocks the declared blocks.
+     * @param maxGap unused registers a merged request may read between two blocks.
+     * @param requests the merged requests, by refresh and first register.
+     */
+    public static final int MAX_REGISTERS = 125;
+    public static final ReadPlan EMPTY = new ReadPlan(Collections.emptyList(), 0);
+
+    private final List<RegisterBlock> blocks;
+    private final int maxGap;
+    private final List<ReadRequest> requests;
+
+    /**
+     * @throws IllegalArgumentException if two blocks or two fields have the same name.
+     */
+    public ReadPlan(List<RegisterBlock> blocks, int maxGap) {
+        this.blocks = Collections.unmodifiableList(new ArrayList<>(blocks));
+        this.maxGap = maxGap;
+        Set<String> names = new HashSet<>();
+        for (RegisterBlock block : blocks) {
+            if (!names.add("block " + block.getName()))
+                throw new IllegalArgumentException("Block " + block.getName() + " is declared twice");
+            for (RegisterField field : block.getFields()) {
+                if (!names.add("field " + field.getName()))
+                    throw new IllegalArgumentException("Field " + field.getName() + " is declared twice");
+            }
+        }
+        requests = Collections.unmodifiableList(merge(blocks, maxGap));
+    }
+
+    public List<RegisterBlock> getBlocks() {
+        return blocks;
+    }
+
+    public int getMaxGap() {
+        return maxGap;
+    }
+
+    public List<ReadRequest> getRequests() {
+        return requests;
+    }
+
+    /**
+     * Sorts the blocks of every refresh by first register and merges each one into the previous request if it is
+     * close enough and the result fits.
+     *
+     * @param blocks the declared blocks.
+     * @param maxGap unused registers allowed between two merged blocks.
+     * @return the requests, by refresh and first register.
+     */
+    private static List<ReadRequest> merge(List<RegisterBlock> blocks, int maxGap) {
+        Map<Long, List<RegisterBlock>> tiers = new TreeMap<>();
+        for (RegisterBlock block : blocks) {
+            tiers.computeIfAbsent(block.getRefresh(), refresh -> new ArrayList<>()).add(block);
+        }
+        List<ReadRequest> requests = new ArrayList<>();
+        for (Map.Entry<Long, List<RegisterBlock>> tier : tiers.entrySet()) {
+            List<RegisterBlock> sorted = tier.getValue();
+            sorted.sort(Comparator.comparingInt(RegisterBlock::getStart));
+            int start = -1;
+            int end = 0;
+            List<String> names = new ArrayList<>();
+            List<RegisterField> fields = new ArrayList<>();
+            for (RegisterBlock block : sorted) {
+                if (start >= 0 && (block.getStart() > end + maxGap || Math.max(end, block.getEnd()) - start > MAX_REGISTERS)) {
+                    requests.add(new ReadRequest(start, end - start, tier.getKey(), names, fields));
+                    start = -1;
+                    names = new ArrayList<>();
+                    fields = new ArrayList<>();
+                }
+                if (start < 0) {
+                    start = block.getStart();
+                    end = block.getEnd();
+                }
+                end = Math.max(end, block.getEnd());
+                names.add(block.getName());
+                fields.addAll(block.getFields());
+            }
+            requests.add(new ReadRequest(start, end - start, tier.getKey(), names, fields));
+        }
+        return requests;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ReadPlan))
+            return false;
+        ReadPlan plan = (ReadPlan) o;
+        return maxGap == plan.maxGap && blocks.equals(plan.blocks);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(blocks, maxGap);
+    }
+}
@@ -0,0 +1,76 @@
+package psa.cesa.cesaom.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One function 3 request of a <code>ReadPlan</code>, covering one or more <code>RegisterBlock</code> objects with
+ * the same refresh.
+ */
+public final class ReadRequest {
+    /**
+     * @param start first register read.
+     * @param count registers read.
+     * @param refresh milliseconds between reads on every <code>Heliostat</code>.
+     * @param blocks names of the covered blocks.
+     * @param fields the values decoded from the response.
+     */
+    private final int start;
+    private final int count;
+    private final long refresh;
+    private final List<String> blocks;
+    private final List<RegisterField> fields;
+
+    ReadRequest(int start, int count, long refresh, List<String> blocks, List<RegisterField> fields) {
+        this.start = start;
+        this.count = count;
+        this.refresh = refresh;
+        this.blocks = Collections.unmodifiableList(blocks);
+        this.fields = Collections.unmodifiableList(fields);
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getRefresh() {
+        return refresh;
+    }
+
+    public List<String> getBlocks() {
+        return blocks;
+    }
+
+    public List<RegisterField> getFields() {
+        return fields;
+    }
+
+    /**
+     * @param address modbus slave address.
+     * @return the function 3 frame with its CRC.
+     */
+    public byte[] buildFrame(int address) {
+        byte[] frame = new byte[8];
+        frame[0] = (byte) address;
+        frame[1] = Modbus.READ_HOLDING_REGISTERS;
+        frame[2] = (byte) (start >>> 8);
+        frame[3] = (byte) start;
+        frame[4] = (byte) (count >>> 8);
+        frame[5] = (byte) count;
+        CRC.append(frame, 6);
+        return frame;
+    }
+
+    /**
+     * @param field  one of the <code>fields</code>.
+     * @param frame  a valid response of this request.
+     * @return the decoded value.
+     */
+    public long decode(RegisterField field, byte[] frame) {
+        return field.getType().decode(frame, 3 + 2 * (field.getRegister() - start));
+    }
+}
@@ -0,0 +1,82 @@
+package psa.cesa.cesaom.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * DAO which represents a named group of <code>RegisterField</code> objects read with the same refresh.
+ */
+public final class RegisterBlock {
+    /**
+     * @param name identifies the block within a <code>ReadPlan</code>.
+     * @param refresh milliseconds between reads of the block on every <code>Heliostat</code>.
+     * @param fields the values of the block.
+     */
+    private final String name;
+    private final long refresh;
+    private final List<RegisterField> fields;
+
+    /**
+     * @throws IllegalArgumentException if it has no fields or they do not fit in one function 3 request.
+     */
+    public RegisterBlock(String name, long refresh, List<RegisterField> fields) {
+        if (fields.isEmpty())
+            throw new IllegalArgumentException("Block " + name + " has no fields");
+        if (refresh <= 0)
+            throw new IllegalArgumentException("Block " + name + " refresh must be positive");
+        this.name = name;
+        this.refresh = refresh;
+        this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
+        if (getEnd() - getStart() > ReadPlan.MAX_REGISTERS)
+            throw new IllegalArgumentException("Block " + name + " is longer than " + ReadPlan.MAX_REGISTERS + " registers");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getRefresh() {
+        return refresh;
+    }
+
+    public List<RegisterField> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return the first register of the block.
+     */
+    public int getStart() {
+        int start = Integer.MAX_VALUE;
+        for (RegisterField field : fields) {
+            start = Math.min(start, field.getRegister());
+        }
+        return start;
+    }
+
+    /**
+     * @return the register after the block.
+     */
+    public int getEnd() {
+        int end = 0;
+        for (RegisterField field : fields) {
+            end = Math.max(end, field.getEnd());
+        }
+        return end;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof RegisterBlock))
+            return false;
+        RegisterBlock block = (RegisterBlock) o;
+        return refresh == block.refresh && name.equals(block.name) && fields.equals(block.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, refresh, fields);
+    }
+}
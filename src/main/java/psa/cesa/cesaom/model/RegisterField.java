@@ -0,0 +1,55 @@
+package psa.cesa.cesaom.model;
+
+import java.util.Objects;
+
+/**
+ * DAO which represents a named value of a RTU, read with function 3.
+ */
+public final class RegisterField {
+    /**
+     * @param name identifies the value within a <code>ReadPlan</code>.
+     * @param register holding register of the value, the first one if it takes two.
+     * @param type how the registers are decoded.
+     */
+    private final String name;
+    private final int register;
+    private final RegisterType type;
+
+    public RegisterField(String name, int register, RegisterType type) {
+        this.name = name;
+        this.register = register;
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRegister() {
+        return register;
+    }
+
+    public RegisterType getType() {
+        return type;
+    }
+
+    /**
+     * @return the register after the value.
+     */
+    public int getEnd() {
+        return register + type.getWidth();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof RegisterField))
+            return false;
+        RegisterField field = (RegisterField) o;
+        return register == field.register && name.equals(field.name) && type == field.type;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, register, type);
+    }
+}
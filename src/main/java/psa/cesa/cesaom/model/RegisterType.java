@@ -0,0 +1,41 @@
+package psa.cesa.cesaom.model;
+
+/**
+ * How a <code>RegisterField</code> is decoded from the registers of a response.
+ * <p>
+ * U16 and I16 are one register, unsigned and two's complement. U32 and I32 are two registers, the high word first.
+ */
+public enum RegisterType {
+    U16(1), I16(1), U32(2), I32(2);
+
+    /**
+     * @param width registers taken by the value.
+     */
+    private final int width;
+
+    RegisterType(int width) {
+        this.width = width;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @param frame  function 3 response.
+     * @param offset index of the first byte of the value within the frame.
+     * @return the decoded value.
+     */
+    public long decode(byte[] frame, int offset) {
+        int high = (frame[offset] & 0xFF) << 8 | frame[offset + 1] & 0xFF;
+        switch (this) {
+            case U16:
+                return high;
+            case I16:
+                return (short) high;
+            default:
+                long value = (long) high << 16 | (frame[offset + 2] & 0xFF) << 8 | frame[offset + 3] & 0xFF;
+                return this == I32 ? (int) value : value;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package psa.cesa.cesaom.model;
+
+/**
+ * Outcome of checking a response frame against its request, see <method>ModbusDecoder.check</method>.
+ * <p>
+ * OK a well formed answer of the addressed RTU.
+ * EXCEPTION a well formed modbus exception response.
+ * CORRUPT wrong CRC, function code or byte count.
+ * WRONG_SLAVE the frame comes from another RTU.
+ * PARTIAL the line went silent before the whole frame arrived.
+ * NO_RESPONSE no byte arrived.
+ */
+public enum ResponseStatus {
+    OK, EXCEPTION, CORRUPT, WRONG_SLAVE, PARTIAL, NO_RESPONSE;
+
+    /**
+     * @return if sending the request again at once may get a good frame.
+     */
+    public boolean isRetryable() {
+        return this == CORRUPT || this == PARTIAL;
+    }
+}
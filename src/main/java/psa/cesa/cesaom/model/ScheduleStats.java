@@ -0,0 +1,72 @@
+package psa.cesa.cesaom.model;
+
+/**
+ * DAO which tells how well the polls of one <code>ComLine</code> keep up with their refresh targets.
+ */
+public class ScheduleStats {
+    /**
+     * @param polls queued polls.
+     * @param latePolls polls queued more than one tick after their deadline.
+     * @param skippedPolls due polls not queued because the previous one was still pending.
+     * @param maxLatenessNanos worst delay from a deadline until the poll was queued.
+     * @param demand polls per second asked by the current targets.
+     * @param behind if some heliostat is overdue by more than its own refresh interval.
+     */
+    private long polls;
+    private long latePolls;
+    private long skippedPolls;
+    private long maxLatenessNanos;
+    private double demand;
+    private boolean behind;
+
+    /**
+     * @param latenessNanos delay from the deadline until the poll was queued.
+     * @param late          if the delay is longer than the scheduler tick.
+     */
+    public synchronized void recordPoll(long latenessNanos, boolean late) {
+        polls++;
+        if (late)
+            latePolls++;
+        maxLatenessNanos = Math.max(maxLatenessNanos, latenessNanos);
+    }
+
+    public synchronized void recordSkip() {
+        skippedPolls++;
+    }
+
+    /**
+     * @param demand polls per second asked by the current targets.
+     * @param behind if some heliostat is overdue by more than its own refresh interval.
+     * @return if the line has just fallen behind.
+     */
+    public synchronized boolean recordTick(double demand, boolean behind) {
+        boolean fallen = behind && !this.behind;
+        this.demand = demand;
+        this.behind = behind;
+        return fallen;
+    }
+
+    public synchronized long getPolls() {
+        return polls;
+    }
+
+    public synchronized long getLatePolls() {
+        return latePolls;
+    }
+
+    public synchronized long getSkippedPolls() {
+        return skippedPolls;
+    }
+
+    public synchronized double getMaxLatenessMillis() {
+        return maxLatenessNanos / 1e6;
+    }
+
+    public synchronized double getDemand() {
+        return demand;
+    }
+
+    public synchronized boolean isBehind() {
+        return behind;
+    }
+}
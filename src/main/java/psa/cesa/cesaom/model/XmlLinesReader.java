@@ -1,16 +1,16 @@
 package psa.cesa.cesaom.model;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -20,78 +20,142 @@ public class XmlLinesReader {
 
     /**
      * @param OS Keeps the operation system of the computer.
+     * @param INPUT_FACTORY creates the streaming readers, it is thread safe once configured.
      */
     private static String OS = null;
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
 
     /**
-     * It parses a xml file into a <code>HashMap</code> which contains the field's <code>Comline</code> objects.
+     * It reads a xml file into a <code>HashMap</code> which contains the field's <code>Comline</code> objects.
+     * <p>
+     * The file is streamed, one element at a time, so no document tree is built.
+     * <p>
+     * A readPlan element within a comLine is its <code>ReadPlan</code>, one within the root is the plan of the
+     * comLines without their own:
+     * <pre>
+     * &lt;readPlan maxGap="0"&gt;
+     *     &lt;block name="clock" refresh="60000"&gt;
+     *         &lt;field name="hour" register="0x03E8" type="U16"/&gt;
+     *     &lt;/block&gt;
+     * &lt;/readPlan&gt;
+     * </pre>
      *
      * @param path file containing the field's comLines and its RTU.
      * @return <code>ComLine</code> objects from the xml file.
-     * @throws ParserConfigurationException
-     * @throws IOException
-     * @throws SAXException
+     * @throws XMLStreamException if the file is not well formed.
+     * @throws IllegalArgumentException if a readPlan is not valid.
      */
-    public static Map<Integer, ComLine> getXmlRows(InputStream path) throws ParserConfigurationException, IOException, SAXException {
-        Document document = getDocument(path);
-        Element xmlRoot = document.getDocumentElement();
-        NodeList xmlRows = xmlRoot.getElementsByTagName("comLine");
+    public static Map<Integer, ComLine> getXmlRows(InputStream path) throws XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(path);
         Map<Integer, ComLine> comLines = new HashMap<>();
-        for (int i = 0; i < xmlRows.getLength(); i++) {
-            Element xmlComLines = (Element) xmlRows.item(i);
-            int comLineId = Integer.valueOf(xmlComLines.getAttribute("id"));
-            String portDir = getPortDir(xmlComLines);
-            ComLine comLine = new ComLine(comLineId, portDir, getXmlHeliostats(xmlComLines));
-            comLines.put(comLineId, comLine);
+        try {
+            int comLineId = 0;
+            String portDir = null;
+            FieldState heliostats = null;
+            ReadPlan linePlan = null;
+            ReadPlan rootPlan = ReadPlan.EMPTY;
+            List<Integer> withoutPlan = new ArrayList<>();
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("comLine")) {
+                    comLineId = Integer.valueOf(reader.getAttributeValue(null, "id"));
+                    portDir = getPortDir(reader);
+                    heliostats = new FieldState();
+                    linePlan = null;
+                } else if (event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("heliostat") && heliostats != null) {
+                    heliostats.add(Integer.valueOf(reader.getAttributeValue(null, "id")));
+                } else if (event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("readPlan")) {
+                    ReadPlan plan = getReadPlan(reader);
+                    if (heliostats != null) {
+                        linePlan = plan;
+                    } else {
+                        rootPlan = plan;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("comLine")) {
+                    ComLine comLine = new ComLine(comLineId, portDir, heliostats);
+                    if (linePlan != null) {
+                        comLine.setReadPlan(linePlan);
+                    } else {
+                        withoutPlan.add(comLineId);
+                    }
+                    comLines.put(comLineId, comLine);
+                    heliostats = null;
+                }
+            }
+            for (int id : withoutPlan) {
+                comLines.get(id).setReadPlan(rootPlan);
+            }
+        } finally {
+            reader.close();
         }
         return comLines;
     }
 
     /**
-     * Uses a <code>DocumentBuilderFactory</code> to parse from an xml to a <code>Document</code> object.
+     * It reads a readPlan element up to its end.
      *
-     * @param path xml file.
-     * @return parsed xml file.
-     * @throws ParserConfigurationException
-     * @throws SAXException
-     * @throws IOException
+     * @param reader the reader positioned at a readPlan element.
+     * @return the plan with its blocks merged into requests.
+     * @throws XMLStreamException if the file is not well formed.
      */
-    private static Document getDocument(InputStream path) throws ParserConfigurationException, SAXException, IOException {
-        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
-        return documentBuilder.parse(path);
+    private static ReadPlan getReadPlan(XMLStreamReader reader) throws XMLStreamException {
+        String maxGap = reader.getAttributeValue(null, "maxGap");
+        List<RegisterBlock> blocks = new ArrayList<>();
+        String blockName = null;
+        long refresh = 0;
+        List<RegisterField> fields = new ArrayList<>();
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("block")) {
+                blockName = reader.getAttributeValue(null, "name");
+                refresh = Long.parseLong(reader.getAttributeValue(null, "refresh"));
+                fields = new ArrayList<>();
+            } else if (event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("field")) {
+                String type = reader.getAttributeValue(null, "type");
+                fields.add(new RegisterField(reader.getAttributeValue(null, "name"), Integer.decode(reader.getAttributeValue(null, "register")),
+                        type == null ? RegisterType.U16 : RegisterType.valueOf(type.toUpperCase())));
+            } else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("block")) {
+                blocks.add(new RegisterBlock(blockName, refresh, fields));
+            } else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("readPlan")) {
+                break;
+            }
+        }
+        return new ReadPlan(blocks, maxGap == null ? 0 : Integer.parseInt(maxGap));
     }
 
     /**
-     * It uses an xml node which contains the comLine's <code>Heliostat</code> objects.
-     *
-     * @param xmlComLine xml node.
-     * @return <code>Heliostat</code> objects inside the xml comLine node.
+     * @param path xml file outside the jar.
+     * @return <code>ComLine</code> objects from the xml file.
+     * @throws IOException        if the file cannot be read.
+     * @throws XMLStreamException if the file is not well formed.
      */
-    private static Map<Integer, Heliostat> getXmlHeliostats(Element xmlComLine) {
-        NodeList xmlAddresses = xmlComLine.getElementsByTagName("heliostat");
-        Map<Integer, Heliostat> heliostats = new HashMap<>();
-        for (int i = 0; i < xmlAddresses.getLength(); i++) {
-            Element xmlAddress = (Element) xmlAddresses.item(i);
-            int heliostatId = Integer.valueOf(xmlAddress.getAttribute("id"));
-            Heliostat heliostat = new Heliostat(heliostatId);
-            heliostats.put(heliostatId, heliostat);
+    public static Map<Integer, ComLine> getXmlRows(Path path) throws IOException, XMLStreamException {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            return getXmlRows(inputStream);
         }
-        return heliostats;
     }
 
     /**
      * Chooses between Linux and windows ports directions.
      *
-     * @param xmlComLines
+     * @param xmlComLine the reader positioned at a comLine element.
      * @return the OS serial port direction.
      */
-    private static String getPortDir(Element xmlComLines) {
-        if (isLinux()) {
-            return xmlComLines.getAttribute("linuxDir");
-        } else {
-            return xmlComLines.getAttribute("winDir");
-        }
+    private static String getPortDir(XMLStreamReader xmlComLine) {
+        String portDir = xmlComLine.getAttributeValue(null, getPortAttribute());
+        return portDir == null ? "" : portDir;
+    }
+
+    /**
+     * @return the comLine attribute which holds the serial port direction of this OS.
+     */
+    public static String getPortAttribute() {
+        return isLinux() ? "linuxDir" : "winDir";
     }
 
     /**
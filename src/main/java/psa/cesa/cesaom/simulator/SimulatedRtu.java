@@ -0,0 +1,149 @@
+package psa.cesa.cesaom.simulator;
+
+import psa.cesa.cesaom.model.CRC;
+import psa.cesa.cesaom.model.Modbus;
+
+import java.time.LocalTime;
+
+/**
+ * An in process heliostat RTU which answers modbus frames as the field ones do.
+ * <p>
+ * Function 3 reads the poll registers from 0x0010 (state, event, diagnosis, position and set point) and the hour
+ * registers from 0x03E8. Function 16 from register 0 is a command: its ASCII value becomes the state and the
+ * <code>Heliostat</code> moves towards a new set point a few steps on every read. Frames with a wrong CRC are ignored.
+ */
+public class SimulatedRtu {
+    /**
+     * @param POLL_ADDRESS first poll register.
+     * @param HOUR_ADDRESS first hour register.
+     * @param STEP position change between two reads while moving.
+     * @param ILLEGAL_FUNCTION modbus exception code 1.
+     * @param ILLEGAL_DATA_ADDRESS modbus exception code 2.
+     * @param address modbus slave address.
+     * @param registers state, event, diagnosisAZ, diagnosisEL, positionAZ, positionEL, setPointAZ, setPointEL.
+     */
+    public static final int POLL_ADDRESS = 0x0010;
+    public static final int HOUR_ADDRESS = 0x03E8;
+    private static final int STEP = 5;
+    private static final int ILLEGAL_FUNCTION = 0x01;
+    private static final int ILLEGAL_DATA_ADDRESS = 0x02;
+
+    private final int address;
+    private final int[] registers = new int[8];
+
+    public SimulatedRtu(int address) {
+        this.address = address;
+        registers[4] = registers[6] = 180 + address;
+        registers[5] = registers[7] = 45;
+    }
+
+    public int getAddress() {
+        return address;
+    }
+
+    /**
+     * @return state, event, diagnosisAZ, diagnosisEL, positionAZ, positionEL, setPointAZ and setPointEL.
+     */
+    public synchronized int[] getRegisters() {
+        return registers.clone();
+    }
+
+    /**
+     * Executes a request and writes its response.
+     *
+     * @param request  modbus frame.
+     * @param length   bytes of the request.
+     * @param response buffer for the response frame.
+     * @return bytes of the response, 0 if it must not answer.
+     */
+    public synchronized int handle(byte[] request, int length, byte[] response) {
+        if (!CRC.verify(request, 0, length)) {
+            return 0;
+        }
+        int function = request[1] & 0xFF;
+        switch (function) {
+            case Modbus.READ_HOLDING_REGISTERS:
+                return read(request, response);
+            case Modbus.WRITE_MULTIPLE_REGISTERS:
+                write(request);
+                if (Modbus.isBroadcast(request)) {
+                    return 0;
+                }
+                response[0] = (byte) address;
+                System.arraycopy(request, 1, response, 1, 5);
+                CRC.append(response, 6);
+                return 8;
+            default:
+                return exception(function, ILLEGAL_FUNCTION, response);
+        }
+    }
+
+    /**
+     * Function 3 response: address, function, byte count, registers and CRC.
+     */
+    private int read(byte[] request, byte[] response) {
+        int start = u16(request, 2);
+        int quantity = u16(request, 4);
+        response[0] = (byte) address;
+        response[1] = Modbus.READ_HOLDING_REGISTERS;
+        response[2] = (byte) (2 * quantity);
+        move();
+        LocalTime now = LocalTime.now();
+        for (int i = 0; i < quantity; i++) {
+            int register = start + i;
+            int value;
+            if (register >= POLL_ADDRESS && register < POLL_ADDRESS + registers.length) {
+                value = registers[register - POLL_ADDRESS];
+            } else if (register == HOUR_ADDRESS) {
+                value = now.getHour();
+            } else if (register == HOUR_ADDRESS + 1) {
+                value = now.getMinute();
+            } else if (register == HOUR_ADDRESS + 2) {
+                value = now.getSecond();
+            } else {
+                return exception(Modbus.READ_HOLDING_REGISTERS, ILLEGAL_DATA_ADDRESS, response);
+            }
+            response[3 + 2 * i] = (byte) (value >> 8);
+            response[4 + 2 * i] = (byte) value;
+        }
+        int length = 3 + 2 * quantity;
+        CRC.append(response, length);
+        return length + 2;
+    }
+
+    /**
+     * Function 16 on register 0: the first value is the command, the rest its parameters.
+     */
+    private void write(byte[] request) {
+        if (u16(request, 2) != 0) {
+            return;
+        }
+        int command = u16(request, 7);
+        registers[0] = command;
+        registers[1] = 0;
+        registers[6] = 180 + address + command % 10;
+        registers[7] = 45 + command % 30;
+    }
+
+    /**
+     * Moves the positions one step towards the set points.
+     */
+    private void move() {
+        for (int i = 4; i < 6; i++) {
+            int distance = registers[i + 2] - registers[i];
+            registers[i] += Math.max(-STEP, Math.min(STEP, distance));
+        }
+    }
+
+    private int exception(int function, int code, byte[] response) {
+        response[0] = (byte) address;
+        response[1] = (byte) (function | Modbus.EXCEPTION_FLAG);
+        response[2] = (byte) code;
+        CRC.append(response, 3);
+        return Modbus.EXCEPTION_LENGTH;
+    }
+
+    private static int u16(byte[] frame, int offset) {
+        return ((frame[offset] & 0xFF) << 8) | (frame[offset + 1] & 0xFF);
+    }
+}
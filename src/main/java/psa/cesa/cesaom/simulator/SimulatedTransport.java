@@ -0,0 +1,113 @@
+package psa.cesa.cesaom.simulator;
+
+import psa.cesa.cesaom.controller.SerialTransport;
+import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.Heliostat;
+import psa.cesa.cesaom.model.Modbus;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A <code>SerialTransport</code> whose RTU objects are <code>SimulatedRtu</code> objects, one for every
+ * <code>Heliostat</code> of the <code>ComLine</code>.
+ * <p>
+ * It takes the same time as a real line: request and response bytes at the configured baud rate, the RTU latency and
+ * the whole response timeout when a RTU does not answer.
+ */
+public class SimulatedTransport implements SerialTransport {
+    /**
+     * @param BITS_PER_CHAR start, 8 data and 2 stop bits.
+     * @param TURNAROUND_DELAY milliseconds given to the RTU objects after a broadcast.
+     * @param rtus simulated RTU objects indexed by modbus slave address.
+     * @param properties timing and failure settings.
+     * @param receiveBuffer where the responses are written.
+     */
+    private static final int BITS_PER_CHAR = 11;
+    private static final int TURNAROUND_DELAY = 100;
+
+    private final SimulatedRtu[] rtus = new SimulatedRtu[Modbus.ADDRESS_COUNT];
+    private final SimulatorProperties properties;
+    private final byte[] receiveBuffer = new byte[Modbus.MAX_FRAME_LENGTH];
+    private final Random random = new Random();
+    private volatile boolean open;
+
+    public SimulatedTransport(ComLine comLine, SimulatorProperties properties) {
+        this.properties = properties;
+        for (Heliostat heliostat : comLine.getHeliostats().values()) {
+            rtus[heliostat.getId()] = new SimulatedRtu(heliostat.getId());
+        }
+    }
+
+    /**
+     * @param address modbus slave address.
+     * @return the simulated RTU, or null if there is none at that address.
+     */
+    public SimulatedRtu getRtu(int address) {
+        return address >= 0 && address < rtus.length ? rtus[address] : null;
+    }
+
+    @Override
+    public boolean open() {
+        open = true;
+        return true;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public boolean close() {
+        open = false;
+        return true;
+    }
+
+    @Override
+    public byte[] getReceiveBuffer() {
+        return receiveBuffer;
+    }
+
+    /**
+     * Hands the request to the addressed RTU, or to every RTU if it is a broadcast, and waits as long as a real line.
+     *
+     * @param frame           modbus request frame.
+     * @param responseTimeout milliseconds lost if the RTU does not answer, 0 for the configured one.
+     * @return bytes of the response frame written in <code>receiveBuffer</code>, 0 if there is no response.
+     */
+    @Override
+    public int transact(byte[] frame, int responseTimeout) {
+        long charNanos = TimeUnit.MICROSECONDS.toNanos(Modbus.charMicros(properties.getBaudRate(), BITS_PER_CHAR));
+        long deadline = System.nanoTime() + frame.length * charNanos;
+        if (Modbus.isBroadcast(frame)) {
+            for (SimulatedRtu rtu : rtus) {
+                if (rtu != null)
+                    rtu.handle(frame, frame.length, receiveBuffer);
+            }
+            waitUntil(deadline + TimeUnit.MILLISECONDS.toNanos(TURNAROUND_DELAY));
+            return 0;
+        }
+        SimulatedRtu rtu = getRtu(frame[0] & 0xFF);
+        int length = 0;
+        if (rtu != null && random.nextDouble() >= properties.getTimeoutRate()) {
+            length = rtu.handle(frame, frame.length, receiveBuffer);
+        }
+        if (length == 0) {
+            waitUntil(deadline + TimeUnit.MILLISECONDS.toNanos(responseTimeout > 0 ? responseTimeout : properties.getResponseTimeout()));
+            return 0;
+        }
+        if (random.nextDouble() < properties.getCorruptionRate()) {
+            receiveBuffer[length - 1] ^= 0xFF;
+        }
+        waitUntil(deadline + TimeUnit.MILLISECONDS.toNanos(properties.getLatency()) + length * charNanos);
+        return length;
+    }
+
+    private static void waitUntil(long deadline) {
+        for (long remaining = deadline - System.nanoTime(); remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package psa.cesa.cesaom.simulator;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the in process field, read from the cesaom.simulator application properties.
+ */
+@Component
+@ConfigurationProperties("cesaom.simulator")
+public class SimulatorProperties {
+    /**
+     * @param enabled replaces every serial port with a <code>SimulatedTransport</code>.
+     * @param baudRate line speed used to time the frames.
+     * @param latency milliseconds a RTU takes to start answering.
+     * @param responseTimeout milliseconds lost when a RTU does not answer.
+     * @param timeoutRate probability of a RTU not answering.
+     * @param corruptionRate probability of a response with a wrong CRC.
+     */
+    private boolean enabled;
+    private int baudRate = 19200;
+    private int latency = 5;
+    private int responseTimeout = 250;
+    private double timeoutRate;
+    private double corruptionRate;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getBaudRate() {
+        return baudRate;
+    }
+
+    public void setBaudRate(int baudRate) {
+        this.baudRate = baudRate;
+    }
+
+    public int getLatency() {
+        return latency;
+    }
+
+    public void setLatency(int latency) {
+        this.latency = latency;
+    }
+
+    public int getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    public void setResponseTimeout(int responseTimeout) {
+        this.responseTimeout = responseTimeout;
+    }
+
+    public double getTimeoutRate() {
+        return timeoutRate;
+    }
+
+    public void setTimeoutRate(double timeoutRate) {
+        this.timeoutRate = timeoutRate;
+    }
+
+    public double getCorruptionRate() {
+        return corruptionRate;
+    }
+
+    public void setCorruptionRate(double corruptionRate) {
+        this.corruptionRate = corruptionRate;
+    }
+}
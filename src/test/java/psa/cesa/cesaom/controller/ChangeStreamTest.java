@@ -0,0 +1,129 @@
+package psa.cesa.cesaom.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.Heliostat;
+import psa.cesa.cesaom.model.HeliostatChange;
+import psa.cesa.cesaom.model.HeliostatSnapshot;
+import psa.cesa.cesaom.model.XmlLinesReader;
+import psa.cesa.cesaom.simulator.SimulatedTransport;
+import psa.cesa.cesaom.simulator.SimulatorProperties;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeStreamTest {
+
+    FieldController fieldController;
+    ChangeStream changeStream;
+    SnapshotStore snapshotStore = new SnapshotStore();
+
+    /**
+     * Keeps the written events and can hold the sender like a slow client.
+     */
+    static class RecordingEmitter extends SseEmitter {
+        List<String> events = new CopyOnWriteArrayList<>();
+        List<Object> data = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(0);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            builder.build().stream().map(DataWithMediaType::getData).filter(item -> !(item instanceof String)).forEach(data::add);
+            events.add(builder.build().stream().map(data -> String.valueOf(data.getData())).collect(Collectors.joining()));
+        }
+
+        long count(String name) {
+            return events.stream().filter(event -> event.startsWith("event:" + name)).count();
+        }
+
+        void awaitEvents(int count) throws InterruptedException {
+            for (int i = 0; i < 2000 && events.size() < count; i++) {
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws Exception {
+        ComLine comLine = XmlLinesReader.getXmlRows(getClass().getClassLoader().getResourceAsStream("test.xml")).get(1);
+        SimulatorProperties simulatorProperties = new SimulatorProperties();
+        simulatorProperties.setLatency(0);
+        fieldController = new FieldController(comLine, new SimulatedTransport(comLine, simulatorProperties));
+        snapshotStore.publish(fieldController.snapshot());
+        changeStream = new ChangeStream(snapshotStore);
+        fieldController.addListener(changeStream);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        changeStream.close();
+        fieldController.close();
+    }
+
+    @Test
+    void filterTest() throws InterruptedException {
+        RecordingEmitter emitter = new RecordingEmitter();
+        changeStream.subscribe(emitter, 1, 2);
+        emitter.awaitEvents(1);
+        fieldController.poll(1);
+        fieldController.poll(2);
+        fieldController.poll(2);
+        emitter.awaitEvents(2);
+        assertEquals(2, emitter.events.size());
+        assertEquals(1, emitter.count("snapshot"));
+        assertEquals(emitter.count("snapshot"), emitter.count("change"));
+    }
+
+    @Test
+    void slowSubscriberTest() throws InterruptedException {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.release = new CountDownLatch(1);
+        changeStream.subscribe(emitter, null, null);
+        for (int i = 0; i < 300; i++) {
+            Heliostat heliostat = new Heliostat(1);
+            heliostat.setPositionAZ(i);
+            changeStream.changed(new HeliostatChange(1, new HeliostatSnapshot(heliostat)));
+        }
+        emitter.release.countDown();
+        emitter.awaitEvents(45);
+        Thread.sleep(50);
+        assertTrue(emitter.count("snapshot") >= 1);
+        assertEquals(300 - ChangeStream.BUFFER_CAPACITY - 1, emitter.count("change"));
+        assertTrue(emitter.events.get(emitter.events.size() - 44).startsWith("event:snapshot"));
+    }
+
+    @Test
+    void droppedNewerTest() throws InterruptedException {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.release = new CountDownLatch(1);
+        changeStream.subscribe(emitter, null, null);
+        for (int i = 0; i <= ChangeStream.BUFFER_CAPACITY; i++) {
+            Heliostat heliostat = new Heliostat(2);
+            heliostat.setPositionAZ(i);
+            heliostat.setSampledAt(System.currentTimeMillis());
+            changeStream.changed(new HeliostatChange(1, new HeliostatSnapshot(heliostat)));
+        }
+        emitter.release.countDown();
+        emitter.awaitEvents(2);
+        Thread.sleep(50);
+        assertEquals(emitter.count("snapshot"), emitter.count("change"));
+        assertTrue(emitter.events.get(emitter.events.size() - 1).startsWith("event:change"));
+        HeliostatChange change = (HeliostatChange) emitter.data.get(emitter.data.size() - 1);
+        assertEquals(ChangeStream.BUFFER_CAPACITY, change.getHeliostat().getPositionAZ());
+    }
+}
@@ -0,0 +1,88 @@
+package psa.cesa.cesaom.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.DiscoveryResult;
+import psa.cesa.cesaom.model.FieldState;
+import psa.cesa.cesaom.model.XmlLinesReader;
+import psa.cesa.cesaom.simulator.SimulatedTransport;
+import psa.cesa.cesaom.simulator.SimulatorProperties;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiscoveryServiceTest {
+
+    FieldController fieldController;
+    DiscoveryService discoveryService;
+
+    /**
+     * The configuration has the addresses 1, 2, 3 and 4, the bus has 1, 2, 3 and 10.
+     */
+    @BeforeEach
+    public void setup() {
+        SimulatorProperties simulatorProperties = new SimulatorProperties();
+        simulatorProperties.setLatency(0);
+        simulatorProperties.setBaudRate(1_000_000);
+        PollProperties pollProperties = new PollProperties();
+        pollProperties.setProbeTimeout(1);
+        fieldController = new FieldController(comLine(1, 2, 3, 4), new SimulatedTransport(comLine(1, 2, 3, 10), simulatorProperties), pollProperties);
+        discoveryService = new DiscoveryService(Collections.singletonList(fieldController));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        fieldController.close();
+    }
+
+    static ComLine comLine(int... ids) {
+        FieldState fieldState = new FieldState();
+        for (int id : ids) {
+            fieldState.add(id);
+        }
+        return new ComLine(1, "COM1", fieldState);
+    }
+
+    @Test
+    void discoverTest() {
+        DiscoveryResult result = discoveryService.discover(false).join().get(0);
+        assertEquals(1, result.getComLineId());
+        assertEquals(Arrays.asList(1, 2, 3, 10), result.getResponding());
+        assertEquals(Collections.singletonList(10), result.getAdded());
+        assertEquals(Collections.singletonList(4), result.getMissing());
+        assertTrue(result.getSkipped().isEmpty());
+    }
+
+    @Test
+    void skipConfiguredTest() throws Exception {
+        fieldController.poll(1);
+        fieldController.poll(2);
+        fieldController.poll(4);
+        DiscoveryResult result = discoveryService.discover(true).join().get(0);
+        assertEquals(Arrays.asList(1, 2), result.getSkipped());
+        assertEquals(Arrays.asList(3, 10), result.getResponding());
+        assertEquals(Collections.singletonList(10), result.getAdded());
+        assertEquals(Collections.singletonList(4), result.getMissing());
+        String xml = DiscoveryService.toXml(Collections.singletonList(result));
+        Map<Integer, ComLine> comLines = XmlLinesReader.getXmlRows(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Arrays.asList(1, 2, 3, 10), Arrays.asList(comLines.get(1).getHeliostats().keySet().toArray()));
+    }
+
+    @Test
+    void toXmlTest() throws Exception {
+        List<DiscoveryResult> results = discoveryService.discover(false).join();
+        String xml = DiscoveryService.toXml(results);
+        Map<Integer, ComLine> comLines = XmlLinesReader.getXmlRows(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        assertEquals("COM1", comLines.get(1).getPortDir());
+        assertEquals(Arrays.asList(1, 2, 3, 10), Arrays.asList(comLines.get(1).getHeliostats().keySet().toArray()));
+    }
+}
@@ -0,0 +1,85 @@
+package psa.cesa.cesaom.controller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.FrameCache;
+import psa.cesa.cesaom.model.XmlLinesReader;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of every frame type and hex formatting of a poll response.
+ * <p>
+ * The frame builders print every frame; stdout is discarded so the formatting is measured but not the console.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldControllerBenchmark {
+
+    FieldController fieldController;
+    ByteBuffer response = ByteBuffer.wrap(new byte[]{1, 3, 16, 0, 2, 0, 0, 0, 0, 0, 0, 0x01, 0x2C, 0x00, 0x5A, 0x01, 0x2C, 0x00, 0x5A, 0x1A, 0x76});
+
+    @Setup
+    public void setup() throws Exception {
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        ComLine comLine = XmlLinesReader.getXmlRows(getClass().getClassLoader().getResourceAsStream("fieldComLines.xml")).get(1);
+        comLine.setPortDir("benchmark");
+        fieldController = new FieldController(comLine);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fieldController.close();
+    }
+
+    @Benchmark
+    public byte[] pollerFrame() {
+        return fieldController.setPollerFrame(1);
+    }
+
+    @Benchmark
+    public byte[] buildPollFrame() {
+        return FrameCache.buildPollFrame(1);
+    }
+
+    @Benchmark
+    public byte[] commandFrame() {
+        return fieldController.setCommandFrame(1, "a");
+    }
+
+    @Benchmark
+    public byte[] focusFrame() {
+        return fieldController.setFocusFrame(1, 3);
+    }
+
+    @Benchmark
+    public byte[] newFocusFrame() {
+        return fieldController.setNewFocusFrame(1, 3, 100, 200, 300);
+    }
+
+    @Benchmark
+    public String bufferToString() {
+        return fieldController.bufferToString(response);
+    }
+}
@@ -3,13 +3,11 @@ package psa.cesa.cesaom.controller;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.xml.sax.SAXException;
 import psa.cesa.cesaom.model.ComLine;
 import psa.cesa.cesaom.model.Heliostat;
 import psa.cesa.cesaom.model.XmlLinesReader;
 
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.IOException;
+import javax.xml.stream.XMLStreamException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -35,11 +33,7 @@ class FieldControllerTest {
                     when(fieldControllers[comLine.getId()-1].command(heliostat.getId(), "a")).thenReturn("Command accepted");
                 }
             }
-        } catch (ParserConfigurationException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        } catch (SAXException e) {
+        } catch (XMLStreamException e) {
             e.printStackTrace();
         }
     }
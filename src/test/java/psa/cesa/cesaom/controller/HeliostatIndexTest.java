@@ -0,0 +1,64 @@
+package psa.cesa.cesaom.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.XmlLinesReader;
+import psa.cesa.cesaom.simulator.SimulatedTransport;
+import psa.cesa.cesaom.simulator.SimulatorProperties;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeliostatIndexTest {
+
+    FieldController fieldController;
+    HeliostatIndex heliostatIndex = new HeliostatIndex();
+
+    @BeforeEach
+    public void setup() throws Exception {
+        ComLine comLine = XmlLinesReader.getXmlRows(getClass().getClassLoader().getResourceAsStream("test.xml")).get(1);
+        SimulatorProperties simulatorProperties = new SimulatorProperties();
+        simulatorProperties.setLatency(0);
+        fieldController = new FieldController(comLine, new SimulatedTransport(comLine, simulatorProperties));
+        heliostatIndex.add(comLine);
+        fieldController.addListener(heliostatIndex);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        fieldController.close();
+    }
+
+    @Test
+    void pollTest() {
+        assertEquals(Collections.singletonMap(1, Arrays.asList(1, 2, 3)), heliostatIndex.getByEvent(0x10, null));
+        assertEquals(Collections.singletonMap(16, 3), heliostatIndex.getEventCounts());
+
+        fieldController.poll(2);
+        assertEquals(Collections.singletonMap(1, Arrays.asList(1, 3)), heliostatIndex.getByEvent(0x10, null));
+        assertEquals(Collections.singletonMap(1, Collections.singletonList(2)), heliostatIndex.getByEvent(0, 1));
+        assertEquals(Integer.valueOf(2), heliostatIndex.getEventCounts().get(16));
+
+        fieldController.command(1, "n");
+        fieldController.poll(1);
+        assertEquals(Collections.singletonMap(1, Collections.singletonList(1)), heliostatIndex.getByState('n', null));
+        assertEquals(Integer.valueOf(1), heliostatIndex.getStateCounts().get((int) 'n'));
+        assertEquals(Integer.valueOf(2), heliostatIndex.getStateCounts().get(0));
+    }
+
+    @Test
+    void lineFilterTest() {
+        heliostatIndex.update(2, 7, 0, 0x10);
+        heliostatIndex.update(2, 8, 0, 0);
+        assertEquals(Collections.singletonMap(2, Collections.singletonList(7)), heliostatIndex.getByEvent(0x10, 2));
+        assertEquals(Arrays.asList(1, 2), Arrays.asList(heliostatIndex.getByEvent(0x10, null).keySet().toArray()));
+        heliostatIndex.update(2, 7, 0, 0);
+        assertTrue(heliostatIndex.getByEvent(0x10, 2).isEmpty());
+        assertEquals(Arrays.asList(7, 8), heliostatIndex.getByEvent(0, 2).get(2));
+    }
+}
@@ -0,0 +1,59 @@
+package psa.cesa.cesaom.controller;
+
+import org.junit.jupiter.api.Test;
+import psa.cesa.cesaom.model.ModbusRequest;
+import psa.cesa.cesaom.model.Priority;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LineQueueTest {
+
+    private Transaction transaction(Priority priority) {
+        return new Transaction(new ModbusRequest(new byte[]{1, 3, 0, 0x10, 0, 8, 0, 0}, priority));
+    }
+
+    @Test
+    void priorityOrderTest() throws InterruptedException {
+        LineQueue queue = new LineQueue(8);
+        Transaction poll = transaction(Priority.ROUTINE_POLL);
+        Transaction operator = transaction(Priority.OPERATOR);
+        Transaction emergency = transaction(Priority.EMERGENCY);
+        queue.offer(poll);
+        queue.offer(operator);
+        queue.offer(emergency);
+        assertSame(emergency, queue.take());
+        assertSame(operator, queue.take());
+        assertSame(poll, queue.take());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void agingTest() throws InterruptedException {
+        LineQueue queue = new LineQueue(8);
+        Transaction poll = transaction(Priority.ROUTINE_POLL);
+        Transaction operator = transaction(Priority.OPERATOR);
+        Transaction emergency = transaction(Priority.EMERGENCY);
+        queue.offer(poll);
+        queue.offer(operator);
+        queue.offer(emergency);
+        poll.enqueuedNanos -= 2 * LineQueue.AGING_NANOS;
+        assertSame(emergency, queue.take());
+        assertSame(poll, queue.take());
+        assertSame(operator, queue.take());
+    }
+
+    @Test
+    void capacityTest() {
+        LineQueue queue = new LineQueue(1);
+        assertEquals(1, queue.remaining());
+        assertTrue(queue.offer(transaction(Priority.ROUTINE_POLL)));
+        assertEquals(0, queue.remaining());
+        assertFalse(queue.offer(transaction(Priority.OPERATOR)));
+        assertTrue(queue.offer(transaction(Priority.EMERGENCY)));
+        assertEquals(0, queue.remaining());
+    }
+}
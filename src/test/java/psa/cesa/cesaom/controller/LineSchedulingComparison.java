@@ -0,0 +1,113 @@
+package psa.cesa.cesaom.controller;
+
+import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.Heliostat;
+import psa.cesa.cesaom.simulator.SimulatedTransport;
+import psa.cesa.cesaom.simulator.SimulatorProperties;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares one <code>Timer</code> per line with the shared <code>LineSupervisor</code> pool at 16, 64 and 256
+ * simulated lines: live threads, used heap and how late the poll ticks start.
+ * <p>
+ * It is not a unit test, run its <method>main</method> from the test classpath.
+ */
+public class LineSchedulingComparison {
+    /**
+     * @param HELIOSTATS heliostats of every simulated line.
+     * @param TICK milliseconds between poll ticks.
+     * @param SECONDS measured time of every run.
+     */
+    private static final int HELIOSTATS = 8;
+    private static final long TICK = 100;
+    private static final long SECONDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("lines model       threads heapMB  p50ms  p99ms  maxms");
+        for (int lines : new int[]{16, 64, 256}) {
+            for (boolean shared : new boolean[]{false, true}) {
+                run(lines, shared);
+            }
+        }
+        System.exit(0);
+    }
+
+    private static void run(int lines, boolean shared) throws InterruptedException {
+        SimulatorProperties properties = new SimulatorProperties();
+        List<FieldController> fieldControllers = new ArrayList<>();
+        List<Timer> timers = new ArrayList<>();
+        LineSupervisor lineSupervisor = new LineSupervisor(2);
+        List<Long> lateness = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 1; i <= lines; i++) {
+            Map<Integer, Heliostat> heliostats = new LinkedHashMap<>();
+            for (int j = 1; j <= HELIOSTATS; j++) {
+                heliostats.put(j, new Heliostat(j));
+            }
+            ComLine comLine = new ComLine(i, "simulated" + i, heliostats);
+            FieldController fieldController = new FieldController(comLine, new SimulatedTransport(comLine, properties));
+            fieldControllers.add(fieldController);
+            Runnable task = measured(new TimerPollTask(fieldController), lateness);
+            if (shared) {
+                lineSupervisor.supervise(i, task, TICK);
+            } else {
+                Timer timer = new Timer("Timer: " + i);
+                timer.scheduleAtFixedRate(new TimerTask() {
+                    @Override
+                    public void run() {
+                        task.run();
+                    }
+                }, 0, TICK);
+                timers.add(timer);
+            }
+        }
+        Thread.sleep(1000);
+        lateness.clear();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(SECONDS));
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        System.gc();
+        long heap = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+        List<Long> sorted;
+        synchronized (lateness) {
+            sorted = new ArrayList<>(lateness);
+        }
+        Collections.sort(sorted);
+        System.out.printf("%5d %-11s %7d %6d %6.1f %6.1f %6.1f%n", lines, shared ? "supervisor" : "timer", threads, heap >> 20,
+                percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 1));
+        timers.forEach(Timer::cancel);
+        lineSupervisor.shutdown();
+        fieldControllers.forEach(FieldController::close);
+        Thread.sleep(500);
+    }
+
+    /**
+     * @return the task, recording how late every run starts against its fixed rate from now.
+     */
+    private static Runnable measured(Runnable task, List<Long> lateness) {
+        return new Runnable() {
+            final long start = System.nanoTime();
+            long runs;
+
+            @Override
+            public void run() {
+                long now = System.nanoTime();
+                lateness.add(now - start - TimeUnit.MILLISECONDS.toNanos(TICK) * runs++);
+                task.run();
+            }
+        };
+    }
+
+    private static double percentile(List<Long> sorted, double p) {
+        if (sorted.isEmpty())
+            return 0;
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.round(p * (sorted.size() - 1)))) / 1e6;
+    }
+}
@@ -0,0 +1,42 @@
+package psa.cesa.cesaom.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LineSupervisorTest {
+
+    @Test
+    void failingTaskKeepsRunningTest() throws InterruptedException {
+        LineSupervisor lineSupervisor = new LineSupervisor(1);
+        CountDownLatch runs = new CountDownLatch(3);
+        lineSupervisor.supervise(1, () -> {
+            runs.countDown();
+            throw new IllegalStateException("poll failed");
+        }, 10);
+        assertTrue(runs.await(2, TimeUnit.SECONDS));
+        assertTrue(lineSupervisor.getFailures() >= 2);
+        lineSupervisor.shutdown();
+    }
+
+    @Test
+    void cancelTest() throws InterruptedException {
+        LineSupervisor lineSupervisor = new LineSupervisor(1);
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch second = new CountDownLatch(2);
+        lineSupervisor.supervise(1, () -> {
+            first.countDown();
+            second.countDown();
+        }, 200);
+        assertTrue(first.await(2, TimeUnit.SECONDS));
+        lineSupervisor.cancel(1);
+        assertFalse(second.await(500, TimeUnit.MILLISECONDS));
+        assertEquals(0, lineSupervisor.getFailures());
+        lineSupervisor.shutdown();
+    }
+}
@@ -0,0 +1,124 @@
+package psa.cesa.cesaom.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import psa.cesa.cesaom.model.ModbusRequest;
+import psa.cesa.cesaom.model.ModbusResponse;
+import psa.cesa.cesaom.model.PortState;
+import psa.cesa.cesaom.model.Priority;
+import psa.cesa.cesaom.model.ResponseStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LineTransactionEngineTest {
+
+    LineTransactionEngine engine;
+
+    @BeforeEach
+    public void setup() {
+        engine = new LineTransactionEngine("test", new SerialController("test"));
+        engine.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    void submitTest() throws Exception {
+        ModbusResponse response = engine.submit(new ModbusRequest(new byte[]{1, 3, 0, 0x10, 0, 8, 0, 0}, Priority.ROUTINE_POLL)).get();
+        assertTrue(response.isEmpty());
+        assertEquals(1, engine.getLatencies().get(Priority.ROUTINE_POLL).getCount());
+    }
+
+    /**
+     * A link which fails its first opens, and can be unplugged.
+     */
+    static class FlakyTransport implements SerialTransport {
+        volatile int failedOpens;
+        volatile int opens;
+        volatile boolean open;
+
+        @Override
+        public boolean open() {
+            opens++;
+            open = opens > failedOpens;
+            return open;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public boolean close() {
+            open = false;
+            return true;
+        }
+
+        @Override
+        public int transact(byte[] frame, int responseTimeout) {
+            return 0;
+        }
+
+        @Override
+        public byte[] getReceiveBuffer() {
+            return new byte[256];
+        }
+    }
+
+    static void awaitState(LineTransactionEngine engine, PortState state) throws InterruptedException {
+        for (int i = 0; i < 2000 && engine.getPortStatus().getState() != state; i++) {
+            Thread.sleep(1);
+        }
+        assertEquals(state, engine.getPortStatus().getState());
+    }
+
+    @Test
+    void reconnectTest() throws Exception {
+        PollProperties pollProperties = new PollProperties();
+        pollProperties.setReconnectInterval(20);
+        pollProperties.setMaxReconnectInterval(40);
+        FlakyTransport transport = new FlakyTransport();
+        transport.failedOpens = 3;
+        LineTransactionEngine flaky = new LineTransactionEngine("flaky", transport, pollProperties);
+        assertEquals(PortState.CONNECTING, flaky.getPortStatus().getState());
+        flaky.start();
+        try {
+            awaitState(flaky, PortState.DISCONNECTED);
+            ModbusResponse skipped = flaky.submit(new ModbusRequest(new byte[]{1, 3, 0, 0x10, 0, 8, 0, 0}, Priority.OPERATOR)).get();
+            assertEquals(ResponseStatus.NO_RESPONSE, skipped.getStatus());
+            awaitState(flaky, PortState.OPEN);
+            assertEquals(4, transport.opens);
+
+            transport.failedOpens = 5;
+            transport.open = false;
+            skipped = flaky.submit(new ModbusRequest(new byte[]{1, 3, 0, 0x10, 0, 8, 0, 0}, Priority.OPERATOR)).get();
+            assertEquals(ResponseStatus.NO_RESPONSE, skipped.getStatus());
+            awaitState(flaky, PortState.OPEN);
+            assertEquals(6, transport.opens);
+        } finally {
+            flaky.stop();
+        }
+        assertEquals(PortState.CLOSED, flaky.getPortStatus().getState());
+        assertFalse(transport.open);
+    }
+
+    @Test
+    void submitAfterStopTest() {
+        engine.stop();
+        CompletableFuture<ModbusResponse> future = engine.submit(new ModbusRequest(new byte[]{1, 3, 0, 0x10, 0, 8, 0, 0}, Priority.ROUTINE_POLL));
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+}
@@ -0,0 +1,151 @@
+package psa.cesa.cesaom.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.Heliostat;
+import psa.cesa.cesaom.model.LinkState;
+import psa.cesa.cesaom.model.Priority;
+import psa.cesa.cesaom.model.ReadPlan;
+import psa.cesa.cesaom.model.RegisterBlock;
+import psa.cesa.cesaom.model.RegisterField;
+import psa.cesa.cesaom.model.RegisterType;
+import psa.cesa.cesaom.model.XmlLinesReader;
+import psa.cesa.cesaom.simulator.SimulatedRtu;
+import psa.cesa.cesaom.simulator.SimulatedTransport;
+import psa.cesa.cesaom.simulator.SimulatorProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PollSchedulerTest {
+
+    ComLine comLine;
+    FieldController fieldController;
+    PollProperties properties = new PollProperties();
+    PollScheduler scheduler;
+    SimulatorProperties simulatorProperties = new SimulatorProperties();
+
+    @BeforeEach
+    public void setup() throws Exception {
+        comLine = XmlLinesReader.getXmlRows(getClass().getClassLoader().getResourceAsStream("test.xml")).get(1);
+        simulatorProperties.setLatency(0);
+        simulatorProperties.setResponseTimeout(10);
+        fieldController = new FieldController(comLine, new SimulatedTransport(comLine, simulatorProperties), properties);
+        scheduler = new PollScheduler(fieldController, properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        fieldController.close();
+    }
+
+    @Test
+    void intervalTest() {
+        Heliostat heliostat = comLine.getHeliostats().get(1);
+        heliostat.setEvent(0);
+        heliostat.setState('n');
+        assertEquals(properties.getTrackingInterval(), scheduler.intervalMillis(heliostat));
+        heliostat.setState('i');
+        assertEquals(properties.getParkedInterval(), scheduler.intervalMillis(heliostat));
+        heliostat.setEvent(2);
+        assertEquals(properties.getFaultInterval(), scheduler.intervalMillis(heliostat));
+        heliostat.setSetPointAZ(90);
+        assertEquals(properties.getMovingInterval(), scheduler.intervalMillis(heliostat));
+        properties.getStateIntervals().put((int) 'i', 20000L);
+        assertEquals(20000, scheduler.intervalMillis(heliostat));
+    }
+
+    @Test
+    void tickTest() {
+        long now = System.nanoTime();
+        scheduler.tick(now);
+        assertEquals(3, scheduler.getStats().getPolls());
+        assertFalse(scheduler.getStats().isBehind());
+        for (Heliostat heliostat : comLine.getHeliostats().values()) {
+            assertTrue(scheduler.getDeadline(heliostat.getId()) > now);
+        }
+        scheduler.tick(now);
+        assertEquals(3, scheduler.getStats().getPolls());
+    }
+
+    @Test
+    void decodedIntervalTest() throws InterruptedException {
+        properties.getStateIntervals().put((int) 'x', 60000L);
+        properties.getStateIntervals().put(0, 20000L);
+        Heliostat heliostat = comLine.getHeliostats().get(1);
+        heliostat.setState('x');
+        long now = System.nanoTime();
+        scheduler.tick(now);
+        assertEquals(now + TimeUnit.SECONDS.toNanos(60), scheduler.getDeadline(1));
+        for (int i = 0; i < 2000 && fieldController.getSamples(1) == 0; i++) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, heliostat.getState());
+        scheduler.tick(now + 1);
+        assertEquals(now + TimeUnit.SECONDS.toNanos(20), scheduler.getDeadline(1));
+    }
+
+    @Test
+    void behindTest() {
+        scheduler.tick(System.nanoTime() + TimeUnit.SECONDS.toNanos(20));
+        assertTrue(scheduler.getStats().isBehind());
+        assertEquals(3, scheduler.getStats().getLatePolls());
+    }
+
+    @Test
+    void quarantineTest() throws InterruptedException {
+        simulatorProperties.setTimeoutRate(1);
+        Heliostat heliostat = comLine.getHeliostats().get(1);
+        fieldController.poll(1);
+        assertEquals(LinkState.SUSPECT, heliostat.getLinkState());
+        fieldController.poll(1);
+        fieldController.poll(1);
+        assertEquals(LinkState.QUARANTINED, heliostat.getLinkState());
+        assertTrue(fieldController.snapshot().getQuarantined().containsKey(1));
+        assertEquals(properties.getProbeInterval(), scheduler.intervalMillis(heliostat));
+
+        assertTrue(fieldController.schedulePoll(1));
+        while (heliostat.getFailures() < 4) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, fieldController.getLatencies().get(Priority.BACKGROUND).getCount());
+        assertEquals(2 * properties.getProbeInterval(), scheduler.intervalMillis(heliostat));
+
+        simulatorProperties.setTimeoutRate(0);
+        fieldController.poll(1);
+        assertEquals(LinkState.HEALTHY, heliostat.getLinkState());
+        assertTrue(fieldController.snapshot().getQuarantined().isEmpty());
+    }
+
+    @Test
+    void readPlanTest() throws InterruptedException {
+        fieldController.close();
+        comLine.setReadPlan(new ReadPlan(Arrays.asList(new RegisterBlock("clock", 60000, Arrays.asList(
+                new RegisterField("hour", SimulatedRtu.HOUR_ADDRESS, RegisterType.U16),
+                new RegisterField("minute", SimulatedRtu.HOUR_ADDRESS + 1, RegisterType.U16))),
+                new RegisterBlock("second", 60000, Collections.singletonList(
+                        new RegisterField("second", SimulatedRtu.HOUR_ADDRESS + 2, RegisterType.U16)))), 0));
+        fieldController = new FieldController(comLine, new SimulatedTransport(comLine, simulatorProperties), properties);
+        scheduler = new PollScheduler(fieldController, properties);
+        assertEquals(1, fieldController.getReadRequests().size());
+        assertTrue(fieldController.getReadValues().get(1).isEmpty());
+
+        long now = System.nanoTime();
+        scheduler.tick(now);
+        Map<String, Long> values = fieldController.getReadValues().get(3);
+        for (long start = System.currentTimeMillis(); values.isEmpty() && System.currentTimeMillis() - start < 5000; values = fieldController.getReadValues().get(3)) {
+            Thread.sleep(1);
+        }
+        assertEquals(Arrays.asList("hour", "minute", "second"), new ArrayList<>(values.keySet()));
+        assertTrue(values.get("hour") < 24 && values.get("minute") < 60);
+    }
+}
@@ -1,8 +1,28 @@
 package psa.cesa.cesaom.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import psa.cesa.cesaom.model.ConfigDiff;
+import psa.cesa.cesaom.model.PortState;
+import psa.cesa.cesaom.simulator.SimulatorProperties;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -28,4 +48,69 @@ class RestControllerTest {
     @Test
     void focus() {
     }
-}
\ No newline at end of file
+
+    @Test
+    void asyncCommand() throws InterruptedException {
+        SimulatorProperties simulatorProperties = new SimulatorProperties();
+        simulatorProperties.setEnabled(true);
+        RestController simulated = new RestController(simulatorProperties, new PollProperties(), new ObjectMapper());
+        try {
+            DeferredResult<String> result = simulated.command(1, 1, "a");
+            for (int i = 0; i < 2000 && !result.hasResult(); i++) {
+                Thread.sleep(1);
+            }
+            assertEquals("01 10 00 00 00 01 01 c9 ", result.getResult());
+            assertEquals("Unknown comLine: 9", simulated.getHour(9, 1).getResult());
+            assertEquals(HttpStatus.BAD_REQUEST, ((ResponseEntity<?>) simulated.command(1, 1, "x").getResult()).getStatusCode());
+            assertEquals(HttpStatus.BAD_REQUEST, ((ResponseEntity<?>) simulated.broadcastCommand(1, "x").getResult()).getStatusCode());
+            assertEquals(HttpStatus.BAD_REQUEST, ((ResponseEntity<?>) simulated.broadcastCommandAll("").getResult()).getStatusCode());
+            assertEquals(HttpStatus.OK, simulated.ready().getStatusCode());
+            assertEquals(PortState.OPEN, simulated.ready().getBody().get(1).getState());
+        } finally {
+            simulated.stopTimers();
+        }
+    }
+
+    @Test
+    void reloadConfigTest(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("fieldComLines.xml");
+        write(path, "<comLine id=\"1\" linuxDir=\"a\" winDir=\"a\"><heliostat id=\"1\"/><heliostat id=\"2\"/></comLine>"
+                + "<comLine id=\"2\" linuxDir=\"b\" winDir=\"b\"><heliostat id=\"3\"/></comLine>");
+        SimulatorProperties simulatorProperties = new SimulatorProperties();
+        simulatorProperties.setEnabled(true);
+        PollProperties pollProperties = new PollProperties();
+        pollProperties.setTick(60000);
+        ConfigProperties configProperties = new ConfigProperties();
+        configProperties.setPath(path.toString());
+        configProperties.setWatchInterval(60000);
+        RestController simulated = new RestController(simulatorProperties, pollProperties, configProperties, new ObjectMapper());
+        try {
+            assertEquals(2, simulated.getNumber());
+            String etag = simulated.getCache(1, webRequest()).getHeaders().getETag();
+            write(path, "<comLine id=\"1\" linuxDir=\"a\" winDir=\"a\"><heliostat id=\"1\"/><heliostat id=\"3\"/></comLine>"
+                    + "<comLine id=\"3\" linuxDir=\"c\" winDir=\"c\"><heliostat id=\"7\"/><heliostat id=\"8\"/></comLine>");
+            ConfigDiff diff = simulated.reloadConfig();
+            assertEquals(Collections.singletonList(3), diff.getAddedLines());
+            assertEquals(Collections.singletonList(2), diff.getRemovedLines());
+            assertEquals(Collections.singletonList(1), diff.getChangedLines());
+            assertEquals(Collections.singletonMap(3, 2), diff.getMovedHeliostats().get(1));
+            assertEquals(Collections.singletonList(2), diff.getRemovedHeliostats().get(1));
+            assertEquals(Arrays.asList(7, 8), diff.getAddedHeliostats().get(3));
+            assertEquals(2, simulated.getNumber());
+            assertEquals(HttpStatus.NOT_FOUND, simulated.getCache(2, webRequest()).getStatusCode());
+            assertEquals(HttpStatus.OK, simulated.getCache(3, webRequest()).getStatusCode());
+            assertNotEquals(etag, simulated.getCache(1, webRequest()).getHeaders().getETag());
+            assertEquals(new HashSet<>(Arrays.asList(1, 3)), simulated.getSchedule().keySet());
+        } finally {
+            simulated.stopTimers();
+        }
+    }
+
+    private static void write(Path path, String comLines) throws IOException {
+        Files.write(path, ("<root>" + comLines + "</root>").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ServletWebRequest webRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/getCache"), new MockHttpServletResponse());
+    }
+}
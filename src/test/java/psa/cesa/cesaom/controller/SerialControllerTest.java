@@ -5,9 +5,16 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
+import psa.cesa.cesaom.model.Modbus;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
@@ -30,4 +37,47 @@ public class SerialControllerTest {
         when(serialController.open()).thenReturn(true);
         assertTrue(serialController.open());
     }
+
+    /**
+     * The port hands the response over in chunks with gaps longer than t3.5, like a USB serial adapter does.
+     *
+     * @param response the bytes of the response.
+     * @param chunks   bytes of every chunk, a read never takes bytes of the next one.
+     */
+    void chunkedPort(byte[] response, int... chunks) {
+        when(port.getBaudRate()).thenReturn(19200);
+        when(port.getNumDataBits()).thenReturn(8);
+        int[] timeout = new int[1];
+        doAnswer(invocation -> timeout[0] = invocation.getArgument(1)).when(port).setComPortTimeouts(anyInt(), anyInt(), anyInt());
+        int[] next = new int[3];
+        when(port.readBytes(any(byte[].class), anyLong(), anyLong())).thenAnswer(invocation -> {
+            if (next[2] == 0) {
+                if (next[0] == chunks.length || (next[0] > 0 && timeout[0] < 16))
+                    return 0;
+                next[2] = chunks[next[0]++];
+            }
+            int length = (int) Math.min(next[2], (long) invocation.getArgument(1));
+            System.arraycopy(response, next[1], invocation.getArgument(0), ((Long) invocation.getArgument(2)).intValue(), length);
+            next[1] += length;
+            next[2] -= length;
+            return length;
+        });
+    }
+
+    @Test
+    public void chunkedResponseTest() {
+        byte[] response = new byte[21];
+        response[0] = 1;
+        response[1] = 3;
+        response[2] = 16;
+        chunkedPort(response, 3, 8, 10);
+        assertEquals(21, serialController.receive(21, 100));
+        verify(port, times(2)).setComPortTimeouts(anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void exceptionResponseTest() {
+        chunkedPort(new byte[]{1, (byte) 0x83, 2, 0, 0}, 1, 4);
+        assertEquals(Modbus.EXCEPTION_LENGTH, serialController.receive(21, 100));
+    }
 }
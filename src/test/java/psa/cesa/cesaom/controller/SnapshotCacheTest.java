@@ -0,0 +1,93 @@
+package psa.cesa.cesaom.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import psa.cesa.cesaom.model.BinarySnapshot;
+import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.XmlLinesReader;
+import psa.cesa.cesaom.simulator.SimulatedTransport;
+import psa.cesa.cesaom.simulator.SimulatorProperties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotCacheTest {
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void cacheTest() throws Exception {
+        ComLine comLine = XmlLinesReader.getXmlRows(getClass().getClassLoader().getResourceAsStream("test.xml")).get(1);
+        FieldController fieldController = new FieldController(comLine, new SimulatedTransport(comLine, new SimulatorProperties()));
+        SnapshotStore snapshotStore = new SnapshotStore();
+        SnapshotCache cache = SnapshotCache.json(snapshotStore, objectMapper);
+        SnapshotCache binaryCache = SnapshotCache.binary(snapshotStore);
+        try {
+            assertNull(cache.getLine(1));
+            snapshotStore.publish(fieldController.snapshot());
+            EncodedSnapshot first = cache.getLine(1);
+            assertSame(first, cache.getLine(1));
+            assertTrue(objectMapper.readTree(first.getBytes()).get("heliostats").has("3"));
+            assertTrue(first.getEtag().startsWith("\"") && first.getEtag().endsWith("-1-1\""));
+
+            EncodedSnapshot binary = binaryCache.getLine(1);
+            assertEquals(3, BinarySnapshot.decodeLine(binary.getBytes()).getHeliostats().size());
+            assertTrue(binary.getEtag().endsWith("-1-1-bin\""));
+
+            EncodedSnapshot field = cache.getField();
+            assertSame(field.getBytes(), cache.getField().getBytes());
+
+            fieldController.poll(1);
+            snapshotStore.publish(fieldController.snapshot());
+            assertNotEquals(first.getEtag(), cache.getLine(1).getEtag());
+            assertNotEquals(field.getEtag(), cache.getField().getEtag());
+        } finally {
+            fieldController.close();
+        }
+    }
+
+    @Test
+    void notModifiedTest() throws InterruptedException {
+        SimulatorProperties simulatorProperties = new SimulatorProperties();
+        simulatorProperties.setEnabled(true);
+        PollProperties pollProperties = new PollProperties();
+        pollProperties.setTick(60000);
+        RestController restController = new RestController(simulatorProperties, pollProperties, objectMapper);
+        try {
+            Thread.sleep(100);
+            ResponseEntity<byte[]> response = restController.getCache(1, webRequest(null, new MockHttpServletResponse()));
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            String etag = response.getHeaders().getETag();
+
+            MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+            ResponseEntity<byte[]> cached = restController.getCache(1, webRequest(etag, servletResponse));
+            assertNull(cached);
+            assertEquals(HttpStatus.NOT_MODIFIED.value(), servletResponse.getStatus());
+            assertEquals(HttpStatus.NOT_FOUND, restController.getCache(9, webRequest(null, new MockHttpServletResponse())).getStatusCode());
+
+            MockHttpServletRequest binaryRequest = new MockHttpServletRequest("GET", "/getCache");
+            binaryRequest.addHeader("Accept", BinarySnapshot.MEDIA_TYPE + ", application/json;q=0.5");
+            ResponseEntity<byte[]> binary = restController.getCache(1, new ServletWebRequest(binaryRequest, new MockHttpServletResponse()));
+            assertEquals(BinarySnapshot.MEDIA_TYPE, binary.getHeaders().getContentType().toString());
+            assertNotEquals(etag, binary.getHeaders().getETag());
+            assertEquals(1, BinarySnapshot.decodeLine(binary.getBody()).getId());
+        } finally {
+            restController.stopTimers();
+        }
+    }
+
+    private ServletWebRequest webRequest(String ifNoneMatch, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/getCache");
+        if (ifNoneMatch != null)
+            request.addHeader("If-None-Match", ifNoneMatch);
+        return new ServletWebRequest(request, response);
+    }
+}
@@ -0,0 +1,113 @@
+package psa.cesa.cesaom.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.ComLineSnapshot;
+import psa.cesa.cesaom.model.FieldChanges;
+import psa.cesa.cesaom.model.XmlLinesReader;
+import psa.cesa.cesaom.simulator.SimulatedTransport;
+import psa.cesa.cesaom.simulator.SimulatorProperties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotStoreTest {
+
+    FieldController fieldController;
+    SnapshotStore snapshotStore = new SnapshotStore();
+
+    @BeforeEach
+    public void setup() throws Exception {
+        ComLine comLine = XmlLinesReader.getXmlRows(getClass().getClassLoader().getResourceAsStream("test.xml")).get(1);
+        SimulatorProperties simulatorProperties = new SimulatorProperties();
+        simulatorProperties.setLatency(0);
+        fieldController = new FieldController(comLine, new SimulatedTransport(comLine, simulatorProperties));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        fieldController.close();
+    }
+
+    @Test
+    void snapshotTest() {
+        ComLineSnapshot first = fieldController.snapshot();
+        assertEquals(1, first.getVersion());
+        assertSame(first, fieldController.snapshot());
+
+        fieldController.poll(2);
+        ComLineSnapshot second = fieldController.snapshot();
+        assertEquals(2, second.getVersion());
+        assertSame(first.getHeliostats().get(1), second.getHeliostats().get(1));
+        assertNotSame(first.getHeliostats().get(2), second.getHeliostats().get(2));
+        assertEquals(182, second.getHeliostats().get(2).getPositionAZ());
+        assertTrue(second.getHeliostats().get(2).getSampledAt() > 0);
+        assertEquals(16, first.getHeliostats().get(2).getEvent());
+        assertThrows(UnsupportedOperationException.class, () -> second.getHeliostats().remove(1));
+    }
+
+    @Test
+    void publishTest() {
+        ComLineSnapshot snapshot = fieldController.snapshot();
+        long epoch = snapshotStore.getField().getVersion();
+        snapshotStore.publish(snapshot);
+        snapshotStore.publish(snapshot);
+        assertEquals(epoch + 1, snapshotStore.getField().getVersion());
+        assertSame(snapshot, snapshotStore.getLine(1));
+
+        fieldController.poll(1);
+        snapshotStore.publish(fieldController.snapshot());
+        assertEquals(epoch + 2, snapshotStore.getField().getVersion());
+        assertEquals(2, snapshotStore.getField().getLines().get(1).getVersion());
+    }
+
+    @Test
+    void changesTest() {
+        snapshotStore.publish(fieldController.snapshot());
+        FieldChanges changes = snapshotStore.getChanges(0);
+        assertTrue(changes.isResync());
+        assertEquals(3, changes.getLines().get(1).size());
+
+        long version = changes.getVersion();
+        assertTrue(snapshotStore.getChanges(version).getLines().isEmpty());
+        assertTrue(snapshotStore.getChanges(version + 1).isResync());
+
+        fieldController.poll(2);
+        snapshotStore.publish(fieldController.snapshot());
+        changes = snapshotStore.getChanges(version);
+        assertFalse(changes.isResync());
+        assertEquals(1, changes.getLines().get(1).size());
+        assertEquals(2, changes.getLines().get(1).get(0).getId());
+
+        version = changes.getVersion();
+        fieldController.poll(2);
+        snapshotStore.publish(fieldController.snapshot());
+        changes = snapshotStore.getChanges(version);
+        assertEquals(version + 1, changes.getVersion());
+        assertTrue(changes.getLines().isEmpty());
+    }
+
+    @Test
+    void restartTest() {
+        SnapshotStore before = new SnapshotStore(1000);
+        for (int i = 0; i < 5; i++) {
+            fieldController.poll(2);
+            before.publish(fieldController.snapshot());
+        }
+        long version = before.getChanges(0).getVersion();
+        assertEquals(1005, version);
+
+        SnapshotStore after = new SnapshotStore(2000);
+        after.publish(fieldController.snapshot());
+        FieldChanges changes = after.getChanges(version);
+        assertTrue(changes.isResync());
+        assertEquals(3, changes.getLines().get(1).size());
+        assertFalse(after.getChanges(changes.getVersion()).isResync());
+    }
+}
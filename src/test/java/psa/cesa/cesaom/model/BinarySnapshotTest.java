@@ -0,0 +1,67 @@
+package psa.cesa.cesaom.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinarySnapshotTest {
+
+    private ComLineSnapshot line(int id, long timestamp) {
+        Map<Integer, HeliostatSnapshot> heliostats = new TreeMap<>();
+        Heliostat heliostat = new Heliostat(1);
+        heliostat.setState(110);
+        heliostat.setEvent(0);
+        heliostat.setPositionAZ(65535);
+        heliostat.setSetPointEL(45);
+        heliostat.setSampledAt(timestamp - 250);
+        heliostats.put(1, new HeliostatSnapshot(heliostat));
+        Heliostat quarantined = new Heliostat(247);
+        quarantined.updateLink(false, 1);
+        heliostats.put(247, new HeliostatSnapshot(quarantined));
+        return new ComLineSnapshot(id, "/dev/ttyUSB" + id, 7, timestamp, heliostats);
+    }
+
+    @Test
+    void lineTest() {
+        long timestamp = System.currentTimeMillis();
+        ComLineSnapshot line = line(1, timestamp);
+        byte[] message = BinarySnapshot.encode(line);
+        assertEquals(4 + 4 + 8 + 8 + 2 + 12 + 2 + 2 * BinarySnapshot.RECORD_LENGTH, message.length);
+
+        ComLineSnapshot decoded = BinarySnapshot.decodeLine(message);
+        assertEquals(7, decoded.getVersion());
+        assertEquals("/dev/ttyUSB1", decoded.getPortDir());
+        HeliostatSnapshot heliostat = decoded.getHeliostats().get(1);
+        assertTrue(heliostat.sameValues(line.getHeliostats().get(1)));
+        assertEquals(65535, heliostat.getPositionAZ());
+        assertEquals(timestamp - 250, heliostat.getSampledAt());
+        assertEquals(0, heliostat.getQuarantinedSince());
+        HeliostatSnapshot quarantined = decoded.getHeliostats().get(247);
+        assertEquals(LinkState.QUARANTINED, quarantined.getLinkState());
+        assertEquals(0, quarantined.getSampledAt());
+        assertEquals(Collections.singleton(247), decoded.getQuarantined().keySet());
+    }
+
+    @Test
+    void fieldTest() {
+        Map<Integer, ComLineSnapshot> lines = new TreeMap<>();
+        lines.put(1, line(1, 1000));
+        lines.put(2, line(2, 2000));
+        byte[] message = BinarySnapshot.encode(new FieldSnapshot(9, 3, lines, Collections.emptyMap()));
+        FieldSnapshot decoded = BinarySnapshot.decodeField(message);
+        assertEquals(9, decoded.getVersion());
+        assertEquals(3, decoded.getBaseVersion());
+        assertEquals(2000, decoded.getLines().get(2).getTimestamp());
+        assertEquals(2, decoded.getLines().get(2).getHeliostats().size());
+
+        assertThrows(IllegalArgumentException.class, () -> BinarySnapshot.decodeLine(message));
+        assertThrows(IllegalArgumentException.class, () -> BinarySnapshot.decodeField(Arrays.copyOf(message, 40)));
+    }
+}
@@ -0,0 +1,59 @@
+package psa.cesa.cesaom.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CRC throughput by frame length: 8 bytes is a poll, 25 the longest command, 256 the longest RTU frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CRCBenchmark {
+
+    @Param({"8", "25", "64", "256"})
+    int length;
+
+    byte[] frame;
+
+    @Setup
+    public void setup() {
+        frame = new byte[length];
+        new Random(0).nextBytes(frame);
+    }
+
+    @Benchmark
+    public byte[] calculate() {
+        return CRC.calculate(frame, length - 2);
+    }
+
+    @Benchmark
+    public int compute() {
+        return CRC.compute(frame, 0, length - 2);
+    }
+
+    @Benchmark
+    public int computeBytewise() {
+        return CRC.computeBytewise(frame, 0, length - 2);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return CRC.verify(frame, 0, length);
+    }
+}
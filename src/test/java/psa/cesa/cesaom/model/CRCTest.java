@@ -3,7 +3,13 @@ package psa.cesa.cesaom.model;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 public class CRCTest {
@@ -19,4 +25,40 @@ public class CRCTest {
         assertEquals(bytes[0], crc[0]);
         assertEquals(bytes[1], crc[1]);
     }
-}
\ No newline at end of file
+
+    @Test
+    void computeTest() {
+        byte[] frame = new byte[]{01, 03, 00, 10, 00, 0x08};
+        assertEquals(0x0E64, CRC.compute(frame, 0, 6));
+        assertEquals(CRC.computeBytewise(frame, 0, 6), CRC.compute(frame, 0, 6));
+        Random random = new Random(0);
+        for (int length = 0; length < 256; length++) {
+            byte[] data = new byte[length + 3];
+            random.nextBytes(data);
+            assertEquals(CRC.computeBytewise(data, 3, length), CRC.compute(data, 3, length));
+        }
+    }
+
+    @Test
+    void appendTest() {
+        byte[] frame = new byte[]{1, 3, 0, 0x10, 0, 8, 0, 0};
+        CRC.append(frame, 6);
+        assertArrayEquals(new byte[]{1, 3, 0, 0x10, 0, 8, 0x45, (byte) 0xC9}, frame);
+        ByteBuffer byteBuffer = ByteBuffer.allocate(8);
+        byteBuffer.put(new byte[]{1, 3, 0, 0x10, 0, 8});
+        CRC.append(byteBuffer);
+        assertArrayEquals(frame, byteBuffer.array());
+        ByteBuffer direct = ByteBuffer.allocateDirect(8);
+        direct.put(new byte[]{1, 3, 0, 0x10, 0, 8});
+        CRC.append(direct);
+        assertEquals(0x45, direct.get(6));
+    }
+
+    @Test
+    void verifyTest() {
+        byte[] frame = new byte[]{9, 1, 3, 0, 0x10, 0, 8, 0x45, (byte) 0xC9};
+        assertTrue(CRC.verify(frame, 1, 8));
+        frame[4] = 0x11;
+        assertFalse(CRC.verify(frame, 1, 8));
+    }
+}
@@ -0,0 +1,59 @@
+package psa.cesa.cesaom.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConfigDiffTest {
+
+    static ComLine comLine(int id, String portDir, int... heliostatIds) {
+        FieldState fieldState = new FieldState();
+        for (int heliostatId : heliostatIds) {
+            fieldState.add(heliostatId);
+        }
+        return new ComLine(id, portDir, fieldState);
+    }
+
+    static Map<Integer, ComLine> config(ComLine... comLines) {
+        Map<Integer, ComLine> config = new HashMap<>();
+        for (ComLine comLine : comLines) {
+            config.put(comLine.getId(), comLine);
+        }
+        return config;
+    }
+
+    @Test
+    void sameConfigTest() {
+        ConfigDiff diff = ConfigDiff.between(config(comLine(1, "a", 1, 2)), config(comLine(1, "a", 1, 2)));
+        assertTrue(diff.isEmpty());
+        assertTrue(diff.getAddedHeliostats().isEmpty());
+        assertTrue(diff.getRemovedHeliostats().isEmpty());
+    }
+
+    @Test
+    void linesTest() {
+        ConfigDiff diff = ConfigDiff.between(config(comLine(1, "a", 1), comLine(2, "b", 1), comLine(3, "c", 1)),
+                config(comLine(1, "a", 1), comLine(2, "x", 1), comLine(4, "d", 1)));
+        assertEquals(Collections.singletonList(4), diff.getAddedLines());
+        assertEquals(Collections.singletonList(3), diff.getRemovedLines());
+        assertEquals(Collections.singletonList(2), diff.getChangedLines());
+        assertEquals(Collections.singletonMap(1, 3), diff.getMovedHeliostats().get(4));
+    }
+
+    @Test
+    void heliostatsTest() {
+        ConfigDiff diff = ConfigDiff.between(config(comLine(1, "a", 1, 2, 3), comLine(2, "b", 3, 4)),
+                config(comLine(1, "a", 1, 5), comLine(2, "b", 2, 4)));
+        assertEquals(Arrays.asList(1, 2), diff.getChangedLines());
+        assertEquals(Collections.singletonMap(1, Collections.singletonList(5)), diff.getAddedHeliostats());
+        assertEquals(Collections.singletonMap(2, 1), diff.getMovedHeliostats().get(2));
+        assertEquals(Collections.singletonList(3), diff.getRemovedHeliostats().get(1));
+        assertEquals(Collections.singletonList(3), diff.getRemovedHeliostats().get(2));
+    }
+}
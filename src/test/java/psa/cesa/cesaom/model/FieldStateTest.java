@@ -0,0 +1,51 @@
+package psa.cesa.cesaom.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FieldStateTest {
+
+    FieldState fieldState = new FieldState();
+
+    @Test
+    void mapViewTest() {
+        fieldState.add(200);
+        fieldState.add(3);
+        fieldState.add(64);
+        Map<Integer, Heliostat> heliostats = fieldState.getHeliostats();
+        assertEquals(Arrays.asList(3, 64, 200), new ArrayList<>(heliostats.keySet()));
+        assertSame(fieldState.add(3), heliostats.get(3));
+        assertNull(heliostats.get(4));
+        assertEquals(16, heliostats.get(64).getEvent());
+
+        heliostats.remove(64);
+        assertEquals(Arrays.asList(3, 200), new ArrayList<>(heliostats.keySet()));
+        assertEquals(2, fieldState.size());
+        assertEquals(200, fieldState.id(1));
+        assertThrows(IllegalArgumentException.class, () -> fieldState.add(256));
+        assertThrows(IllegalArgumentException.class, () -> fieldState.add(Modbus.MAX_SLAVE_ADDRESS + 1));
+    }
+
+    @Test
+    void viewTest() {
+        Heliostat heliostat = new Heliostat(7);
+        heliostat.setPositionAZ(300);
+        heliostat.updateLink(false, 1);
+        fieldState.getHeliostats().put(7, heliostat);
+
+        Heliostat view = fieldState.get(7);
+        assertEquals(300, view.getPositionAZ());
+        assertEquals(LinkState.QUARANTINED, view.getLinkState());
+        view.setState(110);
+        assertEquals(110, fieldState.state[7]);
+        assertEquals(0, heliostat.getState());
+    }
+}
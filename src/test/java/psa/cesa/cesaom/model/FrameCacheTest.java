@@ -0,0 +1,26 @@
+package psa.cesa.cesaom.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FrameCacheTest {
+
+    FrameCache frameCache = new FrameCache(Arrays.asList(1, 2, 3));
+
+    @Test
+    void getPollFrameTest() {
+        assertArrayEquals(new byte[]{1, 3, 0, 0x10, 0, 8, 0x45, (byte) 0xC9}, frameCache.getPollFrame(1));
+        assertSame(frameCache.getPollFrame(2), frameCache.getPollFrame(2));
+    }
+
+    @Test
+    void getPollFrameNotCachedTest() {
+        assertArrayEquals(FrameCache.buildPollFrame(100), frameCache.getPollFrame(100));
+        assertNotSame(frameCache.getPollFrame(100), frameCache.getPollFrame(100));
+    }
+}
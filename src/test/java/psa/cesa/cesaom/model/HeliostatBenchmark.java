@@ -0,0 +1,100 @@
+package psa.cesa.cesaom.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a poll response into a <code>Heliostat</code>, scanning a whole <code>ComLine</code> from
+ * fieldComLines.xml and serializing it as <code>RestController</code> did for /getCache, and encoding its snapshot as
+ * JSON and as <code>BinarySnapshot</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeliostatBenchmark {
+
+    byte[] response = {1, 3, 16, 0, 2, 0, 0, 0, 0, 0, 0, 0x01, 0x2C, 0x00, 0x5A, 0x01, 0x2C, 0x00, 0x5A, 0, 0};
+    byte[] request = FrameCache.buildPollFrame(1);
+    Heliostat heliostat = new Heliostat(1);
+    ComLine comLine;
+    ComLineSnapshot snapshot;
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    @Setup
+    public void setup() throws Exception {
+        CRC.append(response, response.length - 2);
+        comLine = XmlLinesReader.getXmlRows(getClass().getClassLoader().getResourceAsStream("fieldComLines.xml")).get(1);
+        Map<Integer, HeliostatSnapshot> heliostats = new TreeMap<>();
+        for (Heliostat heliostat : comLine.getHeliostats().values()) {
+            heliostat.setAttributes(response, response.length);
+            heliostat.setSampledAt(System.currentTimeMillis());
+            heliostats.put(heliostat.getId(), new HeliostatSnapshot(heliostat));
+        }
+        snapshot = new ComLineSnapshot(comLine.getId(), comLine.getPortDir(), 1, System.currentTimeMillis(), heliostats);
+    }
+
+    @Benchmark
+    public Heliostat setAttributes() {
+        heliostat.setAttributes(response, response.length);
+        return heliostat;
+    }
+
+    @Benchmark
+    public Heliostat checkAndSetAttributes() {
+        if (ModbusDecoder.check(request, response, response.length) == ResponseStatus.OK)
+            heliostat.setAttributes(response, response.length);
+        return heliostat;
+    }
+
+    @Benchmark
+    public int scanComLine() {
+        int failures = 0;
+        for (Heliostat heliostat : comLine.getHeliostats().values()) {
+            if (heliostat.getEvent() == 0x10)
+                failures++;
+        }
+        return failures;
+    }
+
+    @Benchmark
+    public int scanFieldState() {
+        FieldState fieldState = comLine.getFieldState();
+        int failures = 0;
+        for (int i = 0; i < fieldState.size(); i++) {
+            if (fieldState.getEvent(fieldState.id(i)) == 0x10)
+                failures++;
+        }
+        return failures;
+    }
+
+    @Benchmark
+    public byte[] serializeComLine() throws Exception {
+        return objectMapper.writeValueAsBytes(comLine);
+    }
+
+    @Benchmark
+    public byte[] serializeSnapshot() throws Exception {
+        return objectMapper.writeValueAsBytes(snapshot);
+    }
+
+    @Benchmark
+    public byte[] encodeBinarySnapshot() {
+        return BinarySnapshot.encode(snapshot);
+    }
+}
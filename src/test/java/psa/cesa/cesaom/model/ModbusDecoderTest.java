@@ -0,0 +1,53 @@
+package psa.cesa.cesaom.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ModbusDecoderTest {
+
+    byte[] request = FrameCache.buildPollFrame(1);
+
+    byte[] response() {
+        byte[] response = {1, 3, 16, 0, 0x6E, 0, 0, 0, 0, 0, 0, 0x01, 0x2C, 0x00, 0x5A, 0x01, 0x2C, 0x00, 0x5A, 0, 0};
+        CRC.append(response, response.length - 2);
+        return response;
+    }
+
+    @Test
+    void checkTest() {
+        byte[] response = response();
+        assertEquals(ResponseStatus.OK, ModbusDecoder.check(request, response, response.length));
+        assertEquals(ResponseStatus.NO_RESPONSE, ModbusDecoder.check(request, response, 0));
+        assertEquals(ResponseStatus.PARTIAL, ModbusDecoder.check(request, response, 12));
+
+        response[20] ^= 0x01;
+        assertEquals(ResponseStatus.CORRUPT, ModbusDecoder.check(request, response, response.length));
+
+        response = response();
+        response[2] = 14;
+        assertEquals(ResponseStatus.CORRUPT, ModbusDecoder.check(request, response, response.length));
+
+        response = response();
+        response[0] = 2;
+        assertEquals(ResponseStatus.WRONG_SLAVE, ModbusDecoder.check(request, response, response.length));
+
+        byte[] exception = {1, (byte) 0x83, 2, 0, 0};
+        CRC.append(exception, 3);
+        assertEquals(ResponseStatus.EXCEPTION, ModbusDecoder.check(request, exception, exception.length));
+        assertEquals(ResponseStatus.PARTIAL, ModbusDecoder.check(request, exception, 3));
+    }
+
+    @Test
+    void setAttributesTest() {
+        byte[] response = response();
+        Heliostat heliostat = new Heliostat(1);
+        heliostat.setAttributes(response, response.length);
+        assertEquals(0x6E, heliostat.getState());
+        assertEquals(0, heliostat.getEvent());
+        assertEquals(300, heliostat.getPositionAZ());
+        assertEquals(90, heliostat.getPositionEL());
+        assertEquals(300, heliostat.getSetPointAZ());
+        assertEquals(90, heliostat.getSetPointEL());
+    }
+}
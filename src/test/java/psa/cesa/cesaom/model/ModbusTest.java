@@ -0,0 +1,39 @@
+package psa.cesa.cesaom.model;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+public class ModbusTest {
+
+    @Test
+    void expectedResponseLengthTest() {
+        assertEquals(21, Modbus.expectedResponseLength(new byte[]{1, 0x03, 0x00, 0x10, 0x00, 0x08, 0, 0}));
+        assertEquals(11, Modbus.expectedResponseLength(new byte[]{1, 0x03, 0x03, (byte) 0xE8, 0x00, 0x03, 0, 0}));
+        assertEquals(8, Modbus.expectedResponseLength(new byte[]{1, 0x10, 0, 0, 0, 1, 2, 0, 97, 0, 0}));
+        assertEquals(Modbus.MAX_FRAME_LENGTH, Modbus.expectedResponseLength(new byte[]{1, 0, 0, 0, 0, 0}));
+    }
+
+    @Test
+    void isBroadcastTest() {
+        assertTrue(Modbus.isBroadcast(new byte[]{0, 0x10, 0, 0, 0, 1, 2, 0, 97, 0, 0}));
+        assertFalse(Modbus.isBroadcast(new byte[]{1, 0x10, 0, 0, 0, 1, 2, 0, 97, 0, 0}));
+    }
+
+    @Test
+    void isExceptionTest() {
+        assertTrue(Modbus.isException((byte) 0x83));
+        assertFalse(Modbus.isException((byte) 0x03));
+    }
+
+    @Test
+    void silenceMicrosTest() {
+        assertEquals(573, Modbus.charMicros(19200, 11));
+        assertEquals(2006, Modbus.silenceMicros(19200, 11));
+        assertEquals(1750, Modbus.silenceMicros(115200, 11));
+    }
+}
@@ -0,0 +1,92 @@
+package psa.cesa.cesaom.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadPlanTest {
+
+    static RegisterBlock block(String name, long refresh, int register, int count) {
+        RegisterField[] fields = new RegisterField[count];
+        for (int i = 0; i < count; i++) {
+            fields[i] = new RegisterField(name + i, register + i, RegisterType.U16);
+        }
+        return new RegisterBlock(name, refresh, Arrays.asList(fields));
+    }
+
+    @Test
+    void mergeTest() {
+        ReadPlan plan = new ReadPlan(Arrays.asList(block("c", 1000, 20, 2), block("a", 1000, 10, 4),
+                block("b", 1000, 14, 2), block("slow", 60000, 16, 1)), 0);
+        List<ReadRequest> requests = plan.getRequests();
+        assertEquals(3, requests.size());
+        assertEquals(10, requests.get(0).getStart());
+        assertEquals(6, requests.get(0).getCount());
+        assertEquals(Arrays.asList("a", "b"), requests.get(0).getBlocks());
+        assertEquals(20, requests.get(1).getStart());
+        assertEquals(60000, requests.get(2).getRefresh());
+
+        requests = new ReadPlan(plan.getBlocks(), 4).getRequests();
+        assertEquals(2, requests.size());
+        assertEquals(12, requests.get(0).getCount());
+        assertEquals(Arrays.asList("a", "b", "c"), requests.get(0).getBlocks());
+    }
+
+    @Test
+    void maxRegistersTest() {
+        List<ReadRequest> requests = new ReadPlan(Arrays.asList(block("a", 1000, 0, 100), block("b", 1000, 100, 30)), 0).getRequests();
+        assertEquals(2, requests.size());
+        assertEquals(100, requests.get(0).getCount());
+        assertEquals(30, requests.get(1).getCount());
+        assertThrows(IllegalArgumentException.class, () -> block("big", 1000, 0, ReadPlan.MAX_REGISTERS + 1));
+    }
+
+    @Test
+    void duplicateTest() {
+        assertThrows(IllegalArgumentException.class, () -> new ReadPlan(Arrays.asList(block("a", 1000, 0, 1), block("a", 1000, 5, 1)), 0));
+        assertThrows(IllegalArgumentException.class, () -> new ReadPlan(Arrays.asList(new RegisterBlock("a", 1000,
+                Collections.singletonList(new RegisterField("x", 0, RegisterType.U16))), new RegisterBlock("b", 1000,
+                Collections.singletonList(new RegisterField("x", 1, RegisterType.U16)))), 0));
+    }
+
+    @Test
+    void decodeTest() {
+        RegisterField signed = new RegisterField("signed", 10, RegisterType.I16);
+        RegisterField counter = new RegisterField("counter", 11, RegisterType.U32);
+        ReadRequest request = new ReadPlan(Collections.singletonList(new RegisterBlock("a", 1000, Arrays.asList(signed, counter))), 0).getRequests().get(0);
+        assertEquals(3, request.getCount());
+        byte[] frame = request.buildFrame(7);
+        assertEquals(Arrays.toString(new byte[]{7, 3, 0, 10, 0, 3}), Arrays.toString(Arrays.copyOf(frame, 6)));
+        assertTrue(CRC.verify(frame, 0, frame.length));
+
+        byte[] response = {7, 3, 6, (byte) 0xFF, (byte) 0xFE, (byte) 0xFF, (byte) 0xFF, 0, 1, 0, 0};
+        assertEquals(-2, request.decode(signed, response));
+        assertEquals(0xFFFF0001L, request.decode(counter, response));
+    }
+
+    @Test
+    void xmlTest() throws Exception {
+        String xml = "<comLines><readPlan><block name=\"hour\" refresh=\"60000\"><field name=\"hour\" register=\"0x03E8\"/></block></readPlan>"
+                + "<comLine id=\"1\" portDir=\"a\"><heliostat id=\"1\"/></comLine>"
+                + "<comLine id=\"2\" portDir=\"b\"><readPlan maxGap=\"2\"><block name=\"temp\" refresh=\"5000\">"
+                + "<field name=\"temp\" register=\"200\" type=\"I16\"/></block></readPlan><heliostat id=\"1\"/></comLine></comLines>";
+        Map<Integer, ComLine> comLines = XmlLinesReader.getXmlRows(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        ReadRequest hour = comLines.get(1).getReadPlan().getRequests().get(0);
+        assertEquals(0x03E8, hour.getStart());
+        assertEquals(RegisterType.U16, hour.getFields().get(0).getType());
+        ReadPlan temp = comLines.get(2).getReadPlan();
+        assertEquals(2, temp.getMaxGap());
+        assertEquals(RegisterType.I16, temp.getRequests().get(0).getFields().get(0).getType());
+        assertSame(ReadPlan.EMPTY, XmlLinesReader.getXmlRows(getClass().getClassLoader().getResourceAsStream("test.xml")).get(1).getReadPlan());
+    }
+}
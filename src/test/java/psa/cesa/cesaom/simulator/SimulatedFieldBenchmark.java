@@ -0,0 +1,92 @@
+package psa.cesa.cesaom.simulator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import psa.cesa.cesaom.controller.FieldController;
+import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.Heliostat;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cycle time of a whole simulated field and latency of a command on an idle line.
+ * <p>
+ * The field has <code>lines</code> lines of <code>heliostats</code> heliostats, 330 heliostats by default, with the
+ * default <code>SimulatorProperties</code> timing.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimulatedFieldBenchmark {
+
+    @Param({"3"})
+    int lines;
+
+    @Param({"110"})
+    int heliostats;
+
+    List<FieldController> fieldControllers = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        SimulatorProperties properties = new SimulatorProperties();
+        for (int i = 1; i <= lines; i++) {
+            Map<Integer, Heliostat> map = new LinkedHashMap<>();
+            for (int j = 1; j <= heliostats; j++) {
+                map.put(j, new Heliostat(j));
+            }
+            ComLine comLine = new ComLine(i, "simulated" + i, map);
+            fieldControllers.add(new FieldController(comLine, new SimulatedTransport(comLine, properties)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fieldControllers.forEach(FieldController::close);
+    }
+
+    @Benchmark
+    public void pollCycle() {
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (FieldController fieldController : fieldControllers) {
+            for (int j = 1; j <= heliostats; j++) {
+                futures.add(fieldController.pollAsync(j));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 1, time = 1)
+    @Measurement(iterations = 3, time = 1)
+    public String command() {
+        return fieldControllers.get(0).command(1, "a");
+    }
+}
@@ -0,0 +1,79 @@
+package psa.cesa.cesaom.simulator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import psa.cesa.cesaom.controller.FieldController;
+import psa.cesa.cesaom.model.BroadcastResult;
+import psa.cesa.cesaom.model.CRC;
+import psa.cesa.cesaom.model.ComLine;
+import psa.cesa.cesaom.model.FrameCache;
+import psa.cesa.cesaom.model.Heliostat;
+import psa.cesa.cesaom.model.XmlLinesReader;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimulatedTransportTest {
+
+    ComLine comLine;
+    SimulatorProperties properties;
+    SimulatedTransport transport;
+    FieldController fieldController;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        comLine = XmlLinesReader.getXmlRows(getClass().getClassLoader().getResourceAsStream("test.xml")).get(1);
+        properties = new SimulatorProperties();
+        properties.setLatency(0);
+        properties.setResponseTimeout(10);
+        transport = new SimulatedTransport(comLine, properties);
+        fieldController = new FieldController(comLine, transport);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        fieldController.close();
+    }
+
+    @Test
+    void pollTest() {
+        int length = transport.transact(FrameCache.buildPollFrame(2));
+        assertEquals(21, length);
+        assertTrue(CRC.verify(transport.getReceiveBuffer(), 0, length));
+        assertEquals(0, transport.transact(FrameCache.buildPollFrame(9)));
+    }
+
+    @Test
+    void commandTest() {
+        assertEquals("01 10 00 00 00 01 01 c9 ", fieldController.command(1, "a"));
+        fieldController.poll(1);
+        Heliostat heliostat = comLine.getHeliostats().get(1);
+        assertEquals(97, heliostat.getState());
+        assertEquals(0, heliostat.getEvent());
+    }
+
+    @Test
+    void broadcastTest() throws Exception {
+        comLine.getHeliostats().put(4, new Heliostat(4));
+        BroadcastResult result = fieldController.broadcastCommandAsync("a").get();
+        assertEquals(Arrays.asList(1, 2, 3), result.getChanged());
+        assertEquals(Collections.singletonList(4), result.getUnanswered());
+        assertTrue(result.getRejected().isEmpty());
+
+        properties.setCorruptionRate(1);
+        result = fieldController.broadcastCommandAsync("a").get();
+        assertEquals(Arrays.asList(1, 2, 3), result.getFailed());
+        assertEquals(Collections.singletonList(4), result.getUnanswered());
+        assertTrue(result.getUnchanged().isEmpty());
+    }
+
+    @Test
+    void timeoutTest() {
+        properties.setTimeoutRate(1);
+        assertEquals("No responde", fieldController.command(1, "a"));
+    }
+}